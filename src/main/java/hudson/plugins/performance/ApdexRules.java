@@ -0,0 +1,68 @@
+package hudson.plugins.performance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Apdex thresholds of the URIs, configured on the
+ * {@link PerformanceReportParser}: a default threshold and rules of the form
+ * <code>regex =&gt; T</code>, such as <code>/search.* =&gt; 2000</code>, with
+ * <code>T</code> in ms. The first rule whose regular expression matches the
+ * whole URI applies, the default one otherwise. Empty lines and lines
+ * starting with <code>#</code> are ignored.
+ *
+ * <p>
+ * A sample is satisfied up to <code>T</code>, tolerating up to
+ * <code>4 T</code>, frustrated above or when it failed, and the Apdex score
+ * is <code>(satisfied + tolerating / 2) / samples</code>.
+ */
+class ApdexRules {
+
+    private final long defaultThreshold;
+
+    private final List<Pattern> patterns = new ArrayList<Pattern>();
+
+    private final List<Long> thresholds = new ArrayList<Long>();
+
+    /**
+     * @param defaultThreshold
+     *            threshold in ms of the URIs matched by no rule, 0 for none.
+     * @throws IllegalArgumentException
+     *             if a rule is not valid.
+     */
+    ApdexRules(long defaultThreshold, String rules) {
+        this.defaultThreshold = Math.max(0, defaultThreshold);
+        final RuleLines lines = new RuleLines(rules, "an Apdex rule", "threshold in ms");
+        for (int i = 0; i < lines.size(); i++) {
+            if (!lines.getValue(i).matches("\\d{1,9}")) {
+                throw lines.invalid(i);
+            }
+            patterns.add(lines.getPattern(i));
+            thresholds.add(Long.parseLong(lines.getValue(i)));
+        }
+    }
+
+    boolean isEmpty() {
+        return defaultThreshold == 0 && patterns.isEmpty();
+    }
+
+    /**
+     * Threshold in ms of the URI, 0 when it has no Apdex.
+     */
+    long getThreshold(String uri) {
+        for (int i = 0; i < patterns.size(); i++) {
+            if (patterns.get(i).matcher(uri).matches()) {
+                return thresholds.get(i);
+            }
+        }
+        return defaultThreshold;
+    }
+
+    /**
+     * Apdex score of the given counts, from 0 to 1.
+     */
+    static double score(long satisfied, long tolerating, long samples) {
+        return samples == 0 ? 0 : (satisfied + tolerating / 2d) / samples;
+    }
+}
@@ -0,0 +1,340 @@
+package hudson.plugins.performance;
+
+import hudson.model.ModelObject;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.scm.ChangeLogSet;
+
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the first build where a metric of a report, or of one of its URIs,
+ * crossed a threshold, by a binary search over the builds like
+ * <code>git bisect</code>. Only the summaries of the visited builds are
+ * loaded, so the search reads a few tens of summaries over thousands of
+ * builds.
+ *
+ * <p>
+ * The search assumes that the metric crossed the threshold once: the newest
+ * build with a summary must be over it, and the builds before the first
+ * offending one are taken as under it.
+ */
+public class BisectDetail implements ModelObject {
+
+    /**
+     * Metrics of the search, a percentile being written such as
+     * <code>p90</code> or <code>p99.9</code>.
+     */
+    static final String[] METRICS = { "p50", "p90", "p95", "p99", "max", "throughput" };
+
+    private static final Pattern PERCENTILE = Pattern.compile("p(\\d{1,2}(?:\\.\\d+)?)");
+
+    private final AbstractProject<?, ?> project;
+
+    private final String filename;
+
+    private final String uri;
+
+    private final String metric;
+
+    private final String threshold;
+
+    private final List<Step> steps = new ArrayList<Step>();
+
+    private AbstractBuild<?, ?> firstBuild;
+
+    private String error;
+
+    /**
+     * @param uri
+     *            {@link UriReport#getStaplerUri()} of the searched URI, or
+     *            null for the whole report.
+     * @param metric
+     *            one of {@link #METRICS} or any percentile.
+     * @param threshold
+     *            response time in ms, or samples per second for the
+     *            throughput, which crosses it by going under. Null or empty
+     *            shows the form only.
+     */
+    public BisectDetail(AbstractProject<?, ?> project, String filename, String uri,
+            String metric, String threshold) {
+        this.project = project;
+        this.filename = filename;
+        this.uri = uri == null || uri.length() == 0 ? null : uri;
+        this.metric = metric == null || metric.length() == 0 ? METRICS[1] : metric;
+        this.threshold = threshold == null ? "" : threshold.trim();
+        if (filename == null || this.threshold.length() == 0) {
+            return;
+        }
+        final double limit;
+        try {
+            limit = Double.parseDouble(this.threshold);
+        } catch (final NumberFormatException e) {
+            error = "Invalid threshold: " + this.threshold;
+            return;
+        }
+        if (!"max".equals(this.metric) && !"throughput".equals(this.metric)
+                && !PERCENTILE.matcher(this.metric).matches()) {
+            error = "Unknown metric: " + this.metric;
+            return;
+        }
+        search(limit);
+    }
+
+    private void search(final double limit) {
+        final List<? extends AbstractBuild<?, ?>> builds = project.getBuilds();
+        final int size = builds.size();
+        final int index = bisect(size, new Probe() {
+            public Boolean crossed(int i) {
+                // builds are listed from the newest one
+                final AbstractBuild<?, ?> build = builds.get(size - 1 - i);
+                final Double value = getValue(build);
+                if (value == null) {
+                    return null;
+                }
+                final boolean crossed = "throughput".equals(metric) ? value < limit : value > limit;
+                steps.add(new Step(build, value, crossed));
+                return crossed;
+            }
+        });
+        if (index >= 0) {
+            firstBuild = builds.get(size - 1 - index);
+        }
+    }
+
+    /**
+     * Looks for a change of outcome of a probe over indices in chronological
+     * order.
+     */
+    interface Probe {
+
+        /**
+         * @return whether the value at the index crossed the threshold, null
+         *         when it has no value.
+         */
+        Boolean crossed(int index);
+    }
+
+    /**
+     * Binary search of the first index which crossed the threshold, the
+     * indices without value being replaced by their nearest neighbour with
+     * one.
+     *
+     * @return the first index which crossed, or -1 when the last index with a
+     *         value did not.
+     */
+    static int bisect(int size, Probe probe) {
+        int high = size - 1;
+        Boolean last = null;
+        while (high >= 0 && (last = probe.crossed(high)) == null) {
+            high--;
+        }
+        if (last == null || !last) {
+            return -1;
+        }
+        // low did not cross, or is before the first index
+        int low = -1;
+        while (high - low > 1) {
+            final int middle = (low + high) >>> 1;
+            int probed = -1;
+            Boolean crossed = null;
+            for (int distance = 0; crossed == null; distance++) {
+                final boolean after = middle + distance < high;
+                final boolean before = middle - distance > low;
+                if (!after && !before) {
+                    break;
+                }
+                if (after && (crossed = probe.crossed(middle + distance)) != null) {
+                    probed = middle + distance;
+                } else if (distance > 0 && before
+                        && (crossed = probe.crossed(middle - distance)) != null) {
+                    probed = middle - distance;
+                }
+            }
+            if (crossed == null) {
+                // no value left between low and high
+                break;
+            }
+            if (crossed) {
+                high = probed;
+            } else {
+                low = probed;
+            }
+        }
+        return high;
+    }
+
+    private Double getValue(AbstractBuild<?, ?> build) {
+        if (build.isBuilding() || build.getAction(PerformanceBuildAction.class) == null) {
+            return null;
+        }
+        final PerformanceSummary summary = PerformanceSummary.load(build);
+        final ReportSummary report = summary == null ? null : summary.getReport(filename);
+        if (report == null) {
+            return null;
+        }
+        final UriSummary uriSummary = uri == null ? null : report.getUri(uri);
+        if (uri != null && uriSummary == null) {
+            return null;
+        }
+        if ("throughput".equals(metric)) {
+            if (uriSummary != null) {
+                return uriSummary.getThroughput() > 0 ? uriSummary.getThroughput() : null;
+            }
+            double throughput = 0;
+            for (final UriSummary u : report.getUris()) {
+                throughput += u.getThroughput();
+            }
+            return throughput > 0 ? throughput : null;
+        }
+        final LatencyHistogram histogram = uriSummary == null ? report.getHistogram()
+                : uriSummary.getHistogram();
+        if (histogram.isEmpty()) {
+            return null;
+        }
+        if ("max".equals(metric)) {
+            return (double) histogram.getMax();
+        }
+        final Matcher m = PERCENTILE.matcher(metric);
+        m.matches();
+        return (double) histogram.getValueAtPercentile(Double.parseDouble(m.group(1)));
+    }
+
+    public AbstractProject<?, ?> getProject() {
+        return project;
+    }
+
+    public String getDisplayName() {
+        return Messages.BisectDetail_DisplayName();
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public String getUri() {
+        return uri;
+    }
+
+    public String getMetric() {
+        return metric;
+    }
+
+    public String[] getMetrics() {
+        return METRICS.clone();
+    }
+
+    public String getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Why the search could not run, null when it ran or was not asked.
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * Whether a search ran.
+     */
+    public boolean isSearched() {
+        return error == null && threshold.length() > 0 && filename != null;
+    }
+
+    /**
+     * First build which crossed the threshold, null when the newest build
+     * with a value did not.
+     */
+    public AbstractBuild<?, ?> getFirstBuild() {
+        return firstBuild;
+    }
+
+    /**
+     * Changes of the first build which crossed the threshold.
+     */
+    public List<ChangeLogSet.Entry> getChanges() {
+        final List<ChangeLogSet.Entry> changes = new ArrayList<ChangeLogSet.Entry>();
+        if (firstBuild != null && firstBuild.getChangeSet() != null) {
+            for (final ChangeLogSet.Entry e : firstBuild.getChangeSet()) {
+                changes.add(e);
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Builds visited by the search, from the newest one.
+     */
+    public List<Step> getSteps() {
+        final List<Step> sorted = new ArrayList<Step>(steps);
+        Collections.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * URIs of the report in the last build with a summary, keyed by their
+     * {@link UriReport#getStaplerUri()}.
+     */
+    public Map<String, String> getUris() {
+        final Map<String, String> uris = new LinkedHashMap<String, String>();
+        for (AbstractBuild<?, ?> build = project.getLastBuild(); build != null; build = build
+                .getPreviousBuild()) {
+            final PerformanceSummary summary = build.getAction(PerformanceBuildAction.class) == null ? null
+                    : PerformanceSummary.load(build);
+            final ReportSummary report = summary == null ? null : summary.getReport(filename);
+            if (report != null) {
+                for (final UriSummary u : report.getUris()) {
+                    uris.put(u.getStaplerUri(), u.getUri());
+                }
+                break;
+            }
+        }
+        return uris;
+    }
+
+    /**
+     * Value of a build visited by the search.
+     */
+    public static class Step implements Comparable<Step> {
+
+        private final AbstractBuild<?, ?> build;
+
+        private final double value;
+
+        private final boolean crossed;
+
+        Step(AbstractBuild<?, ?> build, double value, boolean crossed) {
+            this.build = build;
+            this.value = value;
+            this.crossed = crossed;
+        }
+
+        public AbstractBuild<?, ?> getBuild() {
+            return build;
+        }
+
+        public double getValue() {
+            return value;
+        }
+
+        public String getValueFormated() {
+            return new DecimalFormat("#,##0.##").format(value);
+        }
+
+        public boolean isCrossed() {
+            return crossed;
+        }
+
+        public int compareTo(Step o) {
+            return o.build.getNumber() - build.getNumber();
+        }
+    }
+}
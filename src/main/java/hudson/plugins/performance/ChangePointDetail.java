@@ -0,0 +1,42 @@
+package hudson.plugins.performance;
+
+import hudson.model.ModelObject;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+
+import java.util.List;
+
+/**
+ * Lists the change points of the 90% lines of the reports and URIs of a
+ * project, see {@link ChangePoints}.
+ */
+public class ChangePointDetail implements ModelObject {
+
+    private final AbstractProject<?, ?> project;
+
+    private final ChangePoints changePoints;
+
+    public ChangePointDetail(AbstractProject<?, ?> project) {
+        this.project = project;
+        changePoints = ChangePoints.load(project);
+    }
+
+    public AbstractProject<?, ?> getProject() {
+        return project;
+    }
+
+    public String getDisplayName() {
+        return Messages.ChangePointDetail_DisplayName();
+    }
+
+    public List<ChangePoints.ChangePoint> getChangePoints() {
+        return changePoints.getChangePoints();
+    }
+
+    /**
+     * The build of the given number, null when it was deleted.
+     */
+    public AbstractBuild<?, ?> getBuild(int number) {
+        return project.getBuildByNumber(number);
+    }
+}
@@ -0,0 +1,393 @@
+package hudson.plugins.performance;
+
+import hudson.XmlFile;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.util.XStream2;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Change points of the 90% line of every report and URI of a project, over
+ * the builds, so that the slow drifts which no single comparison between two
+ * builds catches are found.
+ *
+ * <p>
+ * Each series runs a two-sided CUSUM of its values standardized by the mean
+ * and the standard deviation of its current segment. When a sum goes over
+ * {@link #THRESHOLD} deviations, the build where the sum started to grow is
+ * the first offending build, and a new segment starts there. The state of the
+ * sums is saved in the project directory, so that each published build only
+ * adds its own values.
+ */
+public class ChangePoints {
+
+    static final String FILE_NAME = "performance-changepoints.xml";
+
+    /**
+     * Number of values of a segment before changes are looked for.
+     */
+    static final int MIN_SEGMENT = 5;
+
+    /**
+     * Shift in standard deviations which the sums ignore.
+     */
+    static final double SLACK = 0.5;
+
+    /**
+     * Value of a sum, in standard deviations, which signals a change.
+     */
+    static final double THRESHOLD = 5;
+
+    /**
+     * Lowest standard deviation, relative to the mean, so that a series of
+     * nearly equal values does not turn every small change into a change
+     * point.
+     */
+    static final double MIN_DEVIATION = 0.02;
+
+    /**
+     * Number of last values kept by a series, to start the next segment.
+     */
+    static final int MAX_VALUES = 30;
+
+    /**
+     * Number of older builds read when the change points of a project are
+     * first computed.
+     */
+    static final int MAX_HISTORY = 200;
+
+    static final int MAX_CHANGE_POINTS = 500;
+
+    private static final Logger LOGGER = Logger.getLogger(ChangePoints.class.getName());
+
+    private static final XStream2 XSTREAM = new XStream2();
+
+    static {
+        XSTREAM.alias("change-points", ChangePoints.class);
+        XSTREAM.alias("series", Series.class);
+        XSTREAM.alias("change-point", ChangePoint.class);
+    }
+
+    /**
+     * Number of the last build added, 0 for none.
+     */
+    private int lastBuild;
+
+    private final Map<String, Series> series = new TreeMap<String, Series>();
+
+    private final List<ChangePoint> changePoints = new ArrayList<ChangePoint>();
+
+    /**
+     * Loads the change points of the project, empty when none were computed
+     * yet.
+     */
+    static synchronized ChangePoints load(AbstractProject<?, ?> project) {
+        final XmlFile file = getFile(project);
+        if (file.exists()) {
+            try {
+                return (ChangePoints) file.read();
+            } catch (final IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to load " + file, e);
+            }
+        }
+        return new ChangePoints();
+    }
+
+    /**
+     * Adds the summary of a build, after the summaries of the older builds
+     * which were not added yet, and saves the change points.
+     *
+     * @return the change points found.
+     */
+    static synchronized List<ChangePoint> update(AbstractBuild<?, ?> build,
+            PerformanceSummary summary) throws IOException {
+        final ChangePoints changes = load(build.getProject());
+        final List<ChangePoint> found = new ArrayList<ChangePoint>();
+        if (build.getNumber() <= changes.lastBuild) {
+            return found;
+        }
+        final List<AbstractBuild<?, ?>> missing = new ArrayList<AbstractBuild<?, ?>>();
+        for (final AbstractBuild<?, ?> b : build.getProject().getBuilds()) {
+            if (b.getNumber() <= changes.lastBuild || missing.size() >= MAX_HISTORY) {
+                break;
+            }
+            if (b.getNumber() < build.getNumber() && b.getAction(PerformanceBuildAction.class) != null) {
+                missing.add(b);
+            }
+        }
+        Collections.reverse(missing);
+        for (final AbstractBuild<?, ?> b : missing) {
+            final PerformanceSummary s = PerformanceSummary.load(b);
+            if (s != null) {
+                found.addAll(changes.add(b.getNumber(), s));
+            }
+        }
+        found.addAll(changes.add(build.getNumber(), summary));
+        getFile(build.getProject()).write(changes);
+        return found;
+    }
+
+    private static XmlFile getFile(AbstractProject<?, ?> project) {
+        return new XmlFile(XSTREAM, new File(project.getRootDir(), FILE_NAME));
+    }
+
+    /**
+     * Adds the 90% lines of the reports and URIs of a build.
+     */
+    List<ChangePoint> add(int build, PerformanceSummary summary) {
+        final List<ChangePoint> found = new ArrayList<ChangePoint>();
+        for (final ReportSummary report : summary.getReports()) {
+            final LatencyHistogram histogram = report.getHistogram();
+            if (!histogram.isEmpty()) {
+                add(found, build, report.getReportFileName(), null, histogram.getValueAtPercentile(90));
+            }
+            for (final UriSummary uri : report.getUris()) {
+                final LatencyHistogram h = uri.getHistogram();
+                if (!h.isEmpty()) {
+                    add(found, build, report.getReportFileName(), uri.getUri(), h.getValueAtPercentile(90));
+                }
+            }
+        }
+        lastBuild = Math.max(lastBuild, build);
+        return found;
+    }
+
+    /**
+     * @param uri
+     *            null for the whole report.
+     */
+    void add(List<ChangePoint> found, int build, String reportFileName, String uri, double value) {
+        final String key = uri == null ? reportFileName : reportFileName + '/' + uri;
+        Series s = series.get(key);
+        if (s == null) {
+            s = new Series(reportFileName, uri);
+            series.put(key, s);
+        }
+        final ChangePoint changePoint = s.add(build, value);
+        if (changePoint != null) {
+            found.add(changePoint);
+            changePoints.add(changePoint);
+            if (changePoints.size() > MAX_CHANGE_POINTS) {
+                changePoints.remove(0);
+            }
+        }
+    }
+
+    int getLastBuild() {
+        return lastBuild;
+    }
+
+    /**
+     * Every change point, the most recent first.
+     */
+    public List<ChangePoint> getChangePoints() {
+        final List<ChangePoint> list = new ArrayList<ChangePoint>(changePoints);
+        Collections.reverse(list);
+        return list;
+    }
+
+    /**
+     * Change points of a report keyed by their first offending build, those
+     * of the whole report or those of its URIs, a slower one being kept over a
+     * faster one of the same build.
+     */
+    Map<Integer, ChangePoint> getChangePoints(String reportFileName, boolean uris) {
+        final Map<Integer, ChangePoint> map = new HashMap<Integer, ChangePoint>();
+        for (final ChangePoint c : changePoints) {
+            if (c.getReportFileName().equals(reportFileName) && (c.getUri() != null) == uris) {
+                final ChangePoint previous = map.get(c.getBuild());
+                if (previous == null || !previous.isSlower()) {
+                    map.put(c.getBuild(), c);
+                }
+            }
+        }
+        return map;
+    }
+
+    /**
+     * CUSUM state of the 90% line of a report or of a URI.
+     */
+    static final class Series {
+
+        private final String reportFileName;
+
+        private final String uri;
+
+        private final List<Integer> builds = new ArrayList<Integer>();
+
+        private final List<Double> values = new ArrayList<Double>();
+
+        /**
+         * Number, mean and sum of the squared deviations of the values of the
+         * current segment.
+         */
+        private int count;
+
+        private double mean;
+
+        private double squares;
+
+        private double high;
+
+        private double low;
+
+        private int highStart;
+
+        private int lowStart;
+
+        Series(String reportFileName, String uri) {
+            this.reportFileName = reportFileName;
+            this.uri = uri;
+        }
+
+        /**
+         * @return the change point found with this value, or null.
+         */
+        ChangePoint add(int build, double value) {
+            builds.add(build);
+            values.add(value);
+            if (values.size() > MAX_VALUES) {
+                builds.remove(0);
+                values.remove(0);
+            }
+            if (count >= MIN_SEGMENT) {
+                final double deviation = Math.max(Math.sqrt(squares / (count - 1)),
+                        Math.max(Math.abs(mean) * MIN_DEVIATION, 1));
+                final double z = (value - mean) / deviation;
+                if (high == 0) {
+                    highStart = build;
+                }
+                if (low == 0) {
+                    lowStart = build;
+                }
+                high = Math.max(0, high + z - SLACK);
+                low = Math.max(0, low - z - SLACK);
+                if (high > THRESHOLD || low > THRESHOLD) {
+                    final int start = high > THRESHOLD ? highStart : lowStart;
+                    final double before = mean;
+                    restart(start);
+                    return new ChangePoint(reportFileName, uri, start, build, before, mean);
+                }
+            }
+            accumulate(value);
+            return null;
+        }
+
+        /**
+         * Starts a new segment with the kept values from the given build.
+         */
+        private void restart(int start) {
+            count = 0;
+            mean = 0;
+            squares = 0;
+            high = 0;
+            low = 0;
+            for (int i = 0; i < builds.size(); i++) {
+                if (builds.get(i) >= start) {
+                    accumulate(values.get(i));
+                }
+            }
+        }
+
+        private void accumulate(double value) {
+            count++;
+            final double delta = value - mean;
+            mean += delta / count;
+            squares += delta * (value - mean);
+        }
+    }
+
+    /**
+     * Change of the 90% line of a report or of a URI.
+     */
+    public static class ChangePoint {
+
+        private final String reportFileName;
+
+        private final String uri;
+
+        private final int build;
+
+        private final int detectedBuild;
+
+        private final double before;
+
+        private final double after;
+
+        ChangePoint(String reportFileName, String uri, int build, int detectedBuild,
+                double before, double after) {
+            this.reportFileName = reportFileName;
+            this.uri = uri;
+            this.build = build;
+            this.detectedBuild = detectedBuild;
+            this.before = before;
+            this.after = after;
+        }
+
+        public String getReportFileName() {
+            return reportFileName;
+        }
+
+        /**
+         * Null for the whole report.
+         */
+        public String getUri() {
+            return uri;
+        }
+
+        /**
+         * Number of the first offending build.
+         */
+        public int getBuild() {
+            return build;
+        }
+
+        /**
+         * Number of the build whose values revealed the change.
+         */
+        public int getDetectedBuild() {
+            return detectedBuild;
+        }
+
+        /**
+         * Mean 90% line of the segment before the change, in ms.
+         */
+        public double getBefore() {
+            return before;
+        }
+
+        /**
+         * Mean 90% line of the builds from the change to its detection, in ms.
+         */
+        public double getAfter() {
+            return after;
+        }
+
+        public boolean isSlower() {
+            return after > before;
+        }
+
+        public String getBeforeFormated() {
+            return new DecimalFormat("0").format(before);
+        }
+
+        public String getAfterFormated() {
+            return new DecimalFormat("0").format(after);
+        }
+
+        public String getChangeFormated() {
+            return new DecimalFormat("+0.0;-0.0").format(RegressionGate.increase(before, after)) + "%";
+        }
+    }
+}
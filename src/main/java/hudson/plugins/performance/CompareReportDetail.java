@@ -0,0 +1,185 @@
+package hudson.plugins.performance;
+
+import hudson.model.ModelObject;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.util.ChartUtil;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+/**
+ * Compares the response time distributions of a report, or of one of its
+ * URIs, over a chosen set of builds. Only the summaries saved with those
+ * builds are loaded, the report files are never parsed again, so builds
+ * published before the summaries existed cannot be compared.
+ */
+public class CompareReportDetail implements ModelObject {
+
+    /**
+     * Maximum number of builds compared at once.
+     */
+    static final int MAX_BUILDS = 10;
+
+    private final AbstractProject<?, ?> project;
+
+    private final String filename;
+
+    private final String uri;
+
+    private final Map<AbstractBuild<?, ?>, ReportSummary> summaries = new LinkedHashMap<AbstractBuild<?, ?>, ReportSummary>();
+
+    private final List<String> missingBuilds = new ArrayList<String>();
+
+    /**
+     * @param uri
+     *            {@link UriReport#getStaplerUri()} of the compared URI, or
+     *            null to compare the whole report.
+     * @param builds
+     *            numbers of the compared builds, separated by commas or
+     *            spaces. Null or empty compares the last two builds with a
+     *            summary.
+     */
+    public CompareReportDetail(AbstractProject<?, ?> project, String filename, String uri,
+            String builds) {
+        this.project = project;
+        this.filename = filename;
+        this.uri = uri == null || uri.length() == 0 ? null : uri;
+        if (filename == null) {
+            return;
+        }
+        if (builds == null || builds.trim().length() == 0) {
+            for (AbstractBuild<?, ?> build = project.getLastBuild(); build != null
+                    && summaries.size() < 2; build = build.getPreviousBuild()) {
+                final ReportSummary summary = loadSummary(build);
+                if (summary != null) {
+                    summaries.put(build, summary);
+                }
+            }
+            return;
+        }
+        for (final String number : builds.trim().split("[,;\\s]+")) {
+            if (summaries.size() >= MAX_BUILDS) {
+                break;
+            }
+            final AbstractBuild<?, ?> build = number.matches("\\d+") ? project
+                    .getBuildByNumber(Integer.parseInt(number)) : null;
+            final ReportSummary summary = build == null ? null : loadSummary(build);
+            if (summary == null) {
+                missingBuilds.add(number);
+            } else {
+                summaries.put(build, summary);
+            }
+        }
+    }
+
+    private ReportSummary loadSummary(AbstractBuild<?, ?> build) {
+        if (build.getAction(PerformanceBuildAction.class) == null) {
+            return null;
+        }
+        final PerformanceSummary summary = PerformanceSummary.load(build);
+        return summary == null ? null : summary.getReport(filename);
+    }
+
+    public AbstractProject<?, ?> getProject() {
+        return project;
+    }
+
+    public String getDisplayName() {
+        return Messages.CompareReportDetail_DisplayName();
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public String getUri() {
+        return uri;
+    }
+
+    public List<AbstractBuild<?, ?>> getBuilds() {
+        return new ArrayList<AbstractBuild<?, ?>>(summaries.keySet());
+    }
+
+    /**
+     * Numbers of the compared builds, as accepted by the constructor.
+     */
+    public String getBuildNumbers() {
+        final StringBuilder sb = new StringBuilder();
+        for (final AbstractBuild<?, ?> build : summaries.keySet()) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(build.getNumber());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Requested builds which have no saved summary of the report.
+     */
+    public List<String> getMissingBuilds() {
+        return missingBuilds;
+    }
+
+    /**
+     * URIs of the report in any of the compared builds, keyed by their
+     * {@link UriReport#getStaplerUri()}.
+     */
+    public Map<String, String> getUris() {
+        final Map<String, String> uris = new LinkedHashMap<String, String>();
+        for (final ReportSummary summary : summaries.values()) {
+            for (final UriSummary u : summary.getUris()) {
+                uris.put(u.getStaplerUri(), u.getUri());
+            }
+        }
+        return uris;
+    }
+
+    /**
+     * Response times of the compared report or URI in the given build, null
+     * if the URI is not in that build.
+     */
+    public LatencyHistogram getHistogram(AbstractBuild<?, ?> build) {
+        final ReportSummary summary = summaries.get(build);
+        if (summary == null) {
+            return null;
+        }
+        if (uri == null) {
+            return summary.getHistogram();
+        }
+        final UriSummary uriSummary = summary.getUri(uri);
+        return uriSummary == null ? null : uriSummary.getHistogram();
+    }
+
+    /**
+     * Draws the distributions of the compared builds, or their cumulative
+     * distributions with the <code>cumulative</code> parameter.
+     */
+    public void doDistributionGraph(StaplerRequest request, StaplerResponse response)
+            throws IOException {
+        final List<LatencyHistogram> histograms = new ArrayList<LatencyHistogram>();
+        final List<String> labels = new ArrayList<String>();
+        for (final AbstractBuild<?, ?> build : summaries.keySet()) {
+            final LatencyHistogram histogram = getHistogram(build);
+            if (histogram != null && !histogram.isEmpty()) {
+                histograms.add(histogram);
+                labels.add("#" + build.getNumber());
+            }
+        }
+        if (histograms.isEmpty()) {
+            response.sendError(StaplerResponse.SC_NOT_FOUND);
+            return;
+        }
+        final boolean cumulative = Boolean.parseBoolean(request.getParameter("cumulative"));
+        ChartUtil.generateGraph(request, response,
+                PerformanceProjectAction.createDistributionChart(histograms, labels, cumulative),
+                600, 300);
+    }
+}
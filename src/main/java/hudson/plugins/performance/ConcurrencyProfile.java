@@ -0,0 +1,291 @@
+package hudson.plugins.performance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Throughput and response times of a report by number of active threads,
+ * from the <code>na</code> attribute of the JMeter samples, which shows how
+ * the system under test scales while a test ramps up.
+ *
+ * <p>
+ * The samples are grouped into levels of {@link #getWidth()} threads. To
+ * bound the memory and the size of the saved summary, the width doubles,
+ * merging the levels pairwise, whenever there would be more than the maximum
+ * number of them. The time between two samples is spent at the level of the
+ * later one, so that a level visited again, as the threads stop at the end
+ * of a test, is not credited with the time spent at the other levels.
+ */
+public class ConcurrencyProfile {
+
+    static final int MAX_LEVELS = 100;
+
+    /**
+     * Fraction of the linear gain of throughput below which adding threads
+     * no longer scales.
+     */
+    static final double KNEE_EFFICIENCY = 0.5;
+
+    private int width = 1;
+
+    private transient int maxLevels;
+
+    /**
+     * Levels in order of threads, as saved in the summary of the build.
+     */
+    private List<Level> levels = new ArrayList<Level>();
+
+    /**
+     * Levels keyed by their lowest number of threads while samples are
+     * added.
+     */
+    private transient TreeMap<Integer, Level> open;
+
+    /**
+     * Latest start of the samples added so far.
+     */
+    private transient long lastStart;
+
+    public ConcurrencyProfile() {
+        this(MAX_LEVELS);
+    }
+
+    /**
+     * @param maxLevels
+     *            number of levels beyond which their width doubles.
+     */
+    public ConcurrencyProfile(int maxLevels) {
+        this.maxLevels = Math.max(2, maxLevels);
+    }
+
+    /**
+     * Adds a sample, ignored when it has no time stamp or no number of active
+     * threads.
+     */
+    void add(HttpSample sample) {
+        if (sample.getDate() == null || sample.getActiveThreads() <= 0) {
+            return;
+        }
+        final long start = sample.getDate().getTime();
+        if (open == null) {
+            open = new TreeMap<Integer, Level>();
+            lastStart = start;
+        }
+        // samples come nearly in order, one which started earlier than the
+        // previous one adds no time
+        final long time = Math.max(0, start - lastStart);
+        lastStart = Math.max(lastStart, start);
+        getOpenLevel(sample.getActiveThreads()).add(sample, time);
+        levels = null;
+    }
+
+    private Level getOpenLevel(int activeThreads) {
+        final int users = activeThreads - activeThreads % width;
+        Level level = open.get(users);
+        if (level == null) {
+            if (open.size() >= maxLevels) {
+                coarsen();
+                return getOpenLevel(activeThreads);
+            }
+            level = new Level(users);
+            open.put(users, level);
+        }
+        return level;
+    }
+
+    private void coarsen() {
+        width *= 2;
+        final TreeMap<Integer, Level> merged = new TreeMap<Integer, Level>();
+        for (final Map.Entry<Integer, Level> e : open.entrySet()) {
+            if (e.getValue().count == 0) {
+                continue;
+            }
+            final int users = e.getKey() - e.getKey() % width;
+            final Level level = merged.get(users);
+            if (level == null) {
+                e.getValue().users = users;
+                merged.put(users, e.getValue());
+            } else {
+                level.add(e.getValue());
+            }
+        }
+        open = merged;
+        levels = null;
+    }
+
+    /**
+     * Number of threads covered by each level.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    public List<Level> getLevels() {
+        if (levels == null) {
+            levels = new ArrayList<Level>();
+            if (open != null) {
+                levels.addAll(open.values());
+            }
+            for (final Level l : levels) {
+                l.median = l.histogram.getValueAtPercentile(50);
+                l.line95 = l.histogram.getValueAtPercentile(95);
+                l.line99 = l.histogram.getValueAtPercentile(99);
+            }
+        }
+        return levels;
+    }
+
+    public boolean isEmpty() {
+        return getLevels().isEmpty();
+    }
+
+    /**
+     * Level at which the system under test saturates: the throughput of the
+     * next level grows by less than {@link #KNEE_EFFICIENCY} of what a linear
+     * scaling would give, while its median response time rises. Null when
+     * the test did not reach saturation or has less than three levels.
+     */
+    public Level getKnee() {
+        final List<Level> all = getLevels();
+        if (all.size() < 3) {
+            return null;
+        }
+        for (int i = 0; i + 1 < all.size(); i++) {
+            final Level a = all.get(i);
+            final Level b = all.get(i + 1);
+            final double ideal = a.getThroughput() * getLoad(b) / getLoad(a);
+            final double gain = b.getThroughput() - a.getThroughput();
+            if (gain < KNEE_EFFICIENCY * (ideal - a.getThroughput())
+                    && b.getMedian() > a.getMedian()) {
+                return a;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Number of active threads at the knee, 0 without one.
+     */
+    public int getCapacity() {
+        final Level knee = getKnee();
+        return knee == null ? 0 : Math.max(1, knee.getUsers());
+    }
+
+    /**
+     * Average number of threads of a level.
+     */
+    double getLoad(Level level) {
+        return level.getUsers() + (width - 1) / 2d;
+    }
+
+    /**
+     * Samples run while the number of active threads was within one level.
+     */
+    public static class Level {
+
+        private int users;
+
+        private int count;
+
+        private int errors;
+
+        private long totalDuration;
+
+        private long firstStart = Long.MAX_VALUE;
+
+        private long lastEnd = Long.MIN_VALUE;
+
+        /**
+         * Time in ms spent at the level, 0 in the summaries saved before it
+         * was recorded.
+         */
+        private long time;
+
+        /**
+         * Percentiles computed from the histogram when the profile is saved.
+         */
+        private long median;
+
+        private long line95;
+
+        private long line99;
+
+        private transient LatencyHistogram histogram = new LatencyHistogram();
+
+        Level(int users) {
+            this.users = users;
+        }
+
+        /**
+         * @param time
+         *            time in ms since the previous sample of the profile.
+         */
+        void add(HttpSample sample, long time) {
+            this.time += time;
+            count++;
+            if (!sample.isSuccessful()) {
+                errors++;
+            }
+            totalDuration += sample.getDuration();
+            histogram.record(sample.getDuration());
+            final long start = sample.getDate().getTime();
+            firstStart = Math.min(firstStart, start);
+            lastEnd = Math.max(lastEnd, start + sample.getDuration());
+        }
+
+        void add(Level other) {
+            count += other.count;
+            errors += other.errors;
+            totalDuration += other.totalDuration;
+            time += other.time;
+            histogram.add(other.histogram);
+            firstStart = Math.min(firstStart, other.firstStart);
+            lastEnd = Math.max(lastEnd, other.lastEnd);
+        }
+
+        /**
+         * Lowest number of active threads of the level.
+         */
+        public int getUsers() {
+            return users;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public int getErrors() {
+            return errors;
+        }
+
+        public long getAverage() {
+            return count == 0 ? 0 : totalDuration / count;
+        }
+
+        public long getMedian() {
+            return median;
+        }
+
+        public long get95Line() {
+            return line95;
+        }
+
+        public long get99Line() {
+            return line99;
+        }
+
+        /**
+         * Samples per second over the time spent at the level, or from the
+         * start of its first sample to the end of its last one in the older
+         * summaries, at least a second.
+         */
+        public double getThroughput() {
+            if (count == 0) {
+                return 0;
+            }
+            return count * 1000d / Math.max(1000, time > 0 ? time : lastEnd - firstStart);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package hudson.plugins.performance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Number of samples by bucket of a {@link Timeline} and by band of response
+ * times, which shows the bimodal distributions hidden by the averages, such
+ * as cache hits and misses or garbage collection pauses.
+ *
+ * <p>
+ * Each octave of response times is split into {@link #BANDS_PER_OCTAVE}
+ * bands of equal width. The counts of the bands are saved with each bucket of
+ * the timeline, so that the heatmap is built from the grid alone, whatever
+ * the number of samples.
+ */
+public class Heatmap {
+
+    static final int BANDS_PER_OCTAVE = 4;
+
+    private static final int OCTAVE_BITS = 2;
+
+    private final int intervalSec;
+
+    private final long[] starts;
+
+    private final int minBand;
+
+    private final int maxBand;
+
+    /**
+     * Counts by bucket, then by band from {@link #minBand}.
+     */
+    private final long[][] counts;
+
+    private long maxCount;
+
+    public Heatmap(Timeline timeline) {
+        intervalSec = timeline.getIntervalSec();
+        final List<Timeline.Bucket> buckets = timeline.getBuckets();
+        final List<TreeMap<Integer, Long>> columns = new ArrayList<TreeMap<Integer, Long>>();
+        int lowest = Integer.MAX_VALUE;
+        int highest = Integer.MIN_VALUE;
+        for (final Timeline.Bucket bucket : buckets) {
+            final TreeMap<Integer, Long> column = decode(bucket.getBands());
+            if (!column.isEmpty()) {
+                lowest = Math.min(lowest, column.firstKey());
+                highest = Math.max(highest, column.lastKey());
+            }
+            columns.add(column);
+        }
+        if (lowest > highest) {
+            lowest = 0;
+            highest = -1;
+        }
+        minBand = lowest;
+        maxBand = highest;
+        starts = new long[buckets.size()];
+        counts = new long[buckets.size()][maxBand - minBand + 1];
+        for (int i = 0; i < buckets.size(); i++) {
+            starts[i] = buckets.get(i).getStartTime();
+            for (final Map.Entry<Integer, Long> e : columns.get(i).entrySet()) {
+                counts[i][e.getKey() - minBand] = e.getValue();
+                maxCount = Math.max(maxCount, e.getValue());
+            }
+        }
+    }
+
+    /**
+     * Band of the given response time in ms.
+     */
+    static int bandOf(long value) {
+        final long v = Math.max(0, value) + 1;
+        final int octave = 63 - Long.numberOfLeadingZeros(v);
+        return (octave << OCTAVE_BITS)
+                + (int) (((v - (1L << octave)) << OCTAVE_BITS) >> octave);
+    }
+
+    /**
+     * Smallest response time in ms of the given band.
+     */
+    static long lowerBound(int band) {
+        final int octave = band >> OCTAVE_BITS;
+        final long sub = band & (BANDS_PER_OCTAVE - 1);
+        return (1L << octave) + (((sub << octave) + BANDS_PER_OCTAVE - 1) >> OCTAVE_BITS) - 1;
+    }
+
+    /**
+     * Counts of the values recorded in the histogram by band.
+     */
+    static TreeMap<Integer, Long> bands(LatencyHistogram histogram) {
+        final TreeMap<Integer, Long> bands = new TreeMap<Integer, Long>();
+        for (int i = 0; i < histogram.getBucketCount(); i++) {
+            final long count = histogram.getCountAt(i);
+            if (count > 0) {
+                final Integer band = bandOf(LatencyHistogram.lowerBound(i));
+                final Long previous = bands.get(band);
+                bands.put(band, previous == null ? count : previous + count);
+            }
+        }
+        return bands;
+    }
+
+    /**
+     * Counts of the bands of the values recorded in the histogram, as
+     * <code>band:count</code> pairs separated by commas.
+     */
+    static String encode(LatencyHistogram histogram) {
+        return encode(bands(histogram));
+    }
+
+    /**
+     * The given counts by band, as <code>band:count</code> pairs separated by
+     * commas.
+     */
+    static String encode(Map<Integer, Long> bands) {
+        final StringBuilder sb = new StringBuilder();
+        for (final Map.Entry<Integer, Long> e : bands.entrySet()) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(e.getKey()).append(':').append(e.getValue());
+        }
+        return sb.toString();
+    }
+
+    static TreeMap<Integer, Long> decode(String bands) {
+        final TreeMap<Integer, Long> result = new TreeMap<Integer, Long>();
+        if (bands == null || bands.length() == 0) {
+            return result;
+        }
+        for (final String pair : bands.split(",")) {
+            final int colon = pair.indexOf(':');
+            result.put(Integer.valueOf(pair.substring(0, colon)),
+                    Long.valueOf(pair.substring(colon + 1)));
+        }
+        return result;
+    }
+
+    public int getIntervalSec() {
+        return intervalSec;
+    }
+
+    public int getColumnCount() {
+        return starts.length;
+    }
+
+    public long getStart(int column) {
+        return starts[column];
+    }
+
+    public int getMinBand() {
+        return minBand;
+    }
+
+    public int getMaxBand() {
+        return maxBand;
+    }
+
+    public long getCount(int column, int band) {
+        return counts[column][band - minBand];
+    }
+
+    public long getMaxCount() {
+        return maxCount;
+    }
+
+    public boolean isEmpty() {
+        return maxCount == 0;
+    }
+}
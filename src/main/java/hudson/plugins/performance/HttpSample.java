@@ -21,6 +21,23 @@ public class HttpSample implements Comparable<HttpSample> {
   
   private String httpCode = "";
 
+  // JMeter fields, -1 or 0 and null when the results do not have them
+  private int latency = -1;
+
+  private int connectTime = -1;
+
+  private long bytes;
+
+  private long sentBytes;
+
+  private int activeThreads;
+
+  private int groupThreads;
+
+  private String threadName;
+
+  private String hostname;
+
   // Summarizer fields
   private long summarizerMin;
 
@@ -116,6 +133,80 @@ public class HttpSample implements Comparable<HttpSample> {
     this.summarizerErrors= summarizerErrors;
   }
 
+  /**
+   * Time to the first byte of the response in ms, -1 if unknown.
+   */
+  public int getLatency() {
+    return latency;
+  }
+
+  public void setLatency(int latency) {
+    this.latency = latency;
+  }
+
+  /**
+   * Time to establish the connection in ms, -1 if unknown.
+   */
+  public int getConnectTime() {
+    return connectTime;
+  }
+
+  public void setConnectTime(int connectTime) {
+    this.connectTime = connectTime;
+  }
+
+  public long getBytes() {
+    return bytes;
+  }
+
+  public void setBytes(long bytes) {
+    this.bytes = bytes;
+  }
+
+  public long getSentBytes() {
+    return sentBytes;
+  }
+
+  public void setSentBytes(long sentBytes) {
+    this.sentBytes = sentBytes;
+  }
+
+  /**
+   * Number of threads active in all the thread groups when the sample was
+   * taken, 0 if unknown.
+   */
+  public int getActiveThreads() {
+    return activeThreads;
+  }
+
+  public void setActiveThreads(int activeThreads) {
+    this.activeThreads = activeThreads;
+  }
+
+  public int getGroupThreads() {
+    return groupThreads;
+  }
+
+  public void setGroupThreads(int groupThreads) {
+    this.groupThreads = groupThreads;
+  }
+
+  public String getThreadName() {
+    return threadName;
+  }
+
+  public void setThreadName(String threadName) {
+    this.threadName = threadName;
+  }
+
+  public String getHostname() {
+    return hostname;
+  }
+
+  public void setHostname(String hostname) {
+    this.hostname = hostname;
+  }
+
   public int compareTo(HttpSample o) {
     return (int) (getDuration() - o.getDuration());
   }
@@ -6,6 +6,7 @@ import hudson.model.AbstractBuild;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -37,20 +38,23 @@ public class JMeterAggregateParser extends PerformanceReportParser {
 
     @Override
     public Collection<PerformanceReport> parse(AbstractBuild<?, ?> build,
-            Collection<File> reports, TaskListener listener) {
+            Collection<File> reports, TaskListener listener) throws IOException {
         final List<PerformanceReport> result = new ArrayList<PerformanceReport>();
 
         final PrintStream logger = listener.getLogger();
         final Pattern lineDelimeterPattern = Pattern.compile(",");
+        final SampleFilter filter = new SampleFilter(this);
         for (final File f : reports) {
+            final AggregatePerformanceReport aggregateReport = new AggregatePerformanceReport();
+            aggregateReport.setReportFileName(f.getName());
+            final ParseGuard guard = new ParseGuard(this);
             try {
-                final AggregatePerformanceReport aggregateReport = new AggregatePerformanceReport();
-                aggregateReport.setReportFileName(f.getName());
                 logger.println("Performance: Parsing JMeterAggregate report file " + f.getName());
 
                 final Scanner s = new Scanner(f);
                 String line;
                 while (s.hasNextLine()) {
+                    guard.poll();
                     line = s.nextLine();
 
                     if (!line.startsWith("sampler_label")) {
@@ -60,6 +64,9 @@ public class JMeterAggregateParser extends PerformanceReportParser {
                         scanner.useDelimiter(lineDelimeterPattern);
 
                         final String uri = scanner.next();
+                        if (!isTotal && !filter.acceptLabel(uri)) {
+                            continue;
+                        }
 
                         final int samplesCount = scanner.nextInt();
                         final long averageTime = scanner.nextLong();
@@ -90,10 +97,17 @@ public class JMeterAggregateParser extends PerformanceReportParser {
                         }
                     }
                 }
+                // the scanner stops silently when the thread is interrupted
+                guard.poll();
+                if (s.ioException() != null) {
+                    throw s.ioException();
+                }
 
                 result.add(aggregateReport);
             } catch (final FileNotFoundException e) {
                 logger.println("File not found" + e.getMessage());
+            } catch (final ParseLimitException e) {
+                result.add(truncate(aggregateReport, e, logger));
             }
         }
 
@@ -5,8 +5,12 @@ import hudson.model.TaskListener;
 import hudson.model.AbstractBuild;
 import hudson.util.IOException2;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -23,7 +27,7 @@ import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
 
 /**
- * Parser for JMeter.
+ * Parser for JMeter results, in either the XML or the CSV format.
  * 
  * @author Kohsuke Kawaguchi
  */
@@ -57,70 +61,66 @@ public class JMeterParser extends PerformanceReportParser {
         factory.setNamespaceAware(false);
         final PrintStream logger = listener.getLogger();
         for (final File f : reports) {
+            // taken in any case so that the live action releases it, but the
+            // live report holds every sample, it cannot be trimmed
+            final PerformanceReport live = PerformanceLiveAction.takeCompletedReport(build,
+                    f.getName(), this);
+            if (live != null && !isTrimmed()) {
+                logger.println("Performance: Reusing the samples of " + f.getName()
+                        + " read while the build was running");
+                result.add(live);
+                continue;
+            }
+            final PerformanceReport r = newReport(f.getName());
+            final ParseGuard guard = new ParseGuard(this);
             try {
-                final SAXParser parser = factory.newSAXParser();
-                final PerformanceReport r = new PerformanceReport();
-                r.setReportFileName(f.getName());
                 logger.println("Performance: Parsing JMeter report file " + f.getName());
-                parser.parse(f, new DefaultHandler() {
-                    HttpSample currentSample;
-                    int counter = 0;
-
-                    /**
-                     * Performance XML log format is in
-                     * http://jakarta.apache.org
-                     * /jmeter/usermanual/listeners.html
-                     * 
-                     * There are two different tags which delimit jmeter
-                     * samples: httpSample for http samples sample for non http
-                     * samples
-                     * 
-                     * There are also two different XML formats which we have to
-                     * handle: v2.0 = "label", "timeStamp", "time", "success"
-                     * v2.1 = "lb", "ts", "t", "s"
-                     * 
-                     */
-                    @Override
-                    public void startElement(String uri, String localName, String qName,
-                            Attributes attributes) throws SAXException {
-                        if ("httpSample".equalsIgnoreCase(qName)
-                                || "sample".equalsIgnoreCase(qName)) {
-                            final HttpSample sample = new HttpSample();
-                            sample.setDate(new Date(
-                                    Long.valueOf(attributes.getValue("ts") != null
-                                            ? attributes.getValue("ts")
-                                            : attributes.getValue("timeStamp"))));
-                            sample.setDuration(Long.valueOf(attributes.getValue("t") != null
-                                    ? attributes.getValue("t") : attributes.getValue("time")));
-                            sample.setSuccessful(Boolean.valueOf(attributes.getValue("s") != null
-                                    ? attributes.getValue("s") : attributes.getValue("success")));
-                            sample.setUri(attributes.getValue("lb") != null
-                                    ? attributes.getValue("lb") : attributes.getValue("label"));
-                            sample.setHttpCode(attributes.getValue("rc") != null
-                                    && attributes.getValue("rc").length() <= 3
-                                    ? attributes.getValue("rc") : "0");
-                            if (counter == 0) {
-                                currentSample = sample;
+                SampleFilter filter = new SampleFilter(this);
+                ParseLimitException firstPassLimit = null;
+                if (isTrimmed()) {
+                    final SteadyStateWindow steadyState = new SteadyStateWindow();
+                    try {
+                        read(f, factory, filter, guard, new SampleCallback() {
+                            public void sample(HttpSample sample) throws ParseLimitException {
+                                guard.checkpoint();
+                                steadyState.add(sample.getDate().getTime(),
+                                        sample.getDuration());
                             }
-                            counter++;
+                        });
+                    } catch (final ParseLimitException e) {
+                        if (e.isInterrupted()) {
+                            throw e;
                         }
+                        // the window is found among the samples the second
+                        // pass is able to keep
+                        firstPassLimit = e;
                     }
-
-                    @Override
-                    public void endElement(String uri, String localName, String qName) {
-                        if ("httpSample".equalsIgnoreCase(qName)
-                                || "sample".equalsIgnoreCase(qName)) {
-                            if (counter == 1) {
-                                r.addSample(currentSample);
-                            }
-                            counter--;
-                        }
+                    guard.restart();
+                    if (!steadyState.isEmpty()) {
+                        final long[] window = steadyState.window(getWarmUpSec(),
+                                getCoolDownSec(), isDetectSteadyState());
+                        r.setAnalysisWindow(steadyState.getFirst(), steadyState.getLast(),
+                                window[0], window[1]);
+                        logger.println("Performance: Keeping the samples of " + f.getName()
+                                + " from " + new Date(window[0]) + " to "
+                                + new Date(window[1]));
+                        filter = new SampleFilter(this, window[0], window[1]);
+                    }
+                }
+                read(f, factory, filter, guard, new SampleCallback() {
+                    public void sample(HttpSample sample) throws ParseLimitException {
+                        guard.checkpoint();
+                        r.addSample(sample);
                     }
-
                 });
+                if (firstPassLimit != null) {
+                    throw firstPassLimit;
+                }
                 result.add(r);
             } catch (final ParserConfigurationException e) {
                 throw new IOException2("Failed to create parser ", e);
+            } catch (final ParseLimitException e) {
+                result.add(truncate(r, e, logger));
             } catch (final SAXException e) {
                 logger.println("Performance: Failed to parse " + f + ": "
                         + e.getMessage());
@@ -128,4 +128,106 @@ public class JMeterParser extends PerformanceReportParser {
         }
         return result;
     }
+
+    /**
+     * Whether a first pass over the samples is needed to find the window the
+     * statistics are computed over.
+     */
+    private boolean isTrimmed() {
+        return getWarmUpSec() > 0 || getCoolDownSec() > 0 || isDetectSteadyState();
+    }
+
+    /**
+     * Receives the top level samples of a report file that pass the filter.
+     */
+    private interface SampleCallback {
+        void sample(HttpSample sample) throws ParseLimitException;
+    }
+
+    private static void read(File f, SAXParserFactory factory, final SampleFilter filter,
+            final ParseGuard guard, final SampleCallback callback) throws IOException,
+            SAXException, ParserConfigurationException {
+        if (!isXml(f)) {
+            readCsv(f, filter, guard, callback);
+            return;
+        }
+        final SAXParser parser = factory.newSAXParser();
+        parser.parse(f, new DefaultHandler() {
+            final JtlAttributes.Sax sampleAttributes = new JtlAttributes.Sax();
+            HttpSample currentSample;
+            int counter = 0;
+
+            /**
+             * Performance XML log format is in http://jakarta.apache.org
+             * /jmeter/usermanual/listeners.html
+             * 
+             * There are two different tags which delimit jmeter samples:
+             * httpSample for http samples sample for non http samples
+             * 
+             * Both the v2.0 and v2.1 attribute names are handled by
+             * {@link JtlAttributes.Sax}.
+             */
+            @Override
+            public void startElement(String uri, String localName, String qName,
+                    Attributes attributes) throws SAXException {
+                guard.poll();
+                if ("httpSample".equalsIgnoreCase(qName) || "sample".equalsIgnoreCase(qName)) {
+                    if (counter == 0) {
+                        currentSample = filter.accept(sampleAttributes.reset(attributes))
+                                ? sampleAttributes.toSample() : null;
+                    }
+                    counter++;
+                }
+            }
+
+            @Override
+            public void endElement(String uri, String localName, String qName)
+                    throws SAXException {
+                if ("httpSample".equalsIgnoreCase(qName) || "sample".equalsIgnoreCase(qName)) {
+                    if (counter == 1 && currentSample != null) {
+                        callback.sample(currentSample);
+                    }
+                    counter--;
+                }
+            }
+        });
+    }
+
+    /**
+     * Whether the file uses the XML format rather than the CSV one.
+     */
+    private static boolean isXml(File f) throws IOException {
+        final InputStream in = new FileInputStream(f);
+        try {
+            int c;
+            do {
+                c = in.read();
+            } while (c != -1 && (Character.isWhitespace(c) || c == 0xEF || c == 0xBB
+                    || c == 0xBF));
+            return c == '<' || c == -1;
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void readCsv(File f, SampleFilter filter, ParseGuard guard,
+            SampleCallback callback) throws IOException, ParseLimitException {
+        final BufferedReader in = new BufferedReader(new InputStreamReader(
+                new FileInputStream(f), "UTF-8"));
+        try {
+            final JtlLineReader reader = new JtlLineReader(filter);
+            final List<HttpSample> samples = new ArrayList<HttpSample>();
+            String line;
+            while ((line = in.readLine()) != null) {
+                guard.poll();
+                reader.readLine(line, samples);
+                for (final HttpSample sample : samples) {
+                    callback.sample(sample);
+                }
+                samples.clear();
+            }
+        } finally {
+            in.close();
+        }
+    }
 }
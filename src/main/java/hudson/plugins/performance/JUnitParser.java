@@ -58,10 +58,11 @@ public class JUnitParser extends JMeterParser {
         final PrintStream logger = listener.getLogger();
 
         for (final File f : reports) {
+            final PerformanceReport r = newReport(f.getName());
+            final ParseGuard guard = new ParseGuard(this);
+            final SampleFilter filter = new SampleFilter(this);
             try {
                 final SAXParser parser = factory.newSAXParser();
-                final PerformanceReport r = new PerformanceReport();
-                r.setReportFileName(f.getName());
                 logger.println("Performance: Parsing JUnit report file " + f.getName());
                 parser.parse(f, new DefaultHandler() {
                     private HttpSample currentSample;
@@ -86,10 +87,16 @@ public class JUnitParser extends JMeterParser {
                     @Override
                     public void startElement(String uri, String localName, String qName,
                             Attributes attributes) throws SAXException {
+                        guard.poll();
                         if ("testcase".equalsIgnoreCase(qName)) {
                             if (status != 0) {
                                 r.addSample(currentSample);
+                                status = 0;
                             }
+                            if (!filter.acceptLabel(attributes.getValue("name"))) {
+                                return;
+                            }
+                            guard.checkpoint();
                             status = 1;
                             currentSample = new HttpSample();
                             currentSample.setDate(new Date(0));
@@ -114,6 +121,8 @@ public class JUnitParser extends JMeterParser {
                 result.add(r);
             } catch (final ParserConfigurationException e) {
                 throw new IOException2("Failed to create parser ", e);
+            } catch (final ParseLimitException e) {
+                result.add(truncate(r, e, logger));
             } catch (final SAXException e) {
                 logger.println("Performance: Failed to parse " + f + ": "
                         + e.getMessage());
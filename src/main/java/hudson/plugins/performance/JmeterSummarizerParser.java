@@ -6,6 +6,7 @@ import hudson.model.AbstractBuild;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -43,14 +44,15 @@ public class JmeterSummarizerParser extends PerformanceReportParser {
 
     @Override
     public Collection<PerformanceReport> parse(AbstractBuild<?, ?> build,
-            Collection<File> reports, TaskListener listener) {
+            Collection<File> reports, TaskListener listener) throws IOException {
         final List<PerformanceReport> result = new ArrayList<PerformanceReport>();
 
         final PrintStream logger = listener.getLogger();
+        final SampleFilter filter = new SampleFilter(this);
         for (final File f : reports) {
+            final PerformanceReport r = newReport(f.getName());
+            final ParseGuard guard = new ParseGuard(this);
             try {
-                final PerformanceReport r = new PerformanceReport();
-                r.setReportFileName(f.getName());
                 logger.println("Performance: Parsing JMeterSummarizer report file " + f.getName());
 
                 final Scanner s = new Scanner(f);
@@ -58,18 +60,22 @@ public class JmeterSummarizerParser extends PerformanceReportParser {
                 String key;
                 String line;
                 while (s.hasNextLine()) {
+                    guard.poll();
                     line = s.nextLine().replaceAll("=", " ");
 
                     if (!line.contains("+")) {
                         final Scanner scanner = new Scanner(line);
+                        scanner.findInLine("jmeter.reporters.Summariser:");
+                        key = scanner.next();
+                        if (!filter.acceptLabel(key)) {
+                            continue;
+                        }
+
                         final HttpSample sample = new HttpSample();
 
                         // set Date !!!! stub. not Ffrom log
                         sample.setDate(new Date(Long.valueOf("1296876799179")));
 
-                        scanner.findInLine("jmeter.reporters.Summariser:");
-                        key = scanner.next();
-
                         // set SamplesCount
                         scanner.findInLine(key);
                         sample.setSummarizerSamples(scanner.nextLong());
@@ -93,7 +99,13 @@ public class JmeterSummarizerParser extends PerformanceReportParser {
                         map.put(key, sample);
                     }
                 }
+                // the scanner stops silently when the thread is interrupted
+                guard.poll();
+                if (s.ioException() != null) {
+                    throw s.ioException();
+                }
                 for (final String method : map.keySet()) {
+                    guard.checkpoint();
                     r.addSample(map.get(method));
                 }
 
@@ -101,6 +113,8 @@ public class JmeterSummarizerParser extends PerformanceReportParser {
 
             } catch (final FileNotFoundException e) {
                 logger.println("File not found" + e.getMessage());
+            } catch (final ParseLimitException e) {
+                result.add(truncate(r, e, logger));
             }
         }
 
@@ -0,0 +1,209 @@
+package hudson.plugins.performance;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.xml.sax.Attributes;
+
+/**
+ * The attributes of a single JMeter sample, whichever format the JTL file
+ * uses. Values are looked up by their XML (v2.1) attribute name, e.g.
+ * <code>ts</code>, <code>t</code>, <code>lb</code>.
+ *
+ * <p>
+ * The adapters are reused from one sample to the next, so that reading a
+ * sample does not allocate anything before the {@link HttpSample} itself.
+ */
+abstract class JtlAttributes {
+
+    /**
+     * Number of distinct labels, response codes, thread and host names shared
+     * between the samples.
+     */
+    private static final int NAME_CACHE_SIZE = 4096;
+
+    private final Map<String, String> names = new HashMap<String, String>();
+
+    /**
+     * Returns the value of the attribute, or null if the sample does not have
+     * it.
+     */
+    abstract String get(String name);
+
+    HttpSample toSample() {
+        final HttpSample sample = new HttpSample();
+        sample.setDate(new Date(Long.valueOf(get("ts"))));
+        sample.setDuration(Long.valueOf(get("t")));
+        sample.setSuccessful(Boolean.valueOf(get("s")));
+        sample.setUri(share(get("lb")));
+        final String rc = get("rc");
+        sample.setHttpCode(rc != null && rc.length() <= 3 ? share(rc) : "0");
+        sample.setLatency((int) parseLong(get("lt"), -1));
+        sample.setConnectTime((int) parseLong(get("ct"), -1));
+        sample.setBytes(parseLong(get("by"), 0));
+        sample.setSentBytes(parseLong(get("sby"), 0));
+        sample.setActiveThreads((int) parseLong(get("na"), 0));
+        sample.setGroupThreads((int) parseLong(get("ng"), 0));
+        sample.setThreadName(share(get("tn")));
+        sample.setHostname(share(get("hn")));
+        return sample;
+    }
+
+    /**
+     * Parses an optional attribute, a malformed value does not drop the
+     * sample.
+     */
+    private static long parseLong(String value, long defaultValue) {
+        if (value == null || value.length() == 0) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (final NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Returns the same instance for equal values, so that the samples of a
+     * label, a response code, a thread or a host do not each hold a copy of
+     * it.
+     */
+    private String share(String name) {
+        if (name == null) {
+            return null;
+        }
+        String shared = names.get(name);
+        if (shared == null) {
+            if (names.size() >= NAME_CACHE_SIZE) {
+                names.clear();
+            }
+            names.put(name, name);
+            shared = name;
+        }
+        return shared;
+    }
+
+    /**
+     * SAX attributes of an XML sample. There are two different XML formats
+     * which we have to handle: v2.0 = "label", "timeStamp", "time", "success"
+     * v2.1 = "lb", "ts", "t", "s".
+     */
+    static final class Sax extends JtlAttributes {
+
+        private static final Map<String, String> V20_NAMES = new HashMap<String, String>();
+        static {
+            V20_NAMES.put("ts", "timeStamp");
+            V20_NAMES.put("t", "time");
+            V20_NAMES.put("s", "success");
+            V20_NAMES.put("lb", "label");
+        }
+
+        private Attributes attributes;
+
+        Sax reset(Attributes attributes) {
+            this.attributes = attributes;
+            return this;
+        }
+
+        @Override
+        String get(String name) {
+            final String value = attributes.getValue(name);
+            if (value == null && V20_NAMES.containsKey(name)) {
+                return attributes.getValue(V20_NAMES.get(name));
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Attributes of an XML sample read by {@link JtlLineReader}, already
+     * unescaped.
+     */
+    static final class Xml extends JtlAttributes {
+
+        private final Map<String, String> values = new HashMap<String, String>();
+
+        void clear() {
+            values.clear();
+        }
+
+        void put(String name, String value) {
+            values.put(name, value);
+        }
+
+        @Override
+        String get(String name) {
+            final String value = values.get(name);
+            if (value == null && Sax.V20_NAMES.containsKey(name)) {
+                return values.get(Sax.V20_NAMES.get(name));
+            }
+            return value;
+        }
+    }
+
+    /**
+     * One record of a CSV JTL file, whose columns are named by the header line
+     * JMeter writes by default.
+     */
+    static final class Csv extends JtlAttributes {
+
+        /**
+         * Column names of the CSV format mapped to the XML attribute names.
+         */
+        private static final Map<String, String> XML_NAMES = new HashMap<String, String>();
+        static {
+            XML_NAMES.put("timeStamp", "ts");
+            XML_NAMES.put("elapsed", "t");
+            XML_NAMES.put("label", "lb");
+            XML_NAMES.put("responseCode", "rc");
+            XML_NAMES.put("responseMessage", "rm");
+            XML_NAMES.put("threadName", "tn");
+            XML_NAMES.put("dataType", "dt");
+            XML_NAMES.put("success", "s");
+            XML_NAMES.put("bytes", "by");
+            XML_NAMES.put("sentBytes", "sby");
+            XML_NAMES.put("grpThreads", "ng");
+            XML_NAMES.put("allThreads", "na");
+            XML_NAMES.put("Latency", "lt");
+            XML_NAMES.put("IdleTime", "it");
+            XML_NAMES.put("Connect", "ct");
+            XML_NAMES.put("Hostname", "hn");
+        }
+
+        /**
+         * Columns written by JMeter when the header line is disabled.
+         */
+        static final String[] DEFAULT_HEADER = { "timeStamp", "elapsed", "label",
+                "responseCode", "responseMessage", "threadName", "dataType",
+                "success", "bytes", "grpThreads", "allThreads", "Latency" };
+
+        private final Map<String, Integer> columns = new HashMap<String, Integer>();
+
+        private String[] values;
+
+        Csv(String[] header) {
+            for (int i = 0; i < header.length; i++) {
+                final String column = header[i].trim();
+                final String name = XML_NAMES.get(column);
+                columns.put(name != null ? name : column, i);
+            }
+        }
+
+        boolean hasColumn(String name) {
+            return columns.containsKey(name);
+        }
+
+        Csv reset(String[] values) {
+            this.values = values;
+            return this;
+        }
+
+        @Override
+        String get(String name) {
+            final Integer column = columns.get(name);
+            return column != null && column < values.length ? values[column] : null;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package hudson.plugins.performance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the samples of a JTL file line by line, which allows following a file
+ * while JMeter is still writing it. Both the XML and the CSV formats are
+ * understood; the format is detected on the first non blank line.
+ *
+ * <p>
+ * For the XML format only the top level samples are returned, as
+ * {@link JMeterParser} does: the sub samples of a transaction are skipped. A
+ * sample tag may span several lines. Records that cannot be read, such as a
+ * CSV record with a formatted time stamp, are skipped, as are the samples
+ * rejected by the {@link SampleFilter}.
+ */
+class JtlLineReader {
+
+    private static final Pattern SAMPLE_TAG = Pattern.compile(
+            "<(/?)(httpSample|sample)\\b([^>]*)>", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern ATTRIBUTE = Pattern.compile(
+            "([\\w:.-]+)\\s*=\\s*(?:\"([^\"]*)\"|'([^']*)')");
+
+    private static final Pattern SAMPLE_TAG_START = Pattern.compile(
+            "<(httpSample|sample)\\b", Pattern.CASE_INSENSITIVE);
+
+    private final SampleFilter filter;
+
+    private Boolean xml;
+
+    private JtlAttributes.Csv csv;
+
+    private final JtlAttributes.Xml attributes = new JtlAttributes.Xml();
+
+    /**
+     * Start of a sample tag whose end is on a following line.
+     */
+    private final StringBuilder pending = new StringBuilder();
+
+    private int depth;
+
+    JtlLineReader(SampleFilter filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * Adds the top level samples completed by this line to the list.
+     */
+    void readLine(String line, List<HttpSample> samples) {
+        if (xml == null) {
+            line = stripBom(line);
+            final String trimmed = line.trim();
+            if (trimmed.length() == 0) {
+                return;
+            }
+            xml = trimmed.startsWith("<");
+            if (!xml) {
+                final String[] fields = splitCsv(trimmed);
+                if (isNumber(fields[0])) {
+                    csv = new JtlAttributes.Csv(JtlAttributes.Csv.DEFAULT_HEADER);
+                } else {
+                    csv = new JtlAttributes.Csv(fields);
+                    return;
+                }
+            }
+        }
+        if (xml) {
+            readXml(line, samples);
+        } else {
+            readCsv(line, samples);
+        }
+    }
+
+    private void readXml(String line, List<HttpSample> samples) {
+        final String text;
+        if (pending.length() > 0) {
+            text = pending.append(' ').append(line).toString();
+            pending.setLength(0);
+        } else {
+            text = line;
+        }
+        final Matcher tag = SAMPLE_TAG.matcher(text);
+        int end = 0;
+        while (tag.find()) {
+            end = tag.end();
+            if (tag.group(1).length() > 0) {
+                depth = Math.max(0, depth - 1);
+                continue;
+            }
+            final String body = tag.group(3);
+            if (depth == 0) {
+                attributes.clear();
+                final Matcher attribute = ATTRIBUTE.matcher(body);
+                while (attribute.find()) {
+                    attributes.put(attribute.group(1), unescape(attribute.group(2) != null
+                            ? attribute.group(2) : attribute.group(3)));
+                }
+                add(attributes, samples);
+            }
+            if (!body.endsWith("/")) {
+                depth++;
+            }
+        }
+        final Matcher start = SAMPLE_TAG_START.matcher(text);
+        if (start.find(end)) {
+            pending.append(text.substring(start.start()));
+        }
+    }
+
+    private void readCsv(String line, List<HttpSample> samples) {
+        if (line.trim().length() == 0) {
+            return;
+        }
+        add(csv.reset(splitCsv(line)), samples);
+    }
+
+    private void add(JtlAttributes attributes, List<HttpSample> samples) {
+        if (attributes.get("lb") == null || !filter.accept(attributes)) {
+            return;
+        }
+        try {
+            samples.add(attributes.toSample());
+        } catch (final NumberFormatException e) {
+            // not a sample we can read, e.g. a formatted time stamp
+        }
+    }
+
+    /**
+     * Splits a CSV record, honouring double quoted fields.
+     */
+    static String[] splitCsv(String line) {
+        final List<String> fields = new ArrayList<String>();
+        final StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            final char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields.toArray(new String[fields.size()]);
+    }
+
+    static String unescape(String value) {
+        if (value.indexOf('&') < 0) {
+            return value;
+        }
+        final StringBuilder result = new StringBuilder(value.length());
+        int i = 0;
+        while (i < value.length()) {
+            final char c = value.charAt(i);
+            final int semicolon = c == '&' ? value.indexOf(';', i) : -1;
+            if (semicolon < 0) {
+                result.append(c);
+                i++;
+                continue;
+            }
+            final String entity = value.substring(i + 1, semicolon);
+            if ("amp".equals(entity)) {
+                result.append('&');
+            } else if ("lt".equals(entity)) {
+                result.append('<');
+            } else if ("gt".equals(entity)) {
+                result.append('>');
+            } else if ("quot".equals(entity)) {
+                result.append('"');
+            } else if ("apos".equals(entity)) {
+                result.append('\'');
+            } else if (entity.startsWith("#") && isCharReference(entity)) {
+                result.append((char) (entity.startsWith("#x") || entity.startsWith("#X")
+                        ? Integer.parseInt(entity.substring(2), 16)
+                        : Integer.parseInt(entity.substring(1))));
+            } else {
+                result.append(value, i, semicolon + 1);
+            }
+            i = semicolon + 1;
+        }
+        return result.toString();
+    }
+
+    private static boolean isCharReference(String entity) {
+        return entity.matches("#[0-9]{1,5}|#[xX][0-9a-fA-F]{1,4}");
+    }
+
+    private static String stripBom(String line) {
+        return line.length() > 0 && line.charAt(0) == '\uFEFF' ? line.substring(1) : line;
+    }
+
+    private static boolean isNumber(String field) {
+        final String trimmed = field.trim();
+        if (trimmed.length() == 0) {
+            return false;
+        }
+        for (int i = 0; i < trimmed.length(); i++) {
+            if (!Character.isDigit(trimmed.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,69 @@
+package hudson.plugins.performance;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Rewrites sample labels with the rules configured on the
+ * {@link PerformanceReportParser}, so that labels which only differ by an id,
+ * such as <code>/user/12345/orders</code>, fall into the same
+ * {@link UriReport}.
+ *
+ * <p>
+ * A rule is a line of the form <code>regex =&gt; replacement</code>, such as
+ * <code>/user/\d+/ =&gt; /user/{id}/</code>, where the replacement is taken
+ * literally. The rules are applied in order, each one to the result of the
+ * previous. Empty lines and lines starting with <code>#</code> are ignored.
+ */
+class LabelNormalizer {
+
+    /**
+     * Number of rewritten labels remembered, so that the rules only run once
+     * per distinct label in the usual case.
+     */
+    private static final int CACHE_SIZE = 4096;
+
+    private final List<Pattern> patterns = new ArrayList<Pattern>();
+
+    private final List<String> replacements = new ArrayList<String>();
+
+    private final Map<String, String> cache = new HashMap<String, String>();
+
+    /**
+     * @throws IllegalArgumentException
+     *             if a rule is not valid.
+     */
+    LabelNormalizer(String rules) {
+        final RuleLines lines = new RuleLines(rules, "a rule", "replacement");
+        for (int i = 0; i < lines.size(); i++) {
+            patterns.add(lines.getPattern(i));
+            replacements.add(Matcher.quoteReplacement(lines.getValue(i)));
+        }
+    }
+
+    boolean isEmpty() {
+        return patterns.isEmpty();
+    }
+
+    String normalize(String label) {
+        if (patterns.isEmpty()) {
+            return label;
+        }
+        String result = cache.get(label);
+        if (result == null) {
+            result = label;
+            for (int i = 0; i < patterns.size(); i++) {
+                result = patterns.get(i).matcher(result).replaceAll(replacements.get(i));
+            }
+            if (cache.size() >= CACHE_SIZE) {
+                cache.clear();
+            }
+            cache.put(label, result);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,329 @@
+package hudson.plugins.performance;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Mergeable histogram of response times in ms, in the spirit of HdrHistogram.
+ * Values below <code>2 * SUB_BUCKETS</code> are recorded exactly; larger ones
+ * go into buckets whose width doubles every {@link #SUB_BUCKETS} buckets, so
+ * the relative error of any value read back is below
+ * <code>1 / SUB_BUCKETS</code>. The bucket array only grows up to the
+ * largest value recorded.
+ */
+public class LatencyHistogram implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int SUB_BUCKET_BITS = 5;
+
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Ratio of the standard deviation to the median absolute deviation of a
+     * normal distribution.
+     */
+    static final double MAD_TO_DEVIATION = 1.4826;
+
+    private long[] counts = new long[0];
+
+    private long totalCount;
+
+    private long min = Long.MAX_VALUE;
+
+    private long max = Long.MIN_VALUE;
+
+    /**
+     * Index of the bucket holding the given value.
+     */
+    static int indexOf(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) Math.max(0, value);
+        }
+        final int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >> shift) - SUB_BUCKETS);
+    }
+
+    /**
+     * Smallest value that falls into the bucket with the given index.
+     */
+    static long lowerBound(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        final int shift = index / SUB_BUCKETS - 1;
+        return ((long) (index % SUB_BUCKETS + SUB_BUCKETS)) << shift;
+    }
+
+    /**
+     * Largest value that falls into the bucket with the given index.
+     */
+    static long upperBound(int index) {
+        return lowerBound(index + 1) - 1;
+    }
+
+    public void record(long value) {
+        record(value, 1);
+    }
+
+    public void record(long value, long count) {
+        if (count <= 0) {
+            return;
+        }
+        final int index = indexOf(value);
+        ensureCapacity(index + 1);
+        counts[index] += count;
+        totalCount += count;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Records a value and corrects for the coordinated omission, like the
+     * <code>recordValueWithExpectedInterval</code> of HdrHistogram: a
+     * response time longer than the interval expected between two requests
+     * of the same thread delayed the requests which should have been sent
+     * meanwhile, so their response times are recorded too, decreasing by the
+     * interval down to the interval.
+     *
+     * @param expectedInterval
+     *            expected interval in ms between two requests, 0 to record the
+     *            value alone.
+     */
+    public void recordWithExpectedInterval(long value, long expectedInterval) {
+        record(value);
+        if (expectedInterval <= 0) {
+            return;
+        }
+        for (long missing = value - expectedInterval; missing >= expectedInterval; missing -= expectedInterval) {
+            record(missing);
+        }
+    }
+
+    /**
+     * Adds all the values recorded in the other histogram to this one.
+     */
+    public void add(LatencyHistogram other) {
+        if (other.totalCount == 0) {
+            return;
+        }
+        ensureCapacity(other.counts.length);
+        for (int i = 0; i < other.counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    private void ensureCapacity(int length) {
+        if (counts.length < length) {
+            final long[] grown = new long[Math.max(length, counts.length + SUB_BUCKETS)];
+            System.arraycopy(counts, 0, grown, 0, counts.length);
+            counts = grown;
+        }
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public boolean isEmpty() {
+        return totalCount == 0;
+    }
+
+    public long getMin() {
+        return totalCount == 0 ? 0 : min;
+    }
+
+    public long getMax() {
+        return totalCount == 0 ? 0 : max;
+    }
+
+    /**
+     * Returns the value below which the given percentage of the recorded
+     * values fall, using the same rank as the sample based percentiles of
+     * {@link UriReport}. The value is the upper bound of its bucket, capped by
+     * the largest value recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        final long rank = Math.min(totalCount - 1,
+                (long) (totalCount * (percentile / 100d)));
+        long cumulated = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulated += counts[i];
+            if (cumulated > rank) {
+                return Math.max(min, Math.min(max, upperBound(i)));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Value standing for the bucket with the given index: the value itself
+     * for the exact buckets, the middle of the bucket otherwise, within the
+     * smallest and largest values recorded.
+     */
+    private double valueAt(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        final double middle = (lowerBound(index) + upperBound(index)) / 2d;
+        return Math.max(min, Math.min(max, middle));
+    }
+
+    /**
+     * Mean of the values without the given percentage of the smallest ones
+     * and the same percentage of the largest ones.
+     */
+    public double getTrimmedMean(double trimPercent) {
+        final long cut = (long) (totalCount * Math.min(trimPercent, 49.9) / 100);
+        final long kept = totalCount - 2 * cut;
+        if (kept <= 0) {
+            return 0;
+        }
+        long skipped = 0;
+        long taken = 0;
+        double sum = 0;
+        for (int i = 0; i < counts.length && taken < kept; i++) {
+            long count = counts[i];
+            if (skipped < cut) {
+                final long skip = Math.min(count, cut - skipped);
+                skipped += skip;
+                count -= skip;
+            }
+            count = Math.min(count, kept - taken);
+            taken += count;
+            sum += count * valueAt(i);
+        }
+        return sum / kept;
+    }
+
+    /**
+     * Median of the distances of the values to their median.
+     */
+    public double getMedianAbsoluteDeviation() {
+        if (totalCount == 0) {
+            return 0;
+        }
+        final long median = getValueAtPercentile(50);
+        final List<double[]> deviations = new ArrayList<double[]>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                deviations.add(new double[] { Math.abs(valueAt(i) - median), counts[i] });
+            }
+        }
+        Collections.sort(deviations, new Comparator<double[]>() {
+            public int compare(double[] a, double[] b) {
+                return Double.compare(a[0], b[0]);
+            }
+        });
+        final long rank = Math.min(totalCount - 1, totalCount / 2);
+        long cumulated = 0;
+        for (final double[] d : deviations) {
+            cumulated += (long) d[1];
+            if (cumulated > rank) {
+                return d[0];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Number of values whose modified z-score, their distance to the median
+     * in median absolute deviations scaled to standard deviations, is above
+     * the given threshold, such as 3.5. The deviation is taken as at least
+     * 1 ms, so that a mostly constant response time does not turn every
+     * other value into an outlier.
+     */
+    public long countOutliers(double threshold) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        final long median = getValueAtPercentile(50);
+        final double limit = threshold * MAD_TO_DEVIATION * Math.max(1, getMedianAbsoluteDeviation());
+        long outliers = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0 && Math.abs(valueAt(i) - median) > limit) {
+                outliers += counts[i];
+            }
+        }
+        return outliers;
+    }
+
+    /**
+     * Number of buckets, some of which may be empty. Buckets are indexed from
+     * 0 to <code>getBucketCount() - 1</code> in increasing value order.
+     */
+    public int getBucketCount() {
+        return counts.length;
+    }
+
+    public long getCountAt(int index) {
+        return index < counts.length ? counts[index] : 0;
+    }
+
+    /**
+     * Non empty buckets as <code>index:count</code> pairs separated by commas,
+     * the compact form in which histograms are saved.
+     */
+    public String encode() {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                if (sb.length() > 0) {
+                    sb.append(',');
+                }
+                sb.append(i).append(':').append(counts[i]);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Reads a histogram written by {@link #encode()}. The smallest and largest
+     * values are only known to the precision of their buckets.
+     */
+    public static LatencyHistogram decode(String encoded) {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        if (encoded == null || encoded.length() == 0) {
+            return histogram;
+        }
+        for (final String pair : encoded.split(",")) {
+            final int colon = pair.indexOf(':');
+            final int index = Integer.parseInt(pair.substring(0, colon));
+            final long count = Long.parseLong(pair.substring(colon + 1));
+            histogram.ensureCapacity(index + 1);
+            histogram.counts[index] += count;
+            histogram.totalCount += count;
+            histogram.min = Math.min(histogram.min, lowerBound(index));
+            histogram.max = Math.max(histogram.max, upperBound(index));
+        }
+        return histogram;
+    }
+
+    /**
+     * Reads a histogram written by {@link #encode()} whose smallest and
+     * largest values were kept aside, so that they stay exact.
+     */
+    static LatencyHistogram decode(String encoded, long min, long max) {
+        final LatencyHistogram histogram = decode(encoded);
+        if (histogram.totalCount > 0) {
+            histogram.min = min;
+            histogram.max = max;
+        }
+        return histogram;
+    }
+
+    public LatencyHistogram copy() {
+        final LatencyHistogram copy = new LatencyHistogram();
+        copy.add(this);
+        return copy;
+    }
+}
@@ -0,0 +1,309 @@
+package hudson.plugins.performance;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+
+/**
+ * Samples of one JTL file accumulated while the load test is still writing it.
+ *
+ * <p>
+ * Keeps the statistics shown on the live page over a sliding window of the
+ * last {@link #WINDOW_SECONDS} seconds of samples, and a history of those
+ * statistics taken at every poll. All the samples also go into a
+ * {@link PerformanceReport}, within the limits of the parser, so that the
+ * publisher can reuse it instead of parsing the file again.
+ */
+public class LiveReport {
+
+    /**
+     * Width of the sliding window, in seconds of sample time stamps.
+     */
+    static final int WINDOW_SECONDS = 60;
+
+    /**
+     * Maximum number of history points kept, the oldest are dropped first.
+     */
+    private static final int MAX_HISTORY = 1000;
+
+    private final String name;
+
+    private final PerformanceReportParser parser;
+
+    private final PerformanceReport report;
+
+    private final ParseGuard guard;
+
+    private final JtlLineReader reader;
+
+    private final List<HttpSample> lineSamples = new ArrayList<HttpSample>();
+
+    private final LinkedList<Second> window = new LinkedList<Second>();
+
+    private final LinkedList<Point> history = new LinkedList<Point>();
+
+    private long offset;
+
+    private boolean skippingLine;
+
+    private long samples;
+
+    private long errors;
+
+    private long firstTimestamp = Long.MAX_VALUE;
+
+    private long lastTimestamp = Long.MIN_VALUE;
+
+    private boolean completed;
+
+    LiveReport(String name, PerformanceReportParser parser) {
+        this(name, name, parser);
+    }
+
+    /**
+     * @param name
+     *            path of the file in the workspace.
+     * @param fileName
+     *            name of the report the file is copied to by the publisher.
+     */
+    LiveReport(String name, String fileName, PerformanceReportParser parser) {
+        this.name = name;
+        this.parser = parser;
+        report = parser.newReport(fileName);
+        guard = new ParseGuard(parser, true);
+        reader = new JtlLineReader(new SampleFilter(parser));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * The parser whose settings filter and group the samples of the report.
+     */
+    PerformanceReportParser getParser() {
+        return parser;
+    }
+
+    /**
+     * Byte offset in the file up to which the samples have been read.
+     */
+    synchronized long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Whether the last chunk ended within a line too long to be read, whose
+     * rest has to be skipped.
+     */
+    synchronized boolean isSkippingLine() {
+        return skippingLine;
+    }
+
+    synchronized void consume(String text, long nextOffset) {
+        consume(text, nextOffset, false);
+    }
+
+    /**
+     * Reads the lines of the next chunk of the file, ended by LF or CRLF.
+     */
+    synchronized void consume(String text, long nextOffset, boolean skippingLine) {
+        int start = 0;
+        while (start < text.length()) {
+            int end = text.indexOf('\n', start);
+            if (end < 0) {
+                end = text.length();
+            }
+            final int lineEnd = end > start && text.charAt(end - 1) == '\r' ? end - 1 : end;
+            reader.readLine(text.substring(start, lineEnd), lineSamples);
+            for (final HttpSample sample : lineSamples) {
+                add(sample);
+            }
+            lineSamples.clear();
+            start = end + 1;
+        }
+        offset = nextOffset;
+        this.skippingLine = skippingLine;
+    }
+
+    private void add(HttpSample sample) {
+        samples++;
+        if (!sample.isSuccessful()) {
+            errors++;
+        }
+        if (!report.isTruncated()) {
+            try {
+                guard.checkpoint();
+                report.addSample(sample);
+            } catch (final ParseLimitException e) {
+                report.setTruncationReason(e.getMessage());
+            }
+        }
+
+        final long timestamp = sample.getDate().getTime();
+        firstTimestamp = Math.min(firstTimestamp, timestamp);
+        lastTimestamp = Math.max(lastTimestamp, timestamp);
+        windowSecond(timestamp / 1000).add(sample);
+        while (window.getFirst().second <= lastTimestamp / 1000 - WINDOW_SECONDS) {
+            window.removeFirst();
+        }
+    }
+
+    /**
+     * Finds or inserts the window bucket of the given second. Samples come
+     * nearly in time stamp order, so the search starts from the end.
+     */
+    private Second windowSecond(long second) {
+        final ListIterator<Second> i = window.listIterator(window.size());
+        while (i.hasPrevious()) {
+            final Second s = i.previous();
+            if (s.second == second) {
+                return s;
+            }
+            if (s.second < second) {
+                i.next();
+                break;
+            }
+        }
+        final Second s = new Second(second);
+        i.add(s);
+        return s;
+    }
+
+    /**
+     * Appends the current statistics to the history.
+     */
+    synchronized void recordPoint(int sequence) {
+        final Point point = new Point(sequence, System.currentTimeMillis(), samples,
+                getThroughput(), getErrorPercent(), getPercentile(50), getPercentile(90),
+                getPercentile(99));
+        history.add(point);
+        if (history.size() > MAX_HISTORY) {
+            history.removeFirst();
+        }
+    }
+
+    synchronized void complete() {
+        completed = true;
+    }
+
+    public synchronized boolean isCompleted() {
+        return completed;
+    }
+
+    /**
+     * The report accumulated so far. It must not be used before the file is
+     * completed, as the tailing thread keeps adding samples to it.
+     */
+    PerformanceReport getReport() {
+        return report;
+    }
+
+    public synchronized long getSamples() {
+        return samples;
+    }
+
+    public synchronized long getErrors() {
+        return errors;
+    }
+
+    /**
+     * Requests per second over the sliding window.
+     */
+    public synchronized double getThroughput() {
+        if (window.isEmpty()) {
+            return 0;
+        }
+        long count = 0;
+        for (final Second s : window) {
+            count += s.count;
+        }
+        final long span = Math.min(WINDOW_SECONDS,
+                lastTimestamp / 1000 - Math.max(firstTimestamp / 1000,
+                        window.getFirst().second) + 1);
+        return (double) count / span;
+    }
+
+    /**
+     * Percentage of errors over the sliding window.
+     */
+    public synchronized double getErrorPercent() {
+        long count = 0;
+        long failed = 0;
+        for (final Second s : window) {
+            count += s.count;
+            failed += s.errors;
+        }
+        return count == 0 ? 0 : failed * 100d / count;
+    }
+
+    /**
+     * Response time percentile in ms over the sliding window.
+     */
+    public synchronized long getPercentile(double percentile) {
+        final LatencyHistogram merged = new LatencyHistogram();
+        for (final Second s : window) {
+            merged.add(s.histogram);
+        }
+        return merged.getValueAtPercentile(percentile);
+    }
+
+    /**
+     * History points recorded after the given sequence number.
+     */
+    public synchronized List<Point> getHistorySince(int sequence) {
+        final List<Point> points = new ArrayList<Point>();
+        for (final Point p : history) {
+            if (p.sequence > sequence) {
+                points.add(p);
+            }
+        }
+        return points;
+    }
+
+    private static final class Second {
+        final long second;
+        int count;
+        int errors;
+        final LatencyHistogram histogram = new LatencyHistogram();
+
+        Second(long second) {
+            this.second = second;
+        }
+
+        void add(HttpSample sample) {
+            count++;
+            if (!sample.isSuccessful()) {
+                errors++;
+            }
+            histogram.record(sample.getDuration());
+        }
+    }
+
+    /**
+     * Statistics of the sliding window at the time of a poll.
+     */
+    public static final class Point {
+        public final int sequence;
+        public final long time;
+        public final long samples;
+        public final double throughput;
+        public final double errorPercent;
+        public final long median;
+        public final long line90;
+        public final long line99;
+
+        Point(int sequence, long time, long samples, double throughput,
+                double errorPercent, long median, long line90, long line99) {
+            this.sequence = sequence;
+            this.time = time;
+            this.samples = samples;
+            this.throughput = throughput;
+            this.errorPercent = errorPercent;
+            this.median = median;
+            this.line90 = line90;
+            this.line99 = line99;
+        }
+    }
+}
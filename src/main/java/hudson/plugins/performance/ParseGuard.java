@@ -0,0 +1,117 @@
+package hudson.plugins.performance;
+
+/**
+ * Enforces the limits configured on a {@link PerformanceReportParser} while a
+ * single report file is parsed: a wall-clock timeout, a maximum number of
+ * samples, an estimated memory budget and the interruption of the parsing
+ * thread when the build is aborted.
+ */
+class ParseGuard {
+
+    /**
+     * Rough heap footprint of one parsed sample, including its share of the
+     * {@link UriReport} bookkeeping: about 120 bytes for the
+     * {@link HttpSample} and its JMeter fields, 24 for its date, and the
+     * slot in the sample list. Its strings are shared between the samples by
+     * {@link JtlAttributes}, the rest covers their cache and the labels
+     * which are not. Used to turn the memory budget into a number of
+     * samples.
+     */
+    static final long ESTIMATED_SAMPLE_BYTES = 256;
+
+    /**
+     * Rough heap footprint of one parsed sample when only a bounded number
+     * of samples is kept per URI: the sample itself is soon dropped by the
+     * reservoir, what stays is its share of the strings cached by
+     * {@link JtlAttributes}, of the histograms and of the {@link Timeline}
+     * and {@link ConcurrencyProfile} buckets.
+     */
+    static final long ESTIMATED_RESERVOIR_SAMPLE_BYTES = 32;
+
+    private final long timeoutMillis;
+
+    private final long deadline;
+
+    private final boolean live;
+
+    private final long maxSamples;
+
+    private final String maxSamplesReason;
+
+    private long samples;
+
+    ParseGuard(PerformanceReportParser parser) {
+        this(parser, false);
+    }
+
+    /**
+     * @param live
+     *            whether the report is accumulated while the file is still
+     *            being written, in which case only the sample limits apply:
+     *            the timeout and thread interruption make no sense there.
+     */
+    ParseGuard(PerformanceReportParser parser, boolean live) {
+        this.live = live;
+        timeoutMillis = live ? 0 : parser.getParseTimeoutSec() * 1000L;
+        deadline = timeoutMillis > 0 ? System.currentTimeMillis() + timeoutMillis
+                : Long.MAX_VALUE;
+
+        long limit = parser.getMaxSamples() > 0 ? parser.getMaxSamples() : Long.MAX_VALUE;
+        String reason = "the limit of " + limit + " samples was reached";
+        if (parser.getMaxMemoryMb() > 0) {
+            final long budget = parser.getMaxMemoryMb() * 1024L * 1024L
+                    / (parser.getSamplesPerUri() > 0 ? ESTIMATED_RESERVOIR_SAMPLE_BYTES
+                            : ESTIMATED_SAMPLE_BYTES);
+            if (budget < limit) {
+                limit = budget;
+                reason = "the memory budget of " + parser.getMaxMemoryMb()
+                        + " MB was reached";
+            }
+        }
+        maxSamples = limit;
+        maxSamplesReason = reason;
+    }
+
+    /**
+     * Must be called before each sample is added to the report.
+     *
+     * @throws ParseLimitException
+     *             if the sample must not be added and parsing has to stop.
+     */
+    void checkpoint() throws ParseLimitException {
+        poll();
+        if (samples >= maxSamples) {
+            throw new ParseLimitException(maxSamplesReason, false);
+        }
+        samples++;
+    }
+
+    /**
+     * Starts another pass over the same file: the samples are counted again
+     * from zero, but the deadline still runs from the start of the first pass.
+     */
+    void restart() {
+        samples = 0;
+    }
+
+    /**
+     * Must be called for each line or element read, whether it makes a
+     * sample or not, so that the timeout and the abort of the build also stop
+     * a file with few samples or a slow stream.
+     *
+     * @throws ParseLimitException
+     *             if parsing has to stop.
+     */
+    void poll() throws ParseLimitException {
+        if (live) {
+            return;
+        }
+        if (Thread.currentThread().isInterrupted()) {
+            throw new ParseLimitException("the build was aborted", true);
+        }
+        if (System.currentTimeMillis() > deadline) {
+            throw new ParseLimitException("the parse timeout of "
+                    + timeoutMillis / 1000 + " s was exceeded", false);
+        }
+    }
+}
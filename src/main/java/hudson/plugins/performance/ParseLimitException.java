@@ -0,0 +1,28 @@
+package hudson.plugins.performance;
+
+import org.xml.sax.SAXException;
+
+/**
+ * Thrown from within a parse loop when one of the limits enforced by
+ * {@link ParseGuard} is hit. Extends {@link SAXException} so that it can be
+ * raised from SAX handlers and stop the underlying parser immediately.
+ */
+class ParseLimitException extends SAXException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final boolean interrupted;
+
+    ParseLimitException(String reason, boolean interrupted) {
+        super(reason);
+        this.interrupted = interrupted;
+    }
+
+    /**
+     * Whether parsing stopped because the thread was interrupted, i.e. the
+     * build was aborted, rather than because a limit was reached.
+     */
+    boolean isInterrupted() {
+        return interrupted;
+    }
+}
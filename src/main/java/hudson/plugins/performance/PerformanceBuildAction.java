@@ -7,6 +7,7 @@ import hudson.util.StreamTaskListener;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -26,6 +27,8 @@ public class PerformanceBuildAction implements Action, StaplerProxy {
 
     private transient WeakReference<PerformanceReportMap> performanceReportMap;
 
+    private transient WeakReference<PerformanceSummary> summary;
+
     private static final Logger logger = Logger.getLogger(PerformanceBuildAction.class.getName());
 
     public PerformanceBuildAction(AbstractBuild<?, ?> pBuild, PrintStream logger,
@@ -35,12 +38,20 @@ public class PerformanceBuildAction implements Action, StaplerProxy {
         this.parsers = parsers;
     }
 
-    public PerformanceReportParser getParserByDisplayName(String displayName) {
+    /**
+     * The parser whose reports were copied to the given directory, see
+     * {@link PerformanceReportMap#getReportDirectoryNames(List)}.
+     */
+    public PerformanceReportParser getParserByDirectoryName(String directoryName) {
         if (parsers != null) {
+            final List<String> displayNames = new ArrayList<String>();
             for (final PerformanceReportParser parser : parsers) {
-                if (parser.getDescriptor().getDisplayName().equals(displayName)) {
-                    return parser;
-                }
+                displayNames.add(parser.getDescriptor().getDisplayName());
+            }
+            final int index = PerformanceReportMap.getReportDirectoryNames(displayNames).indexOf(
+                    directoryName);
+            if (index >= 0) {
+                return parsers.get(index);
             }
         }
         return null;
@@ -91,6 +102,42 @@ public class PerformanceBuildAction implements Action, StaplerProxy {
         return reportMap;
     }
 
+    /**
+     * Aggregates saved with the build, or computed from the parsed reports
+     * for the builds published without them.
+     */
+    public PerformanceSummary getSummary() {
+        PerformanceSummary s = getSavedSummary();
+        if (s == null) {
+            final PerformanceReportMap reportMap = getPerformanceReportMap();
+            if (reportMap == null) {
+                return null;
+            }
+            s = PerformanceSummary.of(reportMap.getPerformanceReportMap().values());
+            this.summary = new WeakReference<PerformanceSummary>(s);
+        }
+        return s;
+    }
+
+    /**
+     * Like {@link #getSummary()}, but null rather than parsing the reports
+     * again when the build has no saved summary.
+     */
+    public PerformanceSummary getSavedSummary() {
+        final WeakReference<PerformanceSummary> wr = this.summary;
+        if (wr != null) {
+            final PerformanceSummary s = wr.get();
+            if (s != null) {
+                return s;
+            }
+        }
+        final PerformanceSummary s = PerformanceSummary.load(build);
+        if (s != null) {
+            this.summary = new WeakReference<PerformanceSummary>(s);
+        }
+        return s;
+    }
+
     public void setPerformanceReportMap(
             WeakReference<PerformanceReportMap> performanceReportMap) {
         this.performanceReportMap = performanceReportMap;
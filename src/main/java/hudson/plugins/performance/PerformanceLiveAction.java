@@ -0,0 +1,243 @@
+package hudson.plugins.performance;
+
+import hudson.Extension;
+import hudson.model.Action;
+import hudson.model.AbstractBuild;
+import hudson.model.TaskListener;
+import hudson.model.listeners.RunListener;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+/**
+ * Live view of the JTL files tailed by {@link PerformanceLiveWrapper} while
+ * the build runs. The page polls {@link #doDelta} to get the statistics
+ * recorded since its previous poll.
+ */
+public class PerformanceLiveAction implements Action {
+
+    private final AbstractBuild<?, ?> build;
+
+    private final int refreshSec;
+
+    /**
+     * Live reports keyed by the path of their file in the workspace. Only
+     * kept in memory, and released when the build is over: the performance
+     * report takes over.
+     */
+    private transient Map<String, LiveReport> liveReports;
+
+    private transient int sequence;
+
+    public PerformanceLiveAction(AbstractBuild<?, ?> build, int refreshSec) {
+        this.build = build;
+        this.refreshSec = refreshSec;
+    }
+
+    public String getDisplayName() {
+        return Messages.LiveAction_DisplayName();
+    }
+
+    public String getIconFileName() {
+        return build.isBuilding() ? "graph.gif" : null;
+    }
+
+    public String getUrlName() {
+        return "performance-live";
+    }
+
+    public AbstractBuild<?, ?> getBuild() {
+        return build;
+    }
+
+    public int getRefreshSec() {
+        return refreshSec;
+    }
+
+    synchronized LiveReport getLiveReport(String path, String fileName,
+            PerformanceReportParser parser) {
+        if (liveReports == null) {
+            liveReports = new LinkedHashMap<String, LiveReport>();
+        }
+        LiveReport live = liveReports.get(path);
+        if (live == null) {
+            live = new LiveReport(path, fileName, parser);
+            liveReports.put(path, live);
+        }
+        return live;
+    }
+
+    /**
+     * Starts the live report of a file over, when the file was truncated or
+     * written again from its start.
+     */
+    synchronized LiveReport restartLiveReport(String path, String fileName,
+            PerformanceReportParser parser) {
+        final LiveReport live = new LiveReport(path, fileName, parser);
+        liveReports.put(path, live);
+        return live;
+    }
+
+    public synchronized List<LiveReport> getLiveReports() {
+        if (liveReports == null) {
+            return new ArrayList<LiveReport>();
+        }
+        return new ArrayList<LiveReport>(liveReports.values());
+    }
+
+    /**
+     * Records a history point on every live report, at the end of a poll of
+     * the files.
+     */
+    synchronized void recordPoint() {
+        sequence++;
+        for (final LiveReport live : getLiveReports()) {
+            live.recordPoint(sequence);
+        }
+    }
+
+    /**
+     * Ends the tailing of the files. The live reports which were not read up
+     * to the end of their file are released, they can no longer be reused.
+     */
+    synchronized void complete() {
+        if (liveReports == null) {
+            return;
+        }
+        for (final Iterator<LiveReport> i = liveReports.values().iterator(); i.hasNext();) {
+            if (!i.next().isCompleted()) {
+                i.remove();
+            }
+        }
+    }
+
+    /**
+     * Releases every live report, once the build is over.
+     */
+    synchronized void release() {
+        liveReports = null;
+    }
+
+    /**
+     * Hands the report accumulated for the given file over to the parser, so
+     * that the file is not parsed again. The live reports of that file name
+     * are released in any case; the report is only returned if a single file
+     * of the workspace has that name, if it was tailed up to its end and if
+     * it was built with the settings of that very parser.
+     */
+    synchronized PerformanceReport takeCompletedReport(String fileName,
+            PerformanceReportParser parser) {
+        if (liveReports == null) {
+            return null;
+        }
+        final List<LiveReport> taken = new ArrayList<LiveReport>();
+        for (final Iterator<LiveReport> i = liveReports.values().iterator(); i.hasNext();) {
+            final LiveReport live = i.next();
+            if (fileName.equals(live.getReport().getReportFileName())) {
+                taken.add(live);
+                i.remove();
+            }
+        }
+        if (taken.size() != 1 || !taken.get(0).isCompleted()
+                || taken.get(0).getParser() != parser) {
+            return null;
+        }
+        return taken.get(0).getReport();
+    }
+
+    static PerformanceReport takeCompletedReport(AbstractBuild<?, ?> build, String fileName,
+            PerformanceReportParser parser) {
+        if (build == null) {
+            return null;
+        }
+        final PerformanceLiveAction action = build.getAction(PerformanceLiveAction.class);
+        return action == null ? null : action.takeCompletedReport(fileName, parser);
+    }
+
+    /**
+     * Releases the live reports no parser took, when the project has no
+     * publisher, when its glob does not match every tailed file or when the
+     * build was aborted before publishing.
+     */
+    @Extension
+    public static class ReleaseListener extends RunListener<AbstractBuild> {
+
+        public ReleaseListener() {
+            super(AbstractBuild.class);
+        }
+
+        @Override
+        public void onCompleted(AbstractBuild build, TaskListener listener) {
+            final PerformanceLiveAction action = (PerformanceLiveAction) build
+                    .getAction(PerformanceLiveAction.class);
+            if (action != null) {
+                action.release();
+            }
+        }
+    }
+
+    /**
+     * Sends the current statistics of every live report, with the history
+     * points recorded after the <code>since</code> sequence number.
+     */
+    public void doDelta(StaplerRequest request, StaplerResponse response) throws IOException {
+        final int since = parseInt(request.getParameter("since"));
+        final JSONArray reports = new JSONArray();
+        final int current;
+        synchronized (this) {
+            current = sequence;
+        }
+        for (final LiveReport live : getLiveReports()) {
+            final JSONArray points = new JSONArray();
+            for (final LiveReport.Point p : live.getHistorySince(since)) {
+                if (p.sequence > current) {
+                    continue;
+                }
+                final JSONObject point = new JSONObject();
+                point.put("time", p.time);
+                point.put("samples", p.samples);
+                point.put("throughput", p.throughput);
+                point.put("errorPercent", p.errorPercent);
+                point.put("median", p.median);
+                point.put("line90", p.line90);
+                point.put("line99", p.line99);
+                points.add(point);
+            }
+            final JSONObject report = new JSONObject();
+            report.put("name", live.getName());
+            report.put("samples", live.getSamples());
+            report.put("errors", live.getErrors());
+            report.put("throughput", live.getThroughput());
+            report.put("errorPercent", live.getErrorPercent());
+            report.put("median", live.getPercentile(50));
+            report.put("line90", live.getPercentile(90));
+            report.put("line99", live.getPercentile(99));
+            report.put("points", points);
+            reports.add(report);
+        }
+        final JSONObject delta = new JSONObject();
+        delta.put("sequence", current);
+        delta.put("building", build.isBuilding());
+        delta.put("reports", reports);
+        response.setContentType("application/json;charset=UTF-8");
+        response.getWriter().print(delta.toString());
+    }
+
+    private static int parseInt(String value) {
+        try {
+            return value == null ? 0 : Integer.parseInt(value);
+        } catch (final NumberFormatException e) {
+            return 0;
+        }
+    }
+}
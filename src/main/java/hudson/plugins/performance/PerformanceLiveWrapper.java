@@ -0,0 +1,340 @@
+package hudson.plugins.performance;
+
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.BuildListener;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.remoting.VirtualChannel;
+import hudson.tasks.BuildWrapper;
+import hudson.tasks.BuildWrapperDescriptor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.kohsuke.stapler.DataBoundConstructor;
+
+/**
+ * Follows the JTL files written by a load test while the build runs, and
+ * shows their statistics on a live page through a
+ * {@link PerformanceLiveAction}.
+ *
+ * <p>
+ * When the files are read up to their end after the build steps, the JMeter
+ * parser of the {@link PerformancePublisher} reuses the accumulated reports
+ * instead of parsing the files again.
+ */
+public class PerformanceLiveWrapper extends BuildWrapper {
+
+    @Extension
+    public static class DescriptorImpl extends BuildWrapperDescriptor {
+
+        @Override
+        public String getDisplayName() {
+            return Messages.LiveWrapper_DisplayName();
+        }
+
+        @Override
+        public boolean isApplicable(AbstractProject<?, ?> item) {
+            return true;
+        }
+
+        @Override
+        public String getHelpFile() {
+            return "/plugin/performance/help-live.html";
+        }
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(PerformanceLiveWrapper.class.getName());
+
+    static final int DEFAULT_REFRESH_SEC = 10;
+
+    /**
+     * Largest chunk of a file read at once from the slave. A line longer than
+     * that is skipped.
+     */
+    static final int MAX_CHUNK_BYTES = 4 * 1024 * 1024;
+
+    private final String glob;
+
+    private final int refreshSec;
+
+    @DataBoundConstructor
+    public PerformanceLiveWrapper(String glob, int refreshSec) {
+        this.glob = (glob == null || glob.length() == 0) ? "**/*.jtl" : glob;
+        this.refreshSec = refreshSec > 0 ? refreshSec : DEFAULT_REFRESH_SEC;
+    }
+
+    public String getGlob() {
+        return glob;
+    }
+
+    public int getRefreshSec() {
+        return refreshSec;
+    }
+
+    @Override
+    public Environment setUp(AbstractBuild build, Launcher launcher, BuildListener listener)
+            throws IOException, InterruptedException {
+        final PrintStream logger = listener.getLogger();
+        final PerformanceLiveAction action = new PerformanceLiveAction(build, refreshSec);
+        build.addAction(action);
+        final Tailer tailer = new Tailer(build, action, findParser(build));
+        logger.println("Performance: Following " + glob + " every " + refreshSec + " s");
+        tailer.start();
+
+        return new Environment() {
+            @Override
+            public boolean tearDown(AbstractBuild build, BuildListener listener)
+                    throws IOException, InterruptedException {
+                tailer.finish(listener.getLogger());
+                return true;
+            }
+        };
+    }
+
+    /**
+     * The JMeter parser configured in the publisher of the project, whose
+     * limits apply to the accumulated reports. Only the JMeter parser itself
+     * qualifies: its subclasses read other formats.
+     */
+    private JMeterParser findParser(AbstractBuild<?, ?> build) {
+        final PerformancePublisher publisher = build.getProject().getPublishersList().get(
+                PerformancePublisher.class);
+        if (publisher != null) {
+            for (final PerformanceReportParser parser : publisher.getParsers()) {
+                if (parser.getClass() == JMeterParser.class) {
+                    return (JMeterParser) parser;
+                }
+            }
+        }
+        return new JMeterParser(glob);
+    }
+
+    /**
+     * Polls the files matching the glob pattern in the workspace and feeds the
+     * new lines to their {@link LiveReport}.
+     */
+    private final class Tailer extends Thread {
+
+        private final AbstractBuild<?, ?> build;
+
+        private final PerformanceLiveAction action;
+
+        private final PerformanceReportParser parser;
+
+        private boolean stopped;
+
+        Tailer(AbstractBuild<?, ?> build, PerformanceLiveAction action,
+                PerformanceReportParser parser) {
+            super("Performance tailer for " + build);
+            setDaemon(true);
+            this.build = build;
+            this.action = action;
+            this.parser = parser;
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                synchronized (this) {
+                    if (stopped) {
+                        return;
+                    }
+                }
+                try {
+                    poll(false);
+                } catch (final IOException e) {
+                    LOGGER.log(Level.WARNING, "Failed to follow the reports of " + build, e);
+                } catch (final InterruptedException e) {
+                    return;
+                }
+                synchronized (this) {
+                    if (!stopped) {
+                        try {
+                            wait(refreshSec * 1000L);
+                        } catch (final InterruptedException e) {
+                            return;
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Stops the polling thread, then reads the files up to their end. The
+         * files which cannot be read are parsed again by the publisher.
+         */
+        void finish(PrintStream logger) throws InterruptedException {
+            synchronized (this) {
+                stopped = true;
+                notifyAll();
+            }
+            join();
+            try {
+                poll(true);
+            } catch (final IOException e) {
+                logger.println("Performance: Failed to read the end of the reports, "
+                        + "they will be parsed again: " + e.getMessage());
+                LOGGER.log(Level.WARNING, "Failed to read the end of the reports of " + build, e);
+            } finally {
+                action.complete();
+            }
+        }
+
+        private void poll(boolean last) throws IOException, InterruptedException {
+            final FilePath workspace = build.getWorkspace();
+            if (workspace == null) {
+                return;
+            }
+            for (final FilePath file : PerformancePublisher.locatePerformanceReports(
+                    workspace, glob)) {
+                if (file.isDirectory()) {
+                    continue;
+                }
+                final String path = relativePath(workspace, file);
+                final String fileName = PerformancePublisher
+                        .getPerformanceReportBuildFileName(file.getName());
+                LiveReport live = action.getLiveReport(path, fileName, parser);
+                Chunk chunk;
+                long offset;
+                do {
+                    offset = live.getOffset();
+                    chunk = file.act(new ReadChunk(offset, live.isSkippingLine(), last));
+                    if (chunk.restarted) {
+                        live = action.restartLiveReport(path, fileName, parser);
+                    }
+                    live.consume(new String(chunk.data, "UTF-8"), chunk.nextOffset,
+                            chunk.skippingLine);
+                } while (chunk.more && (chunk.restarted || chunk.nextOffset > offset));
+                if (last) {
+                    live.complete();
+                }
+            }
+            action.recordPoint();
+        }
+    }
+
+    /**
+     * Path of the file in the workspace, which tells apart the files of the
+     * same name in different directories.
+     */
+    private static String relativePath(FilePath workspace, FilePath file) {
+        final String root = workspace.getRemote();
+        final String path = file.getRemote();
+        if (path.startsWith(root) && path.length() > root.length()) {
+            return path.substring(root.length() + 1).replace('\\', '/');
+        }
+        return path;
+    }
+
+    static final class Chunk implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        final byte[] data;
+
+        final long nextOffset;
+
+        /**
+         * Whether the file has more bytes after this chunk.
+         */
+        final boolean more;
+
+        /**
+         * Whether the chunk ends within a line too long to be read.
+         */
+        final boolean skippingLine;
+
+        /**
+         * Whether the file shrank since the previous read, so that the chunk
+         * was read from its start.
+         */
+        final boolean restarted;
+
+        Chunk(byte[] data, long nextOffset, boolean more, boolean skippingLine,
+                boolean restarted) {
+            this.data = data;
+            this.nextOffset = nextOffset;
+            this.more = more;
+            this.skippingLine = skippingLine;
+            this.restarted = restarted;
+        }
+    }
+
+    /**
+     * Reads the complete lines of a file from an offset, or everything up to
+     * the end of the file for the last read. A file shorter than the offset
+     * was truncated or written again, it is read from its start. A line
+     * longer than {@link #MAX_CHUNK_BYTES} is skipped up to its end, over as
+     * many reads as needed.
+     */
+    static final class ReadChunk implements FilePath.FileCallable<Chunk> {
+        private static final long serialVersionUID = 1L;
+
+        private final long offset;
+
+        private final boolean skippingLine;
+
+        private final boolean last;
+
+        ReadChunk(long offset, boolean skippingLine, boolean last) {
+            this.offset = offset;
+            this.skippingLine = skippingLine;
+            this.last = last;
+        }
+
+        public Chunk invoke(File f, VirtualChannel channel) throws IOException {
+            final RandomAccessFile file = new RandomAccessFile(f, "r");
+            try {
+                final long length = file.length();
+                final boolean restarted = length < offset;
+                final long from = restarted ? 0 : offset;
+                boolean skipping = skippingLine && !restarted;
+                if (length <= from) {
+                    return new Chunk(new byte[0], from, false, skipping, restarted);
+                }
+                final byte[] buffer = new byte[(int) Math.min(length - from, MAX_CHUNK_BYTES)];
+                file.seek(from);
+                file.readFully(buffer);
+                final long bufferEnd = from + buffer.length;
+                int start = 0;
+                if (skipping) {
+                    while (start < buffer.length && buffer[start] != '\n') {
+                        start++;
+                    }
+                    if (start == buffer.length) {
+                        return new Chunk(new byte[0], bufferEnd, bufferEnd < length, true,
+                                restarted);
+                    }
+                    start++;
+                    skipping = false;
+                }
+                int end = buffer.length;
+                if (!last || bufferEnd < length) {
+                    while (end > start && buffer[end - 1] != '\n') {
+                        end--;
+                    }
+                    if (end == 0 && buffer.length == MAX_CHUNK_BYTES) {
+                        // a full chunk without a line end, not a sample
+                        return new Chunk(new byte[0], bufferEnd, bufferEnd < length, true,
+                                restarted);
+                    }
+                    if (end == start && last) {
+                        end = buffer.length;
+                    }
+                }
+                final byte[] data = new byte[end - start];
+                System.arraycopy(buffer, start, data, 0, end - start);
+                return new Chunk(data, from + end, from + end < length, skipping, restarted);
+            } finally {
+                file.close();
+            }
+        }
+    }
+}
@@ -17,22 +17,41 @@ import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.GregorianCalendar;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.JFreeChart;
 import org.jfree.chart.axis.CategoryAxis;
+import org.jfree.chart.axis.AxisLocation;
 import org.jfree.chart.axis.CategoryLabelPositions;
+import org.jfree.chart.axis.DateAxis;
+import org.jfree.chart.axis.LogarithmicAxis;
 import org.jfree.chart.axis.NumberAxis;
+import org.jfree.chart.axis.SymbolAxis;
+import org.jfree.chart.plot.CategoryMarker;
 import org.jfree.chart.plot.CategoryPlot;
 import org.jfree.chart.plot.PlotOrientation;
+import org.jfree.chart.plot.XYPlot;
+import org.jfree.chart.renderer.LookupPaintScale;
 import org.jfree.chart.renderer.category.BarRenderer;
 import org.jfree.chart.renderer.category.LineAndShapeRenderer;
+import org.jfree.chart.renderer.xy.XYBlockRenderer;
+import org.jfree.chart.renderer.xy.XYItemRenderer;
+import org.jfree.chart.renderer.xy.XYLineAndShapeRenderer;
+import org.jfree.chart.renderer.xy.XYStepRenderer;
 import org.jfree.chart.title.LegendTitle;
+import org.jfree.chart.title.PaintScaleLegend;
 import org.jfree.data.category.CategoryDataset;
+import org.jfree.data.xy.DefaultXYZDataset;
+import org.jfree.data.xy.XYSeries;
+import org.jfree.data.xy.XYSeriesCollection;
+import org.jfree.ui.RectangleAnchor;
 import org.jfree.ui.RectangleEdge;
 import org.jfree.ui.RectangleInsets;
 import org.kohsuke.stapler.StaplerRequest;
@@ -43,6 +62,9 @@ public final class PerformanceProjectAction implements Action {
     private static final String CONFIGURE_LINK = "configure";
     private static final String TRENDREPORT_LINK = "trendReport";
     private static final String TESTSUITE_LINK = "testsuiteReport";
+    private static final String COMPARE_LINK = "compare";
+    private static final String REGRESSIONS_LINK = "regressions";
+    private static final String BISECT_LINK = "bisect";
 
     private static final String PLUGIN_NAME = "performance";
 
@@ -119,6 +141,156 @@ public final class PerformanceProjectAction implements Action {
         return chart;
     }
 
+    /**
+     * Number of active threads at which each build saturated.
+     */
+    private JFreeChart createCapacityChart(CategoryDataset dataset) {
+
+        final JFreeChart chart = ChartFactory.createLineChart(
+                Messages.ProjectAction_Capacity(), // chart title
+                null, // unused
+                Messages.ProjectAction_ActiveThreads(), // range axis label
+                dataset, // data
+                PlotOrientation.VERTICAL, // orientation
+                true, // include legend
+                true, // tooltips
+                false // urls
+                );
+
+        final LegendTitle legend = chart.getLegend();
+        legend.setPosition(RectangleEdge.BOTTOM);
+
+        chart.setBackgroundPaint(Color.white);
+
+        final CategoryPlot plot = chart.getCategoryPlot();
+        plot.setBackgroundPaint(Color.WHITE);
+        plot.setOutlinePaint(null);
+        plot.setRangeGridlinesVisible(true);
+        plot.setRangeGridlinePaint(Color.black);
+
+        final CategoryAxis domainAxis = new ShiftedCategoryAxis(null);
+        plot.setDomainAxis(domainAxis);
+        domainAxis.setCategoryLabelPositions(CategoryLabelPositions.UP_90);
+        domainAxis.setLowerMargin(0.0);
+        domainAxis.setUpperMargin(0.0);
+        domainAxis.setCategoryMargin(0.0);
+
+        final NumberAxis rangeAxis = (NumberAxis) plot.getRangeAxis();
+        rangeAxis.setStandardTickUnits(NumberAxis.createIntegerTickUnits());
+        rangeAxis.setLowerBound(0);
+
+        final LineAndShapeRenderer renderer = (LineAndShapeRenderer) plot.getRenderer();
+        renderer.setBaseStroke(new BasicStroke(4.0f));
+        ColorPalette.apply(renderer);
+
+        // crop extra space around the graph
+        plot.setInsets(new RectangleInsets(5.0, 0, 0, 5.0));
+
+        return chart;
+    }
+
+    /**
+     * Apdex score of each build, from 0 to 1.
+     */
+    private JFreeChart createApdexChart(CategoryDataset dataset) {
+
+        final JFreeChart chart = ChartFactory.createLineChart(
+                Messages.ProjectAction_Apdex(), // chart title
+                null, // unused
+                null, // range axis label
+                dataset, // data
+                PlotOrientation.VERTICAL, // orientation
+                true, // include legend
+                true, // tooltips
+                false // urls
+                );
+
+        final LegendTitle legend = chart.getLegend();
+        legend.setPosition(RectangleEdge.BOTTOM);
+
+        chart.setBackgroundPaint(Color.white);
+
+        final CategoryPlot plot = chart.getCategoryPlot();
+        plot.setBackgroundPaint(Color.WHITE);
+        plot.setOutlinePaint(null);
+        plot.setRangeGridlinesVisible(true);
+        plot.setRangeGridlinePaint(Color.black);
+
+        final CategoryAxis domainAxis = new ShiftedCategoryAxis(null);
+        plot.setDomainAxis(domainAxis);
+        domainAxis.setCategoryLabelPositions(CategoryLabelPositions.UP_90);
+        domainAxis.setLowerMargin(0.0);
+        domainAxis.setUpperMargin(0.0);
+        domainAxis.setCategoryMargin(0.0);
+
+        final NumberAxis rangeAxis = (NumberAxis) plot.getRangeAxis();
+        rangeAxis.setUpperBound(1);
+        rangeAxis.setLowerBound(0);
+
+        final LineAndShapeRenderer renderer = (LineAndShapeRenderer) plot.getRenderer();
+        renderer.setBaseStroke(new BasicStroke(4.0f));
+        ColorPalette.apply(renderer);
+
+        // crop extra space around the graph
+        plot.setInsets(new RectangleInsets(5.0, 0, 0, 5.0));
+
+        return chart;
+    }
+
+    /**
+     * Contention and coherency of the scalability model of each build, on
+     * their own axes as the coherency is usually much smaller.
+     */
+    private JFreeChart createScalabilityTrendChart(CategoryDataset contention,
+            CategoryDataset coherency) {
+
+        final JFreeChart chart = ChartFactory.createLineChart(
+                Messages.ProjectAction_Scalability(), // chart title
+                null, // unused
+                Messages.ProjectAction_Contention(), // range axis label
+                contention, // data
+                PlotOrientation.VERTICAL, // orientation
+                true, // include legend
+                true, // tooltips
+                false // urls
+                );
+
+        final LegendTitle legend = chart.getLegend();
+        legend.setPosition(RectangleEdge.BOTTOM);
+
+        chart.setBackgroundPaint(Color.white);
+
+        final CategoryPlot plot = chart.getCategoryPlot();
+        plot.setBackgroundPaint(Color.WHITE);
+        plot.setOutlinePaint(null);
+        plot.setRangeGridlinesVisible(true);
+        plot.setRangeGridlinePaint(Color.black);
+
+        final CategoryAxis domainAxis = new ShiftedCategoryAxis(null);
+        plot.setDomainAxis(domainAxis);
+        domainAxis.setCategoryLabelPositions(CategoryLabelPositions.UP_90);
+        domainAxis.setLowerMargin(0.0);
+        domainAxis.setUpperMargin(0.0);
+        domainAxis.setCategoryMargin(0.0);
+
+        final LineAndShapeRenderer renderer = (LineAndShapeRenderer) plot.getRenderer();
+        renderer.setBaseStroke(new BasicStroke(4.0f));
+        renderer.setSeriesPaint(0, ColorPalette.BLUE);
+
+        plot.setRangeAxis(1, new NumberAxis(Messages.ProjectAction_Coherency()));
+        plot.setDataset(1, coherency);
+        plot.mapDatasetToRangeAxis(1, 1);
+        final LineAndShapeRenderer coherencyRenderer = new LineAndShapeRenderer();
+        coherencyRenderer.setBaseStroke(new BasicStroke(4.0f));
+        coherencyRenderer.setSeriesPaint(0, ColorPalette.RED);
+        plot.setRenderer(1, coherencyRenderer);
+
+        // crop extra space around the graph
+        plot.setInsets(new RectangleInsets(5.0, 0, 0, 5.0));
+
+        return chart;
+    }
+
     protected static JFreeChart createRespondingTimeChart(CategoryDataset dataset) {
 
         final JFreeChart chart = ChartFactory.createLineChart(
@@ -167,6 +339,397 @@ public final class PerformanceProjectAction implements Action {
         return chart;
     }
 
+    /**
+     * Marks the first offending builds of the change points on a trend chart,
+     * in red when slower and in blue when faster.
+     */
+    private static void addChangePointMarkers(JFreeChart chart,
+            Map<NumberOnlyBuildLabel, ChangePoints.ChangePoint> markers) {
+        for (final Map.Entry<NumberOnlyBuildLabel, ChangePoints.ChangePoint> e : markers.entrySet()) {
+            final CategoryMarker marker = new CategoryMarker(e.getKey(),
+                    e.getValue().isSlower() ? ColorPalette.RED : ColorPalette.BLUE,
+                    new BasicStroke(1.0f));
+            marker.setDrawAsLine(true);
+            marker.setLabel(e.getValue().getChangeFormated());
+            marker.setLabelAnchor(RectangleAnchor.TOP_RIGHT);
+            chart.getCategoryPlot().addDomainMarker(marker);
+        }
+    }
+
+    /**
+     * Requests and errors per interval of the timeline on the left axis, the
+     * average and 95th percentile response times on the right one.
+     */
+    protected static JFreeChart createTimelineChart(Timeline timeline) {
+        final XYSeries requests = new XYSeries(Messages.ProjectAction_Requests());
+        final XYSeries errors = new XYSeries(Messages.ProjectAction_Errors());
+        final XYSeries average = new XYSeries(Messages.ProjectAction_Average());
+        final XYSeries line95 = new XYSeries(Messages.ProjectAction_Line95());
+        for (final Timeline.Bucket bucket : timeline.getBuckets()) {
+            requests.add(bucket.getStartTime(), bucket.getCount());
+            errors.add(bucket.getStartTime(), bucket.getErrors());
+            average.add(bucket.getStartTime(), bucket.getAverage());
+            line95.add(bucket.getStartTime(), bucket.get95Line());
+        }
+        final XYSeriesCollection counts = new XYSeriesCollection();
+        counts.addSeries(requests);
+        counts.addSeries(errors);
+        final XYSeriesCollection times = new XYSeriesCollection();
+        times.addSeries(average);
+        times.addSeries(line95);
+
+        final JFreeChart chart = ChartFactory.createTimeSeriesChart(
+                Messages.ProjectAction_Timeline(), // chart title
+                null, // unused
+                Messages.ProjectAction_SamplesPerInterval(timeline.getIntervalSec()), // range axis label
+                counts, // data
+                true, // include legend
+                true, // tooltips
+                false // urls
+                );
+
+        final LegendTitle legend = chart.getLegend();
+        legend.setPosition(RectangleEdge.BOTTOM);
+
+        chart.setBackgroundPaint(Color.white);
+
+        final XYPlot plot = chart.getXYPlot();
+        plot.setBackgroundPaint(Color.WHITE);
+        plot.setOutlinePaint(null);
+        plot.setRangeGridlinesVisible(true);
+        plot.setRangeGridlinePaint(Color.black);
+
+        final XYItemRenderer countRenderer = new XYLineAndShapeRenderer(true, false);
+        countRenderer.setSeriesPaint(0, ColorPalette.BLUE);
+        countRenderer.setSeriesPaint(1, ColorPalette.RED);
+        plot.setRenderer(0, countRenderer);
+
+        plot.setRangeAxis(1, new NumberAxis("ms"));
+        plot.setDataset(1, times);
+        plot.mapDatasetToRangeAxis(1, 1);
+        final XYItemRenderer timeRenderer = new XYLineAndShapeRenderer(true, false);
+        timeRenderer.setSeriesPaint(0, ColorPalette.GREY);
+        timeRenderer.setSeriesPaint(1, ColorPalette.YELLOW);
+        plot.setRenderer(1, timeRenderer);
+
+        // crop extra space around the graph
+        plot.setInsets(new RectangleInsets(5.0, 0, 0, 5.0));
+
+        return chart;
+    }
+
+    /**
+     * Throughput and response times by number of active threads, where the
+     * throughput levels off while the response times keep rising once the
+     * system under test saturates.
+     */
+    protected static JFreeChart createConcurrencyChart(ConcurrencyProfile profile) {
+        final XYSeries throughput = new XYSeries(Messages.ProjectAction_Throughput());
+        final XYSeries median = new XYSeries(Messages.ProjectAction_Median());
+        final XYSeries line95 = new XYSeries(Messages.ProjectAction_Line95());
+        for (final ConcurrencyProfile.Level level : profile.getLevels()) {
+            throughput.add(level.getUsers(), level.getThroughput());
+            median.add(level.getUsers(), level.getMedian());
+            line95.add(level.getUsers(), level.get95Line());
+        }
+        final XYSeriesCollection rates = new XYSeriesCollection();
+        rates.addSeries(throughput);
+        final XYSeriesCollection times = new XYSeriesCollection();
+        times.addSeries(median);
+        times.addSeries(line95);
+
+        final JFreeChart chart = ChartFactory.createXYLineChart(
+                Messages.ProjectAction_Concurrency(), // chart title
+                Messages.ProjectAction_ActiveThreads(), // domain axis label
+                Messages.ProjectAction_SamplesPerSecond(), // range axis label
+                rates, // data
+                PlotOrientation.VERTICAL, // orientation
+                true, // include legend
+                true, // tooltips
+                false // urls
+                );
+
+        final LegendTitle legend = chart.getLegend();
+        legend.setPosition(RectangleEdge.BOTTOM);
+
+        chart.setBackgroundPaint(Color.white);
+
+        final XYPlot plot = chart.getXYPlot();
+        plot.setBackgroundPaint(Color.WHITE);
+        plot.setOutlinePaint(null);
+        plot.setRangeGridlinesVisible(true);
+        plot.setRangeGridlinePaint(Color.black);
+
+        final XYItemRenderer rateRenderer = new XYLineAndShapeRenderer(true, true);
+        rateRenderer.setSeriesPaint(0, ColorPalette.BLUE);
+        plot.setRenderer(0, rateRenderer);
+
+        plot.setRangeAxis(1, new NumberAxis("ms"));
+        plot.setDataset(1, times);
+        plot.mapDatasetToRangeAxis(1, 1);
+        final XYItemRenderer timeRenderer = new XYLineAndShapeRenderer(true, false);
+        timeRenderer.setSeriesPaint(0, ColorPalette.GREY);
+        timeRenderer.setSeriesPaint(1, ColorPalette.YELLOW);
+        plot.setRenderer(1, timeRenderer);
+
+        // crop extra space around the graph
+        plot.setInsets(new RectangleInsets(5.0, 0, 0, 5.0));
+
+        return chart;
+    }
+
+    /**
+     * Measured throughput by number of threads and the throughput predicted
+     * by the scalability model, up to beyond its peak.
+     */
+    protected static JFreeChart createScalabilityChart(ScalabilityModel model) {
+        final XYSeries measured = new XYSeries(Messages.ProjectAction_Throughput());
+        double maxThreads = 1;
+        for (final Map.Entry<Double, Double> e : model.getPoints().entrySet()) {
+            measured.add(e.getKey().doubleValue(), e.getValue().doubleValue());
+            maxThreads = Math.max(maxThreads, e.getKey());
+        }
+        maxThreads = Math.max(maxThreads, model.getPeakConcurrency()) * 1.5;
+        final XYSeries predicted = new XYSeries(Messages.ProjectAction_Model());
+        for (int i = 1; i <= 100; i++) {
+            final double threads = maxThreads * i / 100;
+            predicted.add(threads, model.getThroughput(threads));
+        }
+        final XYSeriesCollection dataset = new XYSeriesCollection();
+        dataset.addSeries(measured);
+        dataset.addSeries(predicted);
+
+        final JFreeChart chart = ChartFactory.createXYLineChart(
+                Messages.ProjectAction_Scalability(), // chart title
+                Messages.ProjectAction_ActiveThreads(), // domain axis label
+                Messages.ProjectAction_SamplesPerSecond(), // range axis label
+                dataset, // data
+                PlotOrientation.VERTICAL, // orientation
+                true, // include legend
+                true, // tooltips
+                false // urls
+                );
+
+        final LegendTitle legend = chart.getLegend();
+        legend.setPosition(RectangleEdge.BOTTOM);
+
+        chart.setBackgroundPaint(Color.white);
+
+        final XYPlot plot = chart.getXYPlot();
+        plot.setBackgroundPaint(Color.WHITE);
+        plot.setOutlinePaint(null);
+        plot.setRangeGridlinesVisible(true);
+        plot.setRangeGridlinePaint(Color.black);
+
+        final XYLineAndShapeRenderer renderer = new XYLineAndShapeRenderer(true, false);
+        renderer.setSeriesLinesVisible(0, false);
+        renderer.setSeriesShapesVisible(0, true);
+        renderer.setSeriesPaint(0, ColorPalette.BLUE);
+        renderer.setSeriesPaint(1, ColorPalette.GREY);
+        plot.setRenderer(renderer);
+
+        // crop extra space around the graph
+        plot.setInsets(new RectangleInsets(5.0, 0, 0, 5.0));
+
+        return chart;
+    }
+
+    /**
+     * Median, 95th and 99th percentiles of the windows of the timeline.
+     */
+    protected static JFreeChart createPercentilesChart(Timeline timeline) {
+        final XYSeries median = new XYSeries(Messages.ProjectAction_Median());
+        final XYSeries line95 = new XYSeries(Messages.ProjectAction_Line95());
+        final XYSeries line99 = new XYSeries(Messages.ProjectAction_Line99());
+        for (final Timeline.Bucket bucket : timeline.getBuckets()) {
+            median.add(bucket.getStartTime(), bucket.getMedian());
+            line95.add(bucket.getStartTime(), bucket.get95Line());
+            line99.add(bucket.getStartTime(), bucket.get99Line());
+        }
+        final XYSeriesCollection dataset = new XYSeriesCollection();
+        dataset.addSeries(median);
+        dataset.addSeries(line95);
+        dataset.addSeries(line99);
+
+        final JFreeChart chart = ChartFactory.createTimeSeriesChart(
+                Messages.ProjectAction_Percentiles(timeline.getIntervalSec()), // chart title
+                null, // unused
+                "ms", // range axis label
+                dataset, // data
+                true, // include legend
+                true, // tooltips
+                false // urls
+                );
+
+        final LegendTitle legend = chart.getLegend();
+        legend.setPosition(RectangleEdge.BOTTOM);
+
+        chart.setBackgroundPaint(Color.white);
+
+        final XYPlot plot = chart.getXYPlot();
+        plot.setBackgroundPaint(Color.WHITE);
+        plot.setOutlinePaint(null);
+        plot.setRangeGridlinesVisible(true);
+        plot.setRangeGridlinePaint(Color.black);
+
+        final XYItemRenderer renderer = new XYLineAndShapeRenderer(true, false);
+        renderer.setSeriesPaint(0, ColorPalette.BLUE);
+        renderer.setSeriesPaint(1, ColorPalette.YELLOW);
+        renderer.setSeriesPaint(2, ColorPalette.RED);
+        plot.setRenderer(renderer);
+
+        // crop extra space around the graph
+        plot.setInsets(new RectangleInsets(5.0, 0, 0, 5.0));
+
+        return chart;
+    }
+
+    /**
+     * Heatmap of the samples by time and by band of response times, the
+     * darker the more samples. The counts are colored on a logarithmic scale
+     * so that the rare slow samples remain visible.
+     */
+    protected static JFreeChart createHeatmapChart(Heatmap heatmap) {
+        final int bands = heatmap.getMaxBand() - heatmap.getMinBand() + 1;
+        final List<double[]> cells = new ArrayList<double[]>();
+        for (int column = 0; column < heatmap.getColumnCount(); column++) {
+            for (int band = heatmap.getMinBand(); band <= heatmap.getMaxBand(); band++) {
+                final long count = heatmap.getCount(column, band);
+                if (count > 0) {
+                    cells.add(new double[] { heatmap.getStart(column),
+                            band - heatmap.getMinBand(), count });
+                }
+            }
+        }
+        final double[][] data = new double[3][cells.size()];
+        for (int i = 0; i < cells.size(); i++) {
+            data[0][i] = cells.get(i)[0];
+            data[1][i] = cells.get(i)[1];
+            data[2][i] = cells.get(i)[2];
+        }
+        final DefaultXYZDataset dataset = new DefaultXYZDataset();
+        dataset.addSeries(Messages.ProjectAction_Heatmap(), data);
+
+        final String[] labels = new String[bands];
+        for (int band = 0; band < bands; band++) {
+            labels[band] = String.valueOf(Heatmap.lowerBound(heatmap.getMinBand() + band));
+        }
+        final SymbolAxis rangeAxis = new SymbolAxis("ms", labels);
+        rangeAxis.setGridBandsVisible(false);
+
+        final LookupPaintScale scale = new LookupPaintScale(0, heatmap.getMaxCount() + 1, Color.WHITE);
+        final int steps = 10;
+        for (int step = 0; step < steps; step++) {
+            final float f = (float) step / (steps - 1);
+            scale.add(Math.pow(heatmap.getMaxCount(), (double) step / steps),
+                    new Color(1f - 0.3f * f, 1f - 0.9f * f, 0.8f - 0.65f * f));
+        }
+        final XYBlockRenderer renderer = new XYBlockRenderer();
+        renderer.setBlockWidth(heatmap.getIntervalSec() * 1000d);
+        renderer.setBlockHeight(1);
+        renderer.setBlockAnchor(RectangleAnchor.BOTTOM_LEFT);
+        renderer.setPaintScale(scale);
+
+        final XYPlot plot = new XYPlot(dataset, new DateAxis(), rangeAxis, renderer);
+        plot.setBackgroundPaint(Color.WHITE);
+        plot.setOutlinePaint(null);
+        plot.setRangeGridlinesVisible(false);
+        plot.setDomainGridlinesVisible(false);
+
+        final JFreeChart chart = new JFreeChart(Messages.ProjectAction_Heatmap(),
+                JFreeChart.DEFAULT_TITLE_FONT, plot, false);
+        chart.setBackgroundPaint(Color.white);
+
+        final NumberAxis countAxis = new NumberAxis(Messages.ProjectAction_Samples());
+        final PaintScaleLegend legend = new PaintScaleLegend(scale, countAxis);
+        legend.setPosition(RectangleEdge.RIGHT);
+        legend.setAxisLocation(AxisLocation.TOP_OR_RIGHT);
+        legend.setStripWidth(10);
+        legend.setMargin(5, 5, 5, 5);
+        chart.addSubtitle(legend);
+
+        // crop extra space around the graph
+        plot.setInsets(new RectangleInsets(5.0, 0, 0, 5.0));
+
+        return chart;
+    }
+
+    /**
+     * Distribution of the response times of each histogram, as the
+     * percentage of samples by band of {@link Heatmap}, or as the cumulative
+     * percentage of samples below each response time.
+     *
+     * @param labels
+     *            series name of each histogram.
+     */
+    protected static JFreeChart createDistributionChart(List<LatencyHistogram> histograms,
+            List<String> labels, boolean cumulative) {
+        final XYSeriesCollection dataset = new XYSeriesCollection();
+        for (int h = 0; h < histograms.size(); h++) {
+            final LatencyHistogram histogram = histograms.get(h);
+            final XYSeries series = new XYSeries(labels.get(h), false, true);
+            final double total = histogram.getTotalCount();
+            if (cumulative) {
+                long cumulated = 0;
+                for (int i = 0; i < histogram.getBucketCount(); i++) {
+                    if (histogram.getCountAt(i) > 0) {
+                        cumulated += histogram.getCountAt(i);
+                        final long value = Math.min(histogram.getMax(),
+                                LatencyHistogram.upperBound(i));
+                        series.add(Math.max(1, value), cumulated * 100 / total);
+                    }
+                }
+            } else {
+                final TreeMap<Integer, Long> bands = Heatmap.bands(histogram);
+                for (final Map.Entry<Integer, Long> band : bands.entrySet()) {
+                    series.add(Math.max(1, Heatmap.lowerBound(band.getKey())),
+                            band.getValue() * 100 / total);
+                }
+            }
+            dataset.addSeries(series);
+        }
+
+        final JFreeChart chart = ChartFactory.createXYLineChart(
+                cumulative ? Messages.ProjectAction_Cdf() : Messages.ProjectAction_Distribution(), // chart title
+                "ms", // domain axis label
+                "%", // range axis label
+                dataset, // data
+                PlotOrientation.VERTICAL, // orientation
+                true, // include legend
+                true, // tooltips
+                false // urls
+                );
+
+        final LegendTitle legend = chart.getLegend();
+        legend.setPosition(RectangleEdge.BOTTOM);
+
+        chart.setBackgroundPaint(Color.white);
+
+        final XYPlot plot = chart.getXYPlot();
+        plot.setBackgroundPaint(Color.WHITE);
+        plot.setOutlinePaint(null);
+        plot.setRangeGridlinesVisible(true);
+        plot.setRangeGridlinePaint(Color.black);
+
+        final LogarithmicAxis domainAxis = new LogarithmicAxis("ms");
+        domainAxis.setStrictValuesFlag(false);
+        plot.setDomainAxis(domainAxis);
+        if (cumulative) {
+            plot.getRangeAxis().setRange(0, 100);
+        }
+
+        final XYItemRenderer renderer = cumulative ? new XYLineAndShapeRenderer(true, false)
+                : new XYStepRenderer();
+        renderer.setSeriesPaint(0, ColorPalette.BLUE);
+        renderer.setSeriesPaint(1, ColorPalette.GREY);
+        plot.setRenderer(renderer);
+
+        // crop extra space around the graph
+        plot.setInsets(new RectangleInsets(5.0, 0, 0, 5.0));
+
+        return chart;
+    }
+
     protected static JFreeChart createSummarizerChart(CategoryDataset dataset, String yAxis, String chartTitle) {
 
         final JFreeChart chart = ChartFactory.createBarChart(
@@ -254,6 +817,165 @@ public final class PerformanceProjectAction implements Action {
                 createErrorsChart(dataSetBuilderErrors.build()), 400, 200);
     }
 
+    /**
+     * Draws the Apdex score of the report in each build with a summary.
+     */
+    public void doApdexGraph(StaplerRequest request, StaplerResponse response)
+            throws IOException {
+        final PerformanceReportPosition performanceReportPosition = new PerformanceReportPosition();
+        request.bindParameters(performanceReportPosition);
+        String performanceReportNameFile = performanceReportPosition.getPerformanceReportPosition();
+        if (performanceReportNameFile == null) {
+            if (getPerformanceReportList().size() == 1) {
+                performanceReportNameFile = getPerformanceReportList().get(0);
+            } else {
+                return;
+            }
+        }
+        if (ChartUtil.awtProblemCause != null) {
+            // not available. send out error message
+            response.sendRedirect2(request.getContextPath() + "/images/headless.png");
+            return;
+        }
+        final DataSetBuilder<String, NumberOnlyBuildLabel> dataSetBuilderApdex = new DataSetBuilder<String, NumberOnlyBuildLabel>();
+        final List<? extends AbstractBuild<?, ?>> builds = getProject().getBuilds();
+        final Range buildsLimits = getFirstAndLastBuild(request, builds);
+
+        int nbBuildsToAnalyze = builds.size();
+        for (final AbstractBuild<?, ?> currentBuild : builds) {
+            if (buildsLimits.in(nbBuildsToAnalyze)) {
+
+                if (!buildsLimits.includedByStep(currentBuild.number)) {
+                    continue;
+                }
+
+                final PerformanceBuildAction performanceBuildAction = currentBuild
+                        .getAction(PerformanceBuildAction.class);
+                if (performanceBuildAction == null) {
+                    continue;
+                }
+                final PerformanceSummary summary = performanceBuildAction.getSummary();
+                final ReportSummary report = summary == null ? null
+                        : summary.getReport(performanceReportNameFile);
+                if (report == null) {
+                    nbBuildsToAnalyze--;
+                    continue;
+                }
+                if (report.hasApdex()) {
+                    dataSetBuilderApdex.add(report.getApdex(),
+                            Messages.ProjectAction_Apdex(),
+                            new NumberOnlyBuildLabel(currentBuild));
+                }
+            }
+            nbBuildsToAnalyze--;
+        }
+        ChartUtil.generateGraph(request, response,
+                createApdexChart(dataSetBuilderApdex.build()), 400, 200);
+    }
+
+    /**
+     * Trend of the capacity from the saved summaries, skipping the builds
+     * which did not saturate.
+     */
+    public void doCapacityGraph(StaplerRequest request, StaplerResponse response)
+            throws IOException {
+        final PerformanceReportPosition performanceReportPosition = new PerformanceReportPosition();
+        request.bindParameters(performanceReportPosition);
+        String performanceReportNameFile = performanceReportPosition.getPerformanceReportPosition();
+        if (performanceReportNameFile == null) {
+            if (getPerformanceReportList().size() == 1) {
+                performanceReportNameFile = getPerformanceReportList().get(0);
+            } else {
+                return;
+            }
+        }
+        if (ChartUtil.awtProblemCause != null) {
+            // not available. send out error message
+            response.sendRedirect2(request.getContextPath() + "/images/headless.png");
+            return;
+        }
+        final DataSetBuilder<String, NumberOnlyBuildLabel> dataSetBuilderCapacity = new DataSetBuilder<String, NumberOnlyBuildLabel>();
+        final List<? extends AbstractBuild<?, ?>> builds = getProject().getBuilds();
+        final Range buildsLimits = getFirstAndLastBuild(request, builds);
+
+        int nbBuildsToAnalyze = builds.size();
+        for (final AbstractBuild<?, ?> currentBuild : builds) {
+            if (buildsLimits.in(nbBuildsToAnalyze)) {
+
+                if (!buildsLimits.includedByStep(currentBuild.number)) {
+                    continue;
+                }
+
+                final PerformanceBuildAction performanceBuildAction = currentBuild
+                        .getAction(PerformanceBuildAction.class);
+                if (performanceBuildAction == null) {
+                    continue;
+                }
+                final PerformanceSummary summary = performanceBuildAction.getSummary();
+                final ReportSummary report = summary == null ? null
+                        : summary.getReport(performanceReportNameFile);
+                if (report == null) {
+                    nbBuildsToAnalyze--;
+                    continue;
+                }
+                if (report.getCapacity() > 0) {
+                    dataSetBuilderCapacity.add(report.getCapacity(),
+                            Messages.ProjectAction_ActiveThreads(),
+                            new NumberOnlyBuildLabel(currentBuild));
+                }
+            }
+            nbBuildsToAnalyze--;
+        }
+        ChartUtil.generateGraph(request, response,
+                createCapacityChart(dataSetBuilderCapacity.build()), 400, 200);
+    }
+
+    /**
+     * Trend of the coefficients of the scalability model of each build, from
+     * their saved summaries, skipping the builds without a summary or without
+     * enough levels of concurrency.
+     */
+    public void doScalabilityGraph(StaplerRequest request, StaplerResponse response)
+            throws IOException {
+        if (ChartUtil.awtProblemCause != null) {
+            // not available. send out error message
+            response.sendRedirect2(request.getContextPath() + "/images/headless.png");
+            return;
+        }
+        final DataSetBuilder<String, NumberOnlyBuildLabel> dataSetBuilderContention = new DataSetBuilder<String, NumberOnlyBuildLabel>();
+        final DataSetBuilder<String, NumberOnlyBuildLabel> dataSetBuilderCoherency = new DataSetBuilder<String, NumberOnlyBuildLabel>();
+        final List<? extends AbstractBuild<?, ?>> builds = getProject().getBuilds();
+        final Range buildsLimits = getFirstAndLastBuild(request, builds);
+
+        // each summary is read once, for its own build and for the later
+        // builds which miss some of its levels
+        final List<PerformanceSummary> summaries = ScalabilityModel.savedSummaries(builds);
+        int nbBuildsToAnalyze = builds.size();
+        for (int index = 0; index < builds.size(); index++) {
+            final AbstractBuild<?, ?> currentBuild = builds.get(index);
+            if (buildsLimits.in(nbBuildsToAnalyze)) {
+
+                if (!buildsLimits.includedByStep(currentBuild.number)) {
+                    continue;
+                }
+
+                final ScalabilityModel model = ScalabilityModel.of(summaries.subList(index,
+                        summaries.size()));
+                if (model != null) {
+                    final NumberOnlyBuildLabel label = new NumberOnlyBuildLabel(currentBuild);
+                    dataSetBuilderContention.add(model.getContention(),
+                            Messages.ProjectAction_Contention(), label);
+                    dataSetBuilderCoherency.add(model.getCoherency(),
+                            Messages.ProjectAction_Coherency(), label);
+                }
+            }
+            nbBuildsToAnalyze--;
+        }
+        ChartUtil.generateGraph(request, response,
+                createScalabilityTrendChart(dataSetBuilderContention.build(),
+                        dataSetBuilderCoherency.build()), 400, 200);
+    }
+
     public void doRespondingTimeGraphPerTestCaseMode(StaplerRequest request,
             StaplerResponse response) throws IOException {
         final PerformanceReportPosition performanceReportPosition = new PerformanceReportPosition();
@@ -274,6 +996,9 @@ public final class PerformanceProjectAction implements Action {
         final DataSetBuilder<String, NumberOnlyBuildLabel> dataSetBuilderAverage = new DataSetBuilder<String, NumberOnlyBuildLabel>();
         final List<? extends AbstractBuild<?, ?>> builds = getProject().getBuilds();
         final Range buildsLimits = getFirstAndLastBuild(request, builds);
+        final Map<Integer, ChangePoints.ChangePoint> changePoints = ChangePoints.load(getProject())
+                .getChangePoints(performanceReportNameFile, true);
+        final Map<NumberOnlyBuildLabel, ChangePoints.ChangePoint> markers = new HashMap<NumberOnlyBuildLabel, ChangePoints.ChangePoint>();
 
         int nbBuildsToAnalyze = builds.size();
 
@@ -284,6 +1009,9 @@ public final class PerformanceProjectAction implements Action {
                 if (!buildsLimits.includedByStep(build.number)) {
                     continue;
                 }
+                if (changePoints.containsKey(build.number)) {
+                    markers.put(label, changePoints.get(build.number));
+                }
                 final PerformanceBuildAction performanceBuildAction = build.getAction(PerformanceBuildAction.class);
                 if (performanceBuildAction == null) {
                     continue;
@@ -316,8 +1044,9 @@ public final class PerformanceProjectAction implements Action {
             }
             nbBuildsToAnalyze--;
         }
-        ChartUtil.generateGraph(request, response,
-                createRespondingTimeChart(dataSetBuilderAverage.build()), 600, 200);
+        final JFreeChart chart = createRespondingTimeChart(dataSetBuilderAverage.build());
+        addChangePointMarkers(chart, markers);
+        ChartUtil.generateGraph(request, response, chart, 600, 200);
 
     }
 
@@ -341,6 +1070,9 @@ public final class PerformanceProjectAction implements Action {
         final DataSetBuilder<String, NumberOnlyBuildLabel> dataSetBuilderAverage = new DataSetBuilder<String, NumberOnlyBuildLabel>();
         final List<? extends AbstractBuild<?, ?>> builds = getProject().getBuilds();
         final Range buildsLimits = getFirstAndLastBuild(request, builds);
+        final Map<Integer, ChangePoints.ChangePoint> changePoints = ChangePoints.load(getProject())
+                .getChangePoints(performanceReportNameFile, false);
+        final Map<NumberOnlyBuildLabel, ChangePoints.ChangePoint> markers = new HashMap<NumberOnlyBuildLabel, ChangePoints.ChangePoint>();
 
         int nbBuildsToAnalyze = builds.size();
         for (final AbstractBuild<?, ?> build : builds) {
@@ -351,6 +1083,9 @@ public final class PerformanceProjectAction implements Action {
                 }
 
                 final NumberOnlyBuildLabel label = new NumberOnlyBuildLabel(build);
+                if (changePoints.containsKey(build.number)) {
+                    markers.put(label, changePoints.get(build.number));
+                }
                 final PerformanceBuildAction performanceBuildAction = build.getAction(PerformanceBuildAction.class);
                 if (performanceBuildAction == null) {
                     continue;
@@ -372,8 +1107,9 @@ public final class PerformanceProjectAction implements Action {
             nbBuildsToAnalyze--;
             continue;
         }
-        ChartUtil.generateGraph(request, response,
-                createRespondingTimeChart(dataSetBuilderAverage.build()), 400, 200);
+        final JFreeChart chart = createRespondingTimeChart(dataSetBuilderAverage.build());
+        addChangePointMarkers(chart, markers);
+        ChartUtil.generateGraph(request, response, chart, 400, 200);
     }
 
     public void doSummarizerGraph(StaplerRequest request,
@@ -582,6 +1318,15 @@ public final class PerformanceProjectAction implements Action {
             return createTrendReport(request);
         } else if (TESTSUITE_LINK.equals(link)) {
             return createTestsuiteReport(request, response);
+        } else if (COMPARE_LINK.equals(link)) {
+            return new CompareReportDetail(project, getTrendReportFilename(request),
+                    request.getParameter("uri"), request.getParameter("builds"));
+        } else if (REGRESSIONS_LINK.equals(link)) {
+            return new ChangePointDetail(project);
+        } else if (BISECT_LINK.equals(link)) {
+            return new BisectDetail(project, getTrendReportFilename(request),
+                    request.getParameter("uri"), request.getParameter("metric"),
+                    request.getParameter("threshold"));
         } else {
             return null;
         }
@@ -705,6 +1450,19 @@ public final class PerformanceProjectAction implements Action {
         return b;
     }
 
+    /**
+     * Whether a parser of the project computes the Apdex of some URIs.
+     */
+    public boolean ifApdexUsed() {
+        for (final PerformanceReportParser parser : project.getPublishersList()
+                .get(PerformancePublisher.class).getParsers()) {
+            if (parser.getApdexThresholdMs() > 0 || parser.getApdexRules() != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public boolean ifModePerformancePerTestCaseUsed() {
         return project.getPublishersList().get(PerformancePublisher.class).isModePerformancePerTestCase();
     }
@@ -3,30 +3,47 @@ package hudson.plugins.performance;
 import hudson.Extension;
 import hudson.FilePath;
 import hudson.Launcher;
+import hudson.Util;
 import hudson.model.Action;
 import hudson.model.BuildListener;
 import hudson.model.Result;
+import hudson.model.TaskListener;
 import hudson.model.AbstractBuild;
 import hudson.model.AbstractProject;
 import hudson.tasks.BuildStepDescriptor;
 import hudson.tasks.BuildStepMonitor;
 import hudson.tasks.Publisher;
 import hudson.tasks.Recorder;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.IOException2;
+import hudson.util.StreamTaskListener;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import net.sf.json.JSONObject;
+
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.StaplerRequest;
 
 public class PerformancePublisher extends Recorder {
 
@@ -52,6 +69,31 @@ public class PerformancePublisher extends Recorder {
         public boolean isApplicable(Class<? extends AbstractProject> jobType) {
             return true;
         }
+
+        @Override
+        public Publisher newInstance(StaplerRequest req, JSONObject formData)
+                throws FormException {
+            try {
+                new SlaRules(Util.fixEmptyAndTrim(formData.optString("slaRules")));
+            } catch (final IllegalArgumentException e) {
+                throw new FormException(e.getMessage(), e, "slaRules");
+            }
+            final PerformancePublisher publisher = (PerformancePublisher) super.newInstance(req, formData);
+            publisher.parsers = bindParsers(req, formData, getParserDescriptors());
+            return publisher;
+        }
+
+        /**
+         * Binds the parsers of the hetero-list through their descriptors:
+         * binding the publisher only calls their
+         * {@link DataBoundConstructor}, which drops the options set by
+         * {@link PerformanceReportParserDescriptor#newInstance}.
+         */
+        static List<PerformanceReportParser> bindParsers(StaplerRequest req, JSONObject formData,
+                Collection<? extends PerformanceReportParserDescriptor> descriptors)
+                throws FormException {
+            return newInstancesFromHeteroList(req, formData, "parsers", descriptors);
+        }
     }
 
     private int sleTimeMillisec = 0;
@@ -62,6 +104,35 @@ public class PerformancePublisher extends Recorder {
 
     private boolean modePerformancePerTestCase = false;
 
+    /**
+     * Drop in percent of the capacity from the previous build which fails the
+     * build, 0 to disable.
+     */
+    private int capacityDropThreshold = 0;
+
+    /**
+     * Per URI service level agreements, see {@link SlaRules}.
+     */
+    private String slaRules;
+
+    /**
+     * Comparison with a baseline build, null to disable.
+     */
+    private RegressionGate regressionGate;
+
+    /**
+     * Apdex score of a report under which the build is unstable or failed, 0
+     * to disable.
+     */
+    private double apdexUnstableThreshold;
+
+    private double apdexFailedThreshold;
+
+    /**
+     * Number of previous builds searched for one which saturated.
+     */
+    private static final int MAX_CAPACITY_BUILDS = 20;
+
     /**
      * @deprecated as of 1.3. for compatibility
      */
@@ -73,12 +144,31 @@ public class PerformancePublisher extends Recorder {
      */
     private List<PerformanceReportParser> parsers;
 
+    public PerformancePublisher(int errorFailedThreshold,
+            int errorUnstableThreshold,
+            int sleTimeMillisec,
+            boolean modePerformancePerTestCase,
+            List<? extends PerformanceReportParser> parsers) {
+        this(errorFailedThreshold, errorUnstableThreshold, sleTimeMillisec,
+                modePerformancePerTestCase, 0, null, null, 0, 0, parsers);
+    }
+
     @DataBoundConstructor
     public PerformancePublisher(int errorFailedThreshold,
             int errorUnstableThreshold,
             int sleTimeMillisec,
             boolean modePerformancePerTestCase,
+            int capacityDropThreshold,
+            String slaRules,
+            RegressionGate regressionGate,
+            double apdexUnstableThreshold,
+            double apdexFailedThreshold,
             List<? extends PerformanceReportParser> parsers) {
+        this.apdexUnstableThreshold = Math.max(0, Math.min(apdexUnstableThreshold, 1));
+        this.apdexFailedThreshold = Math.max(0, Math.min(apdexFailedThreshold, 1));
+        this.capacityDropThreshold = Math.max(0, capacityDropThreshold);
+        this.slaRules = Util.fixEmptyAndTrim(slaRules);
+        this.regressionGate = regressionGate;
         this.errorFailedThreshold = errorFailedThreshold;
         this.errorUnstableThreshold = errorUnstableThreshold;
         this.sleTimeMillisec = sleTimeMillisec;
@@ -208,36 +298,82 @@ public class PerformancePublisher extends Recorder {
                 parsers);
         build.addAction(a);
 
-        final double thresholdTolerance = 0.00000001;
+        // locate, copy and parse the reports of every parser concurrently,
+        // each one into its own directory
+        final List<String> displayNames = new ArrayList<String>();
         for (final PerformanceReportParser parser : parsers) {
-            final String glob = parser.glob;
-            logger.println("Performance: Recording " + parser.getReportName()
-                    + " reports '" + glob + "'");
-
-            final List<FilePath> files = locatePerformanceReports(build.getWorkspace(),
-                    glob);
+            displayNames.add(parser.getDescriptor().getDisplayName());
+        }
+        final List<String> directories = PerformanceReportMap.getReportDirectoryNames(displayNames);
+        final List<ParserRun> runs = new ArrayList<ParserRun>();
+        for (int i = 0; i < parsers.size(); i++) {
+            runs.add(new ParserRun(build, parsers.get(i), directories.get(i)));
+        }
+        runConcurrently(runs);
 
-            if (files.isEmpty()) {
+        final List<PerformanceReport> allReports = new ArrayList<PerformanceReport>();
+        for (final ParserRun run : runs) {
+            run.replayConsole(logger);
+        }
+        for (final ParserRun run : runs) {
+            final PerformanceReportParser parser = run.parser;
+            if (run.files.isEmpty()) {
+                // nothing is recorded for a build with missing reports
                 if (build.getResult().isWorseThan(Result.UNSTABLE)) {
                     return true;
                 }
                 build.setResult(Result.FAILURE);
                 logger.println("Performance: no " + parser.getReportName()
-                        + " files matching '" + glob
+                        + " files matching '" + parser.glob
                         + "' have been found. Has the report generated?. Setting Build to "
                         + build.getResult());
                 return true;
             }
+            for (final PerformanceReport r : run.reports) {
+                // before the gates, which read the error percentage of every run of a group
+                r.setBuildAction(a);
+            }
+            allReports.addAll(run.reports);
+        }
+        final PerformanceSummary summary = PerformanceSummary.of(allReports);
+        final boolean slaFailed = checkSla(allReports, summary, logger);
+        if (slaFailed) {
+            build.setResult(Result.FAILURE);
+        }
+        if (regressionGate != null) {
+            final Result regression = regressionGate.check(build, summary, logger);
+            if (regression.isWorseThan(build.getResult())) {
+                build.setResult(regression);
+            }
+        }
+        summary.save(build);
+        for (final ChangePoints.ChangePoint c : ChangePoints.update(build, summary)) {
+            logger.println("Performance: the 90% line of " + (c.getUri() == null ? "" : c.getUri() + " in ")
+                    + c.getReportFileName() + " changed by " + c.getChangeFormated() + " from build #"
+                    + c.getBuild());
+        }
+
+        final Map<String, RepeatedRuns> repeatedRuns = new HashMap<String, RepeatedRuns>();
+        for (final RepeatedRuns group : RepeatedRuns.group(allReports)) {
+            repeatedRuns.put(group.getName(), group);
+            logger.println("Performance: " + group.getRunCount() + " runs of " + group.getName()
+                    + " have a 90% line of " + group.get90Line().getFormated() + " ms, deviating by "
+                    + group.get90Line().getDeviationFormated() + " ms from run to run");
+        }
 
-            final List<File> localReports = copyReportsToMaster(build, logger, files,
-                    parser.getDescriptor().getDisplayName());
-            final Collection<PerformanceReport> parsedReports = parser.parse(build,
-                    localReports, listener);
+        final double thresholdTolerance = 0.00000001;
+        for (final ParserRun run : runs) {
+            final Collection<PerformanceReport> parsedReports = run.reports;
 
             // mark the build as unstable or failure depending on the outcome.
             for (final PerformanceReport r : parsedReports) {
-                r.setBuildAction(a);
-                final double errorPercent = r.errorPercent();
+                // the repeated runs are checked on the bound of their interval
+                // nearest to the limit, so a gate fails only when the whole
+                // interval is beyond it
+                final RepeatedRuns group = r.getRunGroup() == null ? null : repeatedRuns.get(r
+                        .getRunGroup());
+                final double errorPercent = group == null ? r.errorPercent() : group
+                        .getErrorPercent().getLow();
                 Result result = Result.SUCCESS;
                 if (errorFailedThreshold >= 0 && errorPercent - errorFailedThreshold > thresholdTolerance) {
                     result = Result.FAILURE;
@@ -246,7 +382,8 @@ public class PerformancePublisher extends Recorder {
                         && errorPercent - errorUnstableThreshold > thresholdTolerance) {
                     result = Result.UNSTABLE;
                 } else {
-                    final long percentileLine = r.get90Line();
+                    final long percentileLine = group == null ? r.get90Line() : Math.round(group
+                            .get90Line().getLow());
                     if (percentileLine > sleTimeMillisec) {
                         logger.println("Failed to fall under 90th percentile threshold. Value is: "
                                 + percentileLine + " and the threshhold is " + sleTimeMillisec);
@@ -254,12 +391,37 @@ public class PerformancePublisher extends Recorder {
                     }
                 }
 
+                if (capacityDropThreshold > 0
+                        && isCapacityDropped(build, summary.getReport(r.getReportFileName()), logger)) {
+                    result = Result.FAILURE;
+                }
+
+                if (group == null ? r.hasApdex() : group.hasApdex()) {
+                    final double apdex = group == null ? r.getApdex() : group.getApdex()
+                            .getHigh();
+                    Result apdexResult = Result.SUCCESS;
+                    if (apdex < apdexFailedThreshold) {
+                        apdexResult = Result.FAILURE;
+                    } else if (apdex < apdexUnstableThreshold) {
+                        apdexResult = Result.UNSTABLE;
+                    }
+                    logger.println("Performance: File " + r.getReportFileName()
+                            + " has an Apdex of " + r.getApdexFormated()
+                            + (group == null ? "" : ", the runs of " + group.getName() + " "
+                                    + group.getApdex().getFormated()) + " [" + apdexResult + "]");
+                    if (apdexResult.isWorseThan(result)) {
+                        result = apdexResult;
+                    }
+                }
+
                 if (result.isWorseThan(build.getResult())) {
                     build.setResult(result);
                 }
                 logger.println("Performance: File " + r.getReportFileName()
-                        + " reported " + errorPercent
-                        + "% of errors [" + result + "]. Build status is: "
+                        + " reported " + r.errorPercent() + "% of errors"
+                        + (group == null ? "" : ", the runs of " + group.getName() + " "
+                                + group.getErrorPercent().getFormated() + "%")
+                        + " [" + result + "]. Build status is: "
                         + build.getResult());
             }
         }
@@ -267,12 +429,194 @@ public class PerformancePublisher extends Recorder {
         return true;
     }
 
-    private List<File> copyReportsToMaster(AbstractBuild<?, ?> build,
-            PrintStream logger, List<FilePath> files, String parserDisplayName)
+    /**
+     * Checks the URIs of the reports against the SLA rules, in a single pass
+     * over their aggregates, and records the outcome in the summary. The
+     * repeated runs are checked once, on the interval of their values.
+     * 
+     * @return whether any condition is not met or the rules are not valid.
+     */
+    private boolean checkSla(List<PerformanceReport> reports,
+            PerformanceSummary summary, PrintStream logger) {
+        final SlaRules rules;
+        try {
+            rules = new SlaRules(slaRules);
+        } catch (final IllegalArgumentException e) {
+            logger.println("Performance: " + e.getMessage());
+            return true;
+        }
+        if (rules.isEmpty()) {
+            return false;
+        }
+        final List<SlaResult> results = new ArrayList<SlaResult>();
+        for (final PerformanceReport r : reports) {
+            if (r.getRunGroup() == null) {
+                results.addAll(rules.evaluate(r));
+            }
+        }
+        for (final RepeatedRuns runs : RepeatedRuns.group(reports)) {
+            results.addAll(rules.evaluate(runs));
+        }
+        summary.setSlaResults(results);
+        int failed = 0;
+        for (final SlaResult result : results) {
+            if (!result.isPassed()) {
+                failed++;
+                logger.println("Performance: SLA not met by " + result.getUri()
+                        + " of " + result.getReportFileName() + ": "
+                        + result.getCondition() + ", was " + result.getValueFormated());
+            }
+        }
+        logger.println("Performance: " + (results.size() - failed) + " of "
+                + results.size() + " SLA conditions met");
+        return failed > 0;
+    }
+
+    /**
+     * Whether the capacity of the report dropped by more than the threshold
+     * from the last previous build in which the same report saturated. A
+     * test which did not saturate has not lost capacity.
+     */
+    private boolean isCapacityDropped(AbstractBuild<?, ?> build,
+            ReportSummary report, PrintStream logger) {
+        if (report == null || report.getCapacity() == 0) {
+            return false;
+        }
+        AbstractBuild<?, ?> previous = build.getPreviousBuild();
+        for (int i = 0; previous != null && i < MAX_CAPACITY_BUILDS; i++) {
+            final PerformanceSummary summary = PerformanceSummary.load(previous);
+            final ReportSummary previousReport = summary == null ? null
+                    : summary.getReport(report.getReportFileName());
+            if (previousReport != null && previousReport.getCapacity() > 0) {
+                final double drop = (previousReport.getCapacity() - report.getCapacity())
+                        * 100d / previousReport.getCapacity();
+                if (drop > capacityDropThreshold) {
+                    logger.println("Performance: capacity of " + report.getReportFileName()
+                            + " dropped from " + previousReport.getCapacity()
+                            + " threads in build #" + previous.number + " to "
+                            + report.getCapacity() + " threads, more than "
+                            + capacityDropThreshold + "%");
+                    return true;
+                }
+                return false;
+            }
+            previous = previous.getPreviousBuild();
+        }
+        return false;
+    }
+
+    /**
+     * Runs the given parser pipelines, each one on its own thread when there
+     * is more than one, and waits for all of them. Pipelines still running
+     * when the build is aborted are interrupted.
+     */
+    static void runConcurrently(List<? extends Callable<Void>> runs) throws IOException,
+            InterruptedException {
+        if (runs.size() <= 1) {
+            for (final Callable<Void> run : runs) {
+                try {
+                    run.call();
+                } catch (final Exception e) {
+                    throw failure(e);
+                }
+            }
+            return;
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(runs.size(),
+                new DaemonThreadFactory());
+        try {
+            final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (final Callable<Void> run : runs) {
+                futures.add(executor.submit(run));
+            }
+            for (final Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (final ExecutionException e) {
+                    throw failure(e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Rethrows the failure of a pipeline as is when possible.
+     */
+    private static IOException failure(Throwable cause) throws InterruptedException {
+        if (cause instanceof IOException) {
+            return (IOException) cause;
+        }
+        if (cause instanceof InterruptedException) {
+            throw (InterruptedException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new IOException2("Failed to parse performance reports", cause);
+    }
+
+    /**
+     * Locates, copies and parses the reports of a single parser. The console
+     * output is buffered so that it can be replayed in the configured parser
+     * order once all the pipelines are done.
+     */
+    private static final class ParserRun implements Callable<Void> {
+
+        private final AbstractBuild<?, ?> build;
+
+        private final PerformanceReportParser parser;
+
+        private final String directory;
+
+        private final ByteArrayOutputStream console = new ByteArrayOutputStream();
+
+        private List<FilePath> files = Collections.emptyList();
+
+        private Collection<PerformanceReport> reports = Collections.emptyList();
+
+        ParserRun(AbstractBuild<?, ?> build, PerformanceReportParser parser, String directory) {
+            this.build = build;
+            this.parser = parser;
+            this.directory = directory;
+        }
+
+        public Void call() throws IOException, InterruptedException {
+            final TaskListener listener = new StreamTaskListener(console);
+            final PrintStream logger = listener.getLogger();
+            logger.println("Performance: Recording " + parser.getReportName()
+                    + " reports '" + parser.glob + "'");
+
+            files = locatePerformanceReports(build.getWorkspace(), parser.glob);
+            if (!files.isEmpty()) {
+                final List<File> localReports = copyReportsToMaster(build, logger,
+                        files, directory);
+                try {
+                    reports = parser.parse(build, localReports, listener);
+                } catch (final InterruptedIOException e) {
+                    // the build was aborted while a report was being parsed
+                    throw new InterruptedException(e.getMessage());
+                }
+            }
+            logger.flush();
+            return null;
+        }
+
+        void replayConsole(PrintStream logger) throws IOException {
+            console.writeTo(logger);
+        }
+    }
+
+    private static List<File> copyReportsToMaster(AbstractBuild<?, ?> build,
+            PrintStream logger, List<FilePath> files, String directory)
             throws IOException, InterruptedException {
         final List<File> localReports = new ArrayList<File>();
         for (final FilePath src : files) {
-            final File localReport = getPerformanceReport(build, parserDisplayName,
+            final File localReport = getPerformanceReport(build, directory,
                     src.getName());
             if (src.isDirectory()) {
                 logger.println("Performance: File '" + src.getName()
@@ -334,6 +678,52 @@ public class PerformancePublisher extends Recorder {
         return modePerformancePerTestCase;
     }
 
+    public int getCapacityDropThreshold() {
+        return capacityDropThreshold;
+    }
+
+    public void setCapacityDropThreshold(int capacityDropThreshold) {
+        this.capacityDropThreshold = Math.max(0, capacityDropThreshold);
+    }
+
+    public String getSlaRules() {
+        return slaRules;
+    }
+
+    /**
+     * @throws IllegalArgumentException
+     *             if a rule is not valid.
+     */
+    public void setSlaRules(String slaRules) {
+        final String value = Util.fixEmptyAndTrim(slaRules);
+        new SlaRules(value);
+        this.slaRules = value;
+    }
+
+    public RegressionGate getRegressionGate() {
+        return regressionGate;
+    }
+
+    public void setRegressionGate(RegressionGate regressionGate) {
+        this.regressionGate = regressionGate;
+    }
+
+    public double getApdexUnstableThreshold() {
+        return apdexUnstableThreshold;
+    }
+
+    public void setApdexUnstableThreshold(double apdexUnstableThreshold) {
+        this.apdexUnstableThreshold = Math.max(0, Math.min(apdexUnstableThreshold, 1));
+    }
+
+    public double getApdexFailedThreshold() {
+        return apdexFailedThreshold;
+    }
+
+    public void setApdexFailedThreshold(double apdexFailedThreshold) {
+        this.apdexFailedThreshold = Math.max(0, Math.min(apdexFailedThreshold, 1));
+    }
+
     public String getFilename() {
         return filename;
     }
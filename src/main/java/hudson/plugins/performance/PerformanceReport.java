@@ -5,6 +5,7 @@ import hudson.model.AbstractBuild;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -33,8 +34,79 @@ public class PerformanceReport extends AbstractReport implements
 
     private PerformanceReport lastBuildReport;
 
+    /**
+     * Why parsing stopped before the end of the file, or null if the whole
+     * file was parsed.
+     */
+    private String truncationReason;
+
+    /**
+     * Label of the {@link UriReport} collecting the samples of the labels
+     * beyond {@link #maxUris}.
+     */
+    public static final String OTHER_URI = "(other)";
+
+    private LabelNormalizer labelNormalizer;
+
+    /**
+     * Apdex thresholds of the {@link UriReport}s, null for none.
+     */
+    private ApdexRules apdexRules;
+
+    /**
+     * Name of the {@link RepeatedRuns} the report is a run of, null when it
+     * is not a repeated run.
+     */
+    private String runGroup;
+
+    /**
+     * Whether the robust statistics of the response times are shown.
+     */
+    private boolean robustStatistics;
+
+    /**
+     * Expected interval in ms between two requests of a thread, to correct
+     * the response times for the coordinated omission. 0 means no correction.
+     */
+    private long expectedInterval;
+
+    /**
+     * Maximum number of distinct {@link UriReport}s, not counting
+     * {@link #OTHER_URI}. 0 means no limit.
+     */
+    private int maxUris;
+
+    /**
+     * First and last time stamps of the samples in the file, and of the window
+     * the statistics are computed over, when the report is trimmed. 0 when it
+     * is not.
+     */
+    private long testStart;
+
+    private long testEnd;
+
+    private long windowStart;
+
+    private long windowEnd;
+
+    /**
+     * Maximum number of samples kept by each {@link UriReport}, 0 means all
+     * of them.
+     */
+    private int samplesPerUri;
+
+    private Timeline timeline = new Timeline(1);
+
+    private final ConcurrencyProfile concurrencyProfile = new ConcurrencyProfile();
+
+    /**
+     * Width in seconds of the percentile windows of the {@link UriReport}s, 0
+     * for the default.
+     */
+    private int percentileWindowSec;
+
     public void addSample(HttpSample pHttpSample) {
-        final String uri = pHttpSample.getUri();
+        String uri = pHttpSample.getUri();
         if (uri == null) {
             buildAction
                     .getHudsonConsoleWriter()
@@ -42,14 +114,30 @@ public class PerformanceReport extends AbstractReport implements
                             "label cannot be empty, please ensure your jmx file specifies name properly for each http sample: skipping sample");
             return;
         }
-        final String staplerUri = uri.replace("http:", "").replaceAll("/", "_");
+        if (labelNormalizer != null) {
+            uri = labelNormalizer.normalize(uri);
+        }
+        String staplerUri = uri.replace("http:", "").replaceAll("/", "_");
         UriReport uriReport = uriReportMap.get(staplerUri);
+        if (uriReport == null && maxUris > 0
+                && uriReportMap.size() - (uriReportMap.containsKey(OTHER_URI) ? 1 : 0) >= maxUris) {
+            uri = OTHER_URI;
+            staplerUri = OTHER_URI;
+            uriReport = uriReportMap.get(staplerUri);
+        }
+        pHttpSample.setUri(uri);
         if (uriReport == null) {
-            uriReport = new UriReport(this, staplerUri, uri);
+            uriReport = new UriReport(this, staplerUri, uri, samplesPerUri,
+                    percentileWindowSec);
+            if (apdexRules != null) {
+                uriReport.setApdexThreshold(apdexRules.getThreshold(uri));
+            }
+            uriReport.setExpectedInterval(expectedInterval);
             uriReportMap.put(staplerUri, uriReport);
         }
         uriReport.addHttpSample(pHttpSample);
-
+        timeline.add(pHttpSample);
+        concurrencyProfile.add(pHttpSample);
     }
 
     private List<HttpSample> getSamplesOrdered() {
@@ -117,8 +205,15 @@ public class PerformanceReport extends AbstractReport implements
         return getPercentileLine(50);
     }
 
+    /**
+     * Exact when every sample is kept, otherwise read from the merged
+     * histograms of all the samples.
+     */
     @Override
     public long getPercentileLine(int percentile) {
+        if (isSampled()) {
+            return getHistogram().getValueAtPercentile(percentile);
+        }
         long result = 0;
         if (size() != 0) {
             final List<HttpSample> orderedSamples = getSamplesOrdered();
@@ -154,18 +249,236 @@ public class PerformanceReport extends AbstractReport implements
 
     @Override
     public long getMax() {
-        final List<HttpSample> orderedSamples = getSamplesOrdered();
-        return orderedSamples.get(orderedSamples.size() - 1).getDuration();
+        if (size() == 0) {
+            return 0;
+        }
+        long max = Long.MIN_VALUE;
+        for (final UriReport currentReport : uriReportMap.values()) {
+            max = Math.max(max, currentReport.getMax());
+        }
+        return max;
     }
 
     @Override
     public long getMin() {
         if (size() != 0) {
-            return getSamplesOrdered().get(0).getDuration();
+            long min = Long.MAX_VALUE;
+            for (final UriReport currentReport : uriReportMap.values()) {
+                min = Math.min(min, currentReport.getMin());
+            }
+            return min;
         }
         return 0;
     }
 
+    /**
+     * Whether some {@link UriReport}s only keep a subset of their samples.
+     */
+    public boolean isSampled() {
+        for (final UriReport currentReport : uriReportMap.values()) {
+            if (currentReport.isSampled()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Response times of every sample of the report.
+     */
+    public LatencyHistogram getHistogram() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (final UriReport currentReport : uriReportMap.values()) {
+            histogram.add(currentReport.getHistogram());
+        }
+        return histogram;
+    }
+
+    /**
+     * Standard deviation of all the response times, combined from the means
+     * and squared deviations of the URIs.
+     */
+    public long getStandardDeviation() {
+        long n = 0;
+        double mean = 0;
+        double squares = 0;
+        for (final UriReport currentReport : uriReportMap.values()) {
+            final int m = currentReport.size();
+            if (m == 0) {
+                continue;
+            }
+            final double delta = currentReport.getDurationMean() - mean;
+            squares += currentReport.getDurationSquares() + delta * delta * n * m / (n + m);
+            mean += delta * m / (n + m);
+            n += m;
+        }
+        return n < 2 ? 0 : Math.round(Math.sqrt(squares / (n - 1)));
+    }
+
+    /**
+     * Mean of all the response times without the fastest and the slowest
+     * {@link UriReport#TRIM_PERCENT} percent.
+     */
+    public long getTrimmedMean() {
+        return Math.round(getHistogram().getTrimmedMean(UriReport.TRIM_PERCENT));
+    }
+
+    public long getMedianAbsoluteDeviation() {
+        return Math.round(getHistogram().getMedianAbsoluteDeviation());
+    }
+
+    /**
+     * Number of samples whose response time is an outlier among all the
+     * samples of the report.
+     */
+    public long getOutliers() {
+        return getHistogram().countOutliers(UriReport.OUTLIER_THRESHOLD);
+    }
+
+    public long getTrimmedMeanDiff() {
+        if (lastBuildReport == null) {
+            return 0;
+        }
+        return getTrimmedMean() - lastBuildReport.getTrimmedMean();
+    }
+
+    public boolean isRobustStatistics() {
+        return robustStatistics;
+    }
+
+    /**
+     * Response times of all the samples corrected for the coordinated
+     * omission, null when they are not.
+     */
+    public LatencyHistogram getCorrectedHistogram() {
+        if (expectedInterval <= 0) {
+            return null;
+        }
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (final UriReport currentReport : uriReportMap.values()) {
+            if (currentReport.getCorrectedHistogram() != null) {
+                histogram.add(currentReport.getCorrectedHistogram());
+            }
+        }
+        return histogram;
+    }
+
+    public long getExpectedInterval() {
+        return expectedInterval;
+    }
+
+    /**
+     * Whether the samples have any of the JMeter latency, connect time, bytes
+     * and active threads attributes.
+     */
+    public boolean hasNetworkStatistics() {
+        for (final UriReport currentReport : uriReportMap.values()) {
+            if (currentReport.hasNetworkStatistics()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public long getAverageLatency() {
+        long total = 0;
+        int count = 0;
+        for (final UriReport currentReport : uriReportMap.values()) {
+            total += currentReport.getAverageLatency() * currentReport.getLatencyCount();
+            count += currentReport.getLatencyCount();
+        }
+        return count == 0 ? 0 : total / count;
+    }
+
+    public long getAverageConnectTime() {
+        long total = 0;
+        int count = 0;
+        for (final UriReport currentReport : uriReportMap.values()) {
+            total += currentReport.getAverageConnectTime() * currentReport.getConnectCount();
+            count += currentReport.getConnectCount();
+        }
+        return count == 0 ? 0 : total / count;
+    }
+
+    public long getAverageServerTime() {
+        return Math.max(0, getAverageLatency() - getAverageConnectTime());
+    }
+
+    public long getAverageTransferTime() {
+        return getAverageLatency() == 0 ? 0 : Math.max(0, getAverage() - getAverageLatency());
+    }
+
+    public long getTotalBytes() {
+        long total = 0;
+        for (final UriReport currentReport : uriReportMap.values()) {
+            total += currentReport.getTotalBytes();
+        }
+        return total;
+    }
+
+    public long getTotalSentBytes() {
+        long total = 0;
+        for (final UriReport currentReport : uriReportMap.values()) {
+            total += currentReport.getTotalSentBytes();
+        }
+        return total;
+    }
+
+    /**
+     * Bytes received per second over the whole test.
+     */
+    public long getBytesPerSecond() {
+        long first = Long.MAX_VALUE;
+        long last = Long.MIN_VALUE;
+        for (final UriReport currentReport : uriReportMap.values()) {
+            first = Math.min(first, currentReport.getFirstStart());
+            last = Math.max(last, currentReport.getLastEnd());
+        }
+        return last <= first ? 0 : getTotalBytes() * 1000 / (last - first);
+    }
+
+    public int getMaxActiveThreads() {
+        int max = 0;
+        for (final UriReport currentReport : uriReportMap.values()) {
+            max = Math.max(max, currentReport.getMaxActiveThreads());
+        }
+        return max;
+    }
+
+    /**
+     * Whether any URI has an Apdex threshold.
+     */
+    public boolean hasApdex() {
+        for (final UriReport currentReport : uriReportMap.values()) {
+            if (currentReport.hasApdex()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Apdex score of the samples of the URIs which have a threshold, each
+     * one against its own threshold, 0 when none has.
+     */
+    public double getApdex() {
+        long satisfied = 0;
+        long tolerating = 0;
+        long samples = 0;
+        for (final UriReport currentReport : uriReportMap.values()) {
+            if (currentReport.hasApdex()) {
+                satisfied += currentReport.getApdexSatisfied();
+                tolerating += currentReport.getApdexTolerating();
+                samples += currentReport.size();
+            }
+        }
+        return ApdexRules.score(satisfied, tolerating, samples);
+    }
+
+    public String getApdexFormated() {
+        return UriReport.formatApdex(getApdex());
+    }
+
     public String getReportFileName() {
         return reportFileName;
     }
@@ -194,7 +507,131 @@ public class PerformanceReport extends AbstractReport implements
 
     @Override
     public int size() {
-        return getSamplesOrdered().size();
+        int size = 0;
+        for (final UriReport currentReport : uriReportMap.values()) {
+            size += currentReport.size();
+        }
+        return size;
+    }
+
+    public boolean isTruncated() {
+        return truncationReason != null;
+    }
+
+    public String getTruncationReason() {
+        return truncationReason;
+    }
+
+    public void setTruncationReason(String truncationReason) {
+        this.truncationReason = truncationReason;
+    }
+
+    void setAnalysisWindow(long testStart, long testEnd, long windowStart, long windowEnd) {
+        this.testStart = testStart;
+        this.testEnd = testEnd;
+        this.windowStart = windowStart;
+        this.windowEnd = windowEnd;
+    }
+
+    /**
+     * Whether the statistics only cover part of the samples in the file,
+     * without the warm-up and cool-down.
+     */
+    public boolean isTrimmed() {
+        return windowStart != 0 || windowEnd != 0;
+    }
+
+    public Date getWindowStart() {
+        return new Date(windowStart);
+    }
+
+    public Date getWindowEnd() {
+        return new Date(windowEnd);
+    }
+
+    /**
+     * Seconds of samples dropped at the start of the test.
+     */
+    public long getTrimmedStartSec() {
+        return Math.max(0, windowStart - testStart) / 1000;
+    }
+
+    /**
+     * Seconds of samples dropped at the end of the test.
+     */
+    public long getTrimmedEndSec() {
+        return Math.max(0, testEnd - windowEnd) / 1000;
+    }
+
+    void setLabelNormalizer(LabelNormalizer labelNormalizer) {
+        this.labelNormalizer = labelNormalizer.isEmpty() ? null : labelNormalizer;
+    }
+
+    public String getRunGroup() {
+        return runGroup;
+    }
+
+    void setRunGroup(String runGroup) {
+        this.runGroup = runGroup;
+    }
+
+    void setRobustStatistics(boolean robustStatistics) {
+        this.robustStatistics = robustStatistics;
+    }
+
+    void setExpectedInterval(long expectedInterval) {
+        this.expectedInterval = expectedInterval;
+    }
+
+    void setApdexRules(ApdexRules apdexRules) {
+        this.apdexRules = apdexRules.isEmpty() ? null : apdexRules;
+    }
+
+    void setSamplesPerUri(int samplesPerUri) {
+        this.samplesPerUri = samplesPerUri;
+    }
+
+    public int getSamplesPerUri() {
+        return samplesPerUri;
+    }
+
+    /**
+     * Requests, errors and response times of the samples over time.
+     */
+    public Timeline getTimeline() {
+        return timeline;
+    }
+
+    /**
+     * Throughput and response times of the samples by number of active
+     * threads.
+     */
+    public ConcurrencyProfile getConcurrencyProfile() {
+        return concurrencyProfile;
+    }
+
+    void setTimelineIntervalSec(int timelineIntervalSec) {
+        timeline = new Timeline(timelineIntervalSec);
+    }
+
+    void setPercentileWindowSec(int percentileWindowSec) {
+        this.percentileWindowSec = percentileWindowSec;
+    }
+
+    void setMaxUris(int maxUris) {
+        this.maxUris = maxUris;
+    }
+
+    public int getMaxUris() {
+        return maxUris;
+    }
+
+    /**
+     * Whether some labels were merged into {@link #OTHER_URI} because of the
+     * limit of distinct URIs.
+     */
+    public boolean isUriLimitReached() {
+        return maxUris > 0 && uriReportMap.containsKey(OTHER_URI);
     }
 
     public void setLastBuildReport(PerformanceReport lastBuildReport) {
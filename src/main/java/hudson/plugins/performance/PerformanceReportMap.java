@@ -17,6 +17,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -152,6 +153,24 @@ public class PerformanceReportMap implements ModelObject {
         return getRelativePath(parserDisplayName, reportFileName);
     }
 
+    /**
+     * Names of the directories the reports of the parsers are copied to, in
+     * the order of the parsers. The first parser of a type uses its display
+     * name, the next ones of the same type add their rank to it, so that
+     * their reports do not overwrite each other.
+     */
+    static List<String> getReportDirectoryNames(List<String> parserDisplayNames) {
+        final List<String> names = new ArrayList<String>();
+        final Map<String, Integer> counts = new HashMap<String, Integer>();
+        for (final String displayName : parserDisplayNames) {
+            final Integer count = counts.get(displayName);
+            final int rank = count == null ? 1 : count + 1;
+            counts.put(displayName, rank);
+            names.add(rank == 1 ? displayName : displayName + "-" + rank);
+        }
+        return names;
+    }
+
     public static String getPerformanceReportDirRelativePath() {
         return getRelativePath();
     }
@@ -210,6 +229,120 @@ public class PerformanceReportMap implements ModelObject {
                 PerformanceProjectAction.createRespondingTimeChart(dataSetBuilderAverage.build()), 400, 200);
     }
 
+    /**
+     * Reports of the build grouped by the repeated runs of a test.
+     */
+    public List<RepeatedRuns> getRepeatedRuns() {
+        return RepeatedRuns.group(getPerformanceListOrdered());
+    }
+
+    /**
+     * Timeline saved with the build for the given report, or null if it has
+     * too few intervals to be drawn.
+     */
+    public Timeline getTimeline(String performanceReportName) {
+        final PerformanceSummary summary = buildAction.getSummary();
+        if (summary == null) {
+            return null;
+        }
+        final ReportSummary report = summary.getReport(performanceReportName);
+        if (report == null || report.getTimeline().getBuckets().size() < 2) {
+            return null;
+        }
+        return report.getTimeline();
+    }
+
+    /**
+     * Profile by number of active threads of the named report, or null
+     * unless it has at least two levels.
+     */
+    public ConcurrencyProfile getConcurrencyProfile(String performanceReportName) {
+        final PerformanceSummary summary = buildAction.getSummary();
+        if (summary == null) {
+            return null;
+        }
+        final ReportSummary report = summary.getReport(performanceReportName);
+        if (report == null || report.getConcurrencyProfile() == null
+                || report.getConcurrencyProfile().getLevels().size() < 2) {
+            return null;
+        }
+        return report.getConcurrencyProfile();
+    }
+
+    /**
+     * Outcome of the SLA rules of the publisher for the build.
+     */
+    public List<SlaResult> getSlaResults() {
+        final PerformanceSummary summary = buildAction.getSummary();
+        if (summary == null) {
+            return Collections.<SlaResult> emptyList();
+        }
+        return summary.getSlaResults();
+    }
+
+    /**
+     * Comparisons with the baseline of the regression gate for the build.
+     */
+    public List<Significance> getSignificances() {
+        final PerformanceSummary summary = buildAction.getSummary();
+        if (summary == null) {
+            return Collections.<Significance> emptyList();
+        }
+        return summary.getSignificances();
+    }
+
+    /**
+     * Scalability model fitted to the levels of concurrency of the build, or
+     * null without enough of them.
+     */
+    public ScalabilityModel getScalabilityModel() {
+        return ScalabilityModel.of(getBuild());
+    }
+
+    public void doScalabilityGraph(StaplerRequest request,
+            StaplerResponse response) throws IOException {
+        final ScalabilityModel model = getScalabilityModel();
+        if (model == null) {
+            response.sendError(StaplerResponse.SC_NOT_FOUND);
+            return;
+        }
+        ChartUtil.generateGraph(request, response,
+                PerformanceProjectAction.createScalabilityChart(model), 600, 300);
+    }
+
+    public void doConcurrencyGraph(StaplerRequest request,
+            StaplerResponse response) throws IOException {
+        final ConcurrencyProfile profile = getConcurrencyProfile(request.getParameter("performanceReportPosition"));
+        if (profile == null) {
+            response.sendError(StaplerResponse.SC_NOT_FOUND);
+            return;
+        }
+        ChartUtil.generateGraph(request, response,
+                PerformanceProjectAction.createConcurrencyChart(profile), 600, 300);
+    }
+
+    public void doTimelineGraph(StaplerRequest request,
+            StaplerResponse response) throws IOException {
+        final Timeline timeline = getTimeline(request.getParameter("performanceReportPosition"));
+        if (timeline == null) {
+            response.sendError(StaplerResponse.SC_NOT_FOUND);
+            return;
+        }
+        ChartUtil.generateGraph(request, response,
+                PerformanceProjectAction.createTimelineChart(timeline), 600, 225);
+    }
+
+    public void doHeatmapGraph(StaplerRequest request,
+            StaplerResponse response) throws IOException {
+        final Timeline timeline = getTimeline(request.getParameter("performanceReportPosition"));
+        if (timeline == null) {
+            response.sendError(StaplerResponse.SC_NOT_FOUND);
+            return;
+        }
+        ChartUtil.generateGraph(request, response,
+                PerformanceProjectAction.createHeatmapChart(new Heatmap(timeline)), 600, 300);
+    }
+
     public void doSummarizerGraph(StaplerRequest request,
             StaplerResponse response) throws IOException {
         final String parameter = request.getParameter("performanceReportPosition");
@@ -281,7 +414,7 @@ public class PerformanceReportMap implements ModelObject {
         // gracefully
         if (dirs != null) {
             for (final File dir : dirs) {
-                final PerformanceReportParser p = buildAction.getParserByDisplayName(dir.getName());
+                final PerformanceReportParser p = buildAction.getParserByDirectoryName(dir.getName());
                 if (p != null) {
                     final File[] listFiles = dir.listFiles(new FilenameFilter() {
 
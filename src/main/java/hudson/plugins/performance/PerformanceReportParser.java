@@ -2,6 +2,7 @@ package hudson.plugins.performance;
 
 import hudson.ExtensionList;
 import hudson.ExtensionPoint;
+import hudson.Util;
 import hudson.model.Describable;
 import hudson.model.TaskListener;
 import hudson.model.AbstractBuild;
@@ -9,7 +10,11 @@ import hudson.model.Hudson;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.PrintStream;
 import java.util.Collection;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.kohsuke.stapler.DataBoundConstructor;
 
@@ -30,6 +35,125 @@ public abstract class PerformanceReportParser implements
      */
     public final String glob;
 
+    /**
+     * Wall-clock time in seconds allowed for parsing a single report file. 0
+     * means no limit.
+     */
+    private int parseTimeoutSec;
+
+    /**
+     * Maximum number of samples kept for a single report file. 0 means no
+     * limit.
+     */
+    private int maxSamples;
+
+    /**
+     * Estimated heap budget in MB for the samples of a single report file. 0
+     * means no limit.
+     */
+    private int maxMemoryMb;
+
+    /**
+     * Regular expression a sample label must contain to be kept. Null or empty
+     * keeps every label.
+     */
+    private String includeLabels;
+
+    /**
+     * Regular expression of the sample labels to drop. Null or empty drops
+     * nothing.
+     */
+    private String excludeLabels;
+
+    /**
+     * Time stamps outside of this window are dropped, see
+     * {@link SampleFilter#parseTime(String)} for the format. Null or empty
+     * leaves the window open on that side.
+     */
+    private String windowStart;
+
+    private String windowEnd;
+
+    /**
+     * Response codes to keep, such as <code>2xx, 3xx</code>, and codes to drop
+     * prefixed with <code>!</code>, such as <code>!404</code>.
+     */
+    private String responseCodes;
+
+    /**
+     * Rewrite rules applied to the sample labels, see {@link LabelNormalizer}.
+     */
+    private String labelRules;
+
+    /**
+     * Maximum number of distinct URIs in a report, the samples of further
+     * labels go to {@link PerformanceReport#OTHER_URI}. 0 means no limit.
+     */
+    private int maxUris;
+
+    /**
+     * Maximum number of individual samples kept for each URI, the statistics
+     * still cover all of them. 0 keeps every sample.
+     */
+    private int samplesPerUri;
+
+    /**
+     * Seconds dropped at the start and at the end of each report. 0 drops
+     * nothing.
+     */
+    private int warmUpSec;
+
+    private int coolDownSec;
+
+    /**
+     * Whether the window of the statistics is narrowed to the steady state,
+     * see {@link SteadyStateWindow}.
+     */
+    private boolean detectSteadyState;
+
+    /**
+     * Initial width in seconds of the buckets of the {@link Timeline} of each
+     * report. 0 starts at one second.
+     */
+    private int timelineIntervalSec;
+
+    /**
+     * Width in seconds of the windows of the percentiles of each URI over
+     * time. 0 uses {@link UriReport#DEFAULT_WINDOW_SEC}.
+     */
+    private int percentileWindowSec;
+
+    /**
+     * Apdex threshold in ms of the URIs matched by no {@link #apdexRules}, 0
+     * for none.
+     */
+    private int apdexThresholdMs;
+
+    /**
+     * Apdex thresholds of the URIs, see {@link ApdexRules}.
+     */
+    private String apdexRules;
+
+    /**
+     * Expected interval in ms between two requests of a thread, such as the
+     * one of a constant throughput timer, to correct the response times for
+     * the coordinated omission. 0 means no correction.
+     */
+    private int expectedIntervalMs;
+
+    /**
+     * Whether the trimmed mean, the median absolute deviation, the standard
+     * deviation and the outliers of the response times are shown.
+     */
+    private boolean robustStatistics;
+
+    /**
+     * Regular expression of the file names of the repeated runs of a test,
+     * whose first group names the {@link RepeatedRuns} they belong to, such
+     * as <code>(.*)-run\d+\.jtl</code>. Null when the files are not runs.
+     */
+    private String runPattern;
+
     @DataBoundConstructor
     protected PerformanceReportParser(String glob) {
         this.glob = (glob == null || glob.length() == 0) ? getDefaultGlobPattern()
@@ -50,6 +174,42 @@ public abstract class PerformanceReportParser implements
 
     public abstract String getDefaultGlobPattern();
 
+    /**
+     * Creates the report a file is parsed into, set up with the label rules
+     * and the URI limit of this parser.
+     */
+    protected PerformanceReport newReport(String fileName) {
+        final PerformanceReport report = new PerformanceReport();
+        report.setReportFileName(fileName);
+        report.setLabelNormalizer(new LabelNormalizer(labelRules));
+        report.setMaxUris(maxUris);
+        report.setSamplesPerUri(samplesPerUri);
+        report.setTimelineIntervalSec(timelineIntervalSec);
+        report.setPercentileWindowSec(percentileWindowSec);
+        report.setApdexRules(new ApdexRules(apdexThresholdMs, apdexRules));
+        report.setExpectedInterval(expectedIntervalMs);
+        report.setRobustStatistics(robustStatistics);
+        report.setRunGroup(getRunGroup(fileName));
+        return report;
+    }
+
+    /**
+     * Keeps the samples parsed so far when a {@link ParseGuard} limit stops
+     * the parse loop, or propagates the abort of the build.
+     */
+    PerformanceReport truncate(PerformanceReport r, ParseLimitException e,
+            PrintStream logger) throws InterruptedIOException {
+        if (e.isInterrupted()) {
+            throw new InterruptedIOException("Parsing of " + r.getReportFileName()
+                    + " was interrupted");
+        }
+        r.setTruncationReason(e.getMessage());
+        logger.println("Performance: Stopped parsing " + r.getReportFileName()
+                + " because " + e.getMessage() + ". The report is truncated to "
+                + r.size() + " samples");
+        return r;
+    }
+
     /**
      * All registered implementations.
      */
@@ -60,4 +220,236 @@ public abstract class PerformanceReportParser implements
     public String getReportName() {
         return this.getClass().getName().replaceAll("^.*\\.(\\w+)Parser.*$", "$1");
     }
+
+    public int getParseTimeoutSec() {
+        return parseTimeoutSec;
+    }
+
+    public void setParseTimeoutSec(int parseTimeoutSec) {
+        this.parseTimeoutSec = Math.max(0, parseTimeoutSec);
+    }
+
+    public int getMaxSamples() {
+        return maxSamples;
+    }
+
+    public void setMaxSamples(int maxSamples) {
+        this.maxSamples = Math.max(0, maxSamples);
+    }
+
+    public int getMaxMemoryMb() {
+        return maxMemoryMb;
+    }
+
+    public void setMaxMemoryMb(int maxMemoryMb) {
+        this.maxMemoryMb = Math.max(0, maxMemoryMb);
+    }
+
+    public String getIncludeLabels() {
+        return includeLabels;
+    }
+
+    /**
+     * @throws java.util.regex.PatternSyntaxException
+     *             if the expression is not valid.
+     */
+    public void setIncludeLabels(String includeLabels) {
+        this.includeLabels = checkPattern(includeLabels);
+    }
+
+    public String getExcludeLabels() {
+        return excludeLabels;
+    }
+
+    /**
+     * @throws java.util.regex.PatternSyntaxException
+     *             if the expression is not valid.
+     */
+    public void setExcludeLabels(String excludeLabels) {
+        this.excludeLabels = checkPattern(excludeLabels);
+    }
+
+    public String getWindowStart() {
+        return windowStart;
+    }
+
+    /**
+     * @throws IllegalArgumentException
+     *             if the value is not a time stamp.
+     */
+    public void setWindowStart(String windowStart) {
+        this.windowStart = checkTime(windowStart);
+    }
+
+    public String getWindowEnd() {
+        return windowEnd;
+    }
+
+    /**
+     * @throws IllegalArgumentException
+     *             if the value is not a time stamp.
+     */
+    public void setWindowEnd(String windowEnd) {
+        this.windowEnd = checkTime(windowEnd);
+    }
+
+    public String getResponseCodes() {
+        return responseCodes;
+    }
+
+    public void setResponseCodes(String responseCodes) {
+        this.responseCodes = Util.fixEmptyAndTrim(responseCodes);
+    }
+
+    public String getLabelRules() {
+        return labelRules;
+    }
+
+    /**
+     * @throws IllegalArgumentException
+     *             if a rule is not valid.
+     */
+    public void setLabelRules(String labelRules) {
+        final String value = Util.fixEmptyAndTrim(labelRules);
+        new LabelNormalizer(value);
+        this.labelRules = value;
+    }
+
+    public int getMaxUris() {
+        return maxUris;
+    }
+
+    public void setMaxUris(int maxUris) {
+        this.maxUris = Math.max(0, maxUris);
+    }
+
+    public int getSamplesPerUri() {
+        return samplesPerUri;
+    }
+
+    public void setSamplesPerUri(int samplesPerUri) {
+        this.samplesPerUri = Math.max(0, samplesPerUri);
+    }
+
+    public int getWarmUpSec() {
+        return warmUpSec;
+    }
+
+    public void setWarmUpSec(int warmUpSec) {
+        this.warmUpSec = Math.max(0, warmUpSec);
+    }
+
+    public int getCoolDownSec() {
+        return coolDownSec;
+    }
+
+    public void setCoolDownSec(int coolDownSec) {
+        this.coolDownSec = Math.max(0, coolDownSec);
+    }
+
+    public boolean isDetectSteadyState() {
+        return detectSteadyState;
+    }
+
+    public void setDetectSteadyState(boolean detectSteadyState) {
+        this.detectSteadyState = detectSteadyState;
+    }
+
+    public int getTimelineIntervalSec() {
+        return timelineIntervalSec;
+    }
+
+    public void setTimelineIntervalSec(int timelineIntervalSec) {
+        this.timelineIntervalSec = Math.max(0, timelineIntervalSec);
+    }
+
+    public int getPercentileWindowSec() {
+        return percentileWindowSec;
+    }
+
+    public void setPercentileWindowSec(int percentileWindowSec) {
+        this.percentileWindowSec = Math.max(0, percentileWindowSec);
+    }
+
+    public int getApdexThresholdMs() {
+        return apdexThresholdMs;
+    }
+
+    public void setApdexThresholdMs(int apdexThresholdMs) {
+        this.apdexThresholdMs = Math.max(0, apdexThresholdMs);
+    }
+
+    /**
+     * Name of the {@link RepeatedRuns} the file is a run of: the first group
+     * of the run pattern, or the pattern itself when it has no group. Null
+     * when the file name does not match it.
+     */
+    String getRunGroup(String fileName) {
+        if (runPattern == null || fileName == null) {
+            return null;
+        }
+        final Matcher m = Pattern.compile(runPattern).matcher(fileName);
+        if (!m.matches()) {
+            return null;
+        }
+        return m.groupCount() > 0 && m.group(1) != null ? m.group(1) : runPattern;
+    }
+
+    public String getRunPattern() {
+        return runPattern;
+    }
+
+    /**
+     * @throws java.util.regex.PatternSyntaxException
+     *             if the expression is not valid.
+     */
+    public void setRunPattern(String runPattern) {
+        this.runPattern = checkPattern(runPattern);
+    }
+
+    public boolean isRobustStatistics() {
+        return robustStatistics;
+    }
+
+    public void setRobustStatistics(boolean robustStatistics) {
+        this.robustStatistics = robustStatistics;
+    }
+
+    public int getExpectedIntervalMs() {
+        return expectedIntervalMs;
+    }
+
+    public void setExpectedIntervalMs(int expectedIntervalMs) {
+        this.expectedIntervalMs = Math.max(0, expectedIntervalMs);
+    }
+
+    public String getApdexRules() {
+        return apdexRules;
+    }
+
+    /**
+     * @throws IllegalArgumentException
+     *             if a rule is not valid.
+     */
+    public void setApdexRules(String apdexRules) {
+        final String value = Util.fixEmptyAndTrim(apdexRules);
+        new ApdexRules(0, value);
+        this.apdexRules = value;
+    }
+
+    private static String checkPattern(String pattern) {
+        final String value = Util.fixEmpty(pattern);
+        if (value != null) {
+            Pattern.compile(value);
+        }
+        return value;
+    }
+
+    private static String checkTime(String time) {
+        final String value = Util.fixEmptyAndTrim(time);
+        if (value != null) {
+            SampleFilter.parseTime(value);
+        }
+        return value;
+    }
 }
@@ -3,6 +3,9 @@ package hudson.plugins.performance;
 import hudson.DescriptorExtensionList;
 import hudson.model.Descriptor;
 import hudson.model.Hudson;
+import net.sf.json.JSONObject;
+
+import org.kohsuke.stapler.StaplerRequest;
 
 /**
  * @author Kohsuke Kawaguchi
@@ -17,6 +20,52 @@ public abstract class PerformanceReportParserDescriptor extends
         return getClass().getName();
     }
 
+    /**
+     * Binds the parser specific fields through the
+     * {@link org.kohsuke.stapler.DataBoundConstructor}, then the options shared
+     * by all parsers.
+     */
+    @Override
+    public PerformanceReportParser newInstance(StaplerRequest req, JSONObject formData)
+            throws FormException {
+        final PerformanceReportParser parser = super.newInstance(req, formData);
+        parser.setParseTimeoutSec(formData.optInt("parseTimeoutSec"));
+        parser.setMaxSamples(formData.optInt("maxSamples"));
+        parser.setMaxMemoryMb(formData.optInt("maxMemoryMb"));
+        parser.setMaxUris(formData.optInt("maxUris"));
+        parser.setSamplesPerUri(formData.optInt("samplesPerUri"));
+        parser.setWarmUpSec(formData.optInt("warmUpSec"));
+        parser.setCoolDownSec(formData.optInt("coolDownSec"));
+        parser.setDetectSteadyState(formData.optBoolean("detectSteadyState"));
+        parser.setTimelineIntervalSec(formData.optInt("timelineIntervalSec"));
+        parser.setPercentileWindowSec(formData.optInt("percentileWindowSec"));
+        parser.setApdexThresholdMs(formData.optInt("apdexThresholdMs"));
+        parser.setExpectedIntervalMs(formData.optInt("expectedIntervalMs"));
+        parser.setRobustStatistics(formData.optBoolean("robustStatistics"));
+        String field = null;
+        try {
+            field = "includeLabels";
+            parser.setIncludeLabels(formData.optString(field));
+            field = "excludeLabels";
+            parser.setExcludeLabels(formData.optString(field));
+            field = "windowStart";
+            parser.setWindowStart(formData.optString(field));
+            field = "windowEnd";
+            parser.setWindowEnd(formData.optString(field));
+            field = "responseCodes";
+            parser.setResponseCodes(formData.optString(field));
+            field = "labelRules";
+            parser.setLabelRules(formData.optString(field));
+            field = "apdexRules";
+            parser.setApdexRules(formData.optString(field));
+            field = "runPattern";
+            parser.setRunPattern(formData.optString(field));
+        } catch (final IllegalArgumentException e) {
+            throw new FormException(e.getMessage(), e, field);
+        }
+        return parser;
+    }
+
     /**
      * Returns all the registered {@link PerformanceReportParserDescriptor}s.
      */
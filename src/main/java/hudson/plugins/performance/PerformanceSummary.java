@@ -0,0 +1,135 @@
+package hudson.plugins.performance;
+
+import hudson.XmlFile;
+import hudson.model.AbstractBuild;
+import hudson.util.XStream2;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Aggregates of the reports of a build, saved next to the build when the
+ * reports are published, so that pages and trends can use them without
+ * parsing the report files again.
+ */
+public class PerformanceSummary {
+
+    static final String FILE_NAME = "performance-summary.xml";
+
+    private static final Logger LOGGER = Logger.getLogger(PerformanceSummary.class.getName());
+
+    private static final XStream2 XSTREAM = new XStream2();
+
+    static {
+        XSTREAM.alias("performance-summary", PerformanceSummary.class);
+        XSTREAM.alias("report", ReportSummary.class);
+        XSTREAM.alias("uri", UriSummary.class);
+        XSTREAM.alias("bucket", Timeline.Bucket.class);
+        XSTREAM.alias("level", ConcurrencyProfile.Level.class);
+        XSTREAM.alias("sla", SlaResult.class);
+        XSTREAM.alias("significance", Significance.class);
+    }
+
+    private final List<ReportSummary> reports = new ArrayList<ReportSummary>();
+
+    /**
+     * Outcome of the SLA rules of the publisher, null for the summaries saved
+     * without them.
+     */
+    private List<SlaResult> slaResults;
+
+    /**
+     * Comparisons with the baseline of the regression gate, null for the
+     * summaries saved without them.
+     */
+    private List<Significance> significances;
+
+    /**
+     * Summarizes the given reports.
+     */
+    public static PerformanceSummary of(Collection<PerformanceReport> reports) {
+        final PerformanceSummary summary = new PerformanceSummary();
+        for (final PerformanceReport r : reports) {
+            summary.reports.add(new ReportSummary(r));
+        }
+        return summary;
+    }
+
+    /**
+     * Loads the summary saved with the build, or returns null when the build
+     * has none, such as the builds published by older versions of the plugin.
+     */
+    static PerformanceSummary load(AbstractBuild<?, ?> build) {
+        final XmlFile file = getFile(build);
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            return (PerformanceSummary) file.read();
+        } catch (final IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to load " + file, e);
+            return null;
+        }
+    }
+
+    void save(AbstractBuild<?, ?> build) throws IOException {
+        getFile(build).write(this);
+    }
+
+    private static XmlFile getFile(AbstractBuild<?, ?> build) {
+        return new XmlFile(XSTREAM, new File(build.getRootDir(), FILE_NAME));
+    }
+
+    public List<ReportSummary> getReports() {
+        return reports;
+    }
+
+    public List<SlaResult> getSlaResults() {
+        if (slaResults == null) {
+            return Collections.emptyList();
+        }
+        return slaResults;
+    }
+
+    void setSlaResults(List<SlaResult> slaResults) {
+        this.slaResults = slaResults;
+    }
+
+    public List<Significance> getSignificances() {
+        if (significances == null) {
+            return Collections.emptyList();
+        }
+        return significances;
+    }
+
+    void setSignificances(List<Significance> significances) {
+        this.significances = significances;
+    }
+
+    /**
+     * Whether any SLA condition is not met.
+     */
+    public boolean isSlaFailed() {
+        for (final SlaResult r : getSlaResults()) {
+            if (!r.isPassed()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public ReportSummary getReport(String reportFileName) {
+        for (final ReportSummary r : reports) {
+            if (r.getReportFileName().equals(reportFileName)) {
+                return r;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,316 @@
+package hudson.plugins.performance;
+
+import hudson.model.AbstractBuild;
+import hudson.model.Result;
+import hudson.util.DaemonThreadFactory;
+
+import java.io.PrintStream;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.kohsuke.stapler.DataBoundConstructor;
+
+/**
+ * Gate of the {@link PerformancePublisher} which compares a percentile and
+ * the throughput of each URI with a baseline, to catch the regressions which
+ * stay under the absolute thresholds.
+ *
+ * <p>
+ * The baseline is read from the summaries saved with the builds: the last
+ * successful build, a pinned build, or the median of the last builds.
+ *
+ * <p>
+ * With a confidence level, the response times of each URI are also compared
+ * with those of the baseline builds by a {@link Significance} test, and a
+ * regression of the percentile only counts when it is significant. Without
+ * tolerances, any significant regression sets the build as unstable.
+ */
+public class RegressionGate {
+
+    static final String LAST_SUCCESSFUL = "lastSuccessful";
+
+    static final String PINNED = "pinned";
+
+    static final String MEDIAN = "median";
+
+    /**
+     * Number of builds searched back for the baselines with a summary.
+     */
+    static final int MAX_BUILDS = 50;
+
+    private final String baseline;
+
+    private final int pinnedBuild;
+
+    private final int medianBuilds;
+
+    private final int percentile;
+
+    private final int unstableTolerance;
+
+    private final int failedTolerance;
+
+    /**
+     * Confidence level in percent of the significance tests, 0 to disable
+     * them.
+     */
+    private final int confidence;
+
+    public RegressionGate(String baseline, int pinnedBuild, int medianBuilds,
+            int percentile, int unstableTolerance, int failedTolerance) {
+        this(baseline, pinnedBuild, medianBuilds, percentile, unstableTolerance,
+                failedTolerance, 0);
+    }
+
+    /**
+     * @param baseline
+     *            {@link #LAST_SUCCESSFUL}, {@link #PINNED} or {@link #MEDIAN}.
+     * @param unstableTolerance
+     *            regression in percent which sets the build as unstable, 0 to
+     *            disable.
+     * @param failedTolerance
+     *            regression in percent which fails the build, 0 to disable.
+     * @param confidence
+     *            confidence level in percent of the significance tests, such
+     *            as 95, 0 to disable them.
+     */
+    @DataBoundConstructor
+    public RegressionGate(String baseline, int pinnedBuild, int medianBuilds,
+            int percentile, int unstableTolerance, int failedTolerance, int confidence) {
+        this.confidence = confidence <= 0 ? 0 : Math.max(50, Math.min(confidence, 99));
+        this.baseline = PINNED.equals(baseline) || MEDIAN.equals(baseline) ? baseline
+                : LAST_SUCCESSFUL;
+        this.pinnedBuild = Math.max(0, pinnedBuild);
+        this.medianBuilds = Math.max(1, medianBuilds);
+        this.percentile = Math.max(1, Math.min(percentile, 99));
+        this.unstableTolerance = Math.max(0, unstableTolerance);
+        this.failedTolerance = Math.max(0, failedTolerance);
+    }
+
+    public String getBaseline() {
+        return baseline;
+    }
+
+    public int getPinnedBuild() {
+        return pinnedBuild;
+    }
+
+    public int getMedianBuilds() {
+        return medianBuilds;
+    }
+
+    public int getPercentile() {
+        return percentile;
+    }
+
+    public int getUnstableTolerance() {
+        return unstableTolerance;
+    }
+
+    public int getFailedTolerance() {
+        return failedTolerance;
+    }
+
+    public int getConfidence() {
+        return confidence;
+    }
+
+    /**
+     * Summaries of the baseline builds, empty when there is none.
+     */
+    List<PerformanceSummary> getBaselineSummaries(AbstractBuild<?, ?> build) {
+        final List<PerformanceSummary> summaries = new ArrayList<PerformanceSummary>();
+        if (PINNED.equals(baseline)) {
+            final AbstractBuild<?, ?> pinned = build.getProject().getBuildByNumber(pinnedBuild);
+            final PerformanceSummary summary = pinned == null ? null : PerformanceSummary.load(pinned);
+            if (summary != null) {
+                summaries.add(summary);
+            }
+            return summaries;
+        }
+        AbstractBuild<?, ?> previous = LAST_SUCCESSFUL.equals(baseline) ? build
+                .getPreviousSuccessfulBuild() : build.getPreviousBuild();
+        final int wanted = MEDIAN.equals(baseline) ? medianBuilds : 1;
+        for (int i = 0; previous != null && i < MAX_BUILDS && summaries.size() < wanted; i++) {
+            final PerformanceSummary summary = PerformanceSummary.load(previous);
+            if (summary != null) {
+                summaries.add(summary);
+            }
+            previous = LAST_SUCCESSFUL.equals(baseline) ? previous
+                    .getPreviousSuccessfulBuild() : previous.getPreviousBuild();
+        }
+        return summaries;
+    }
+
+    /**
+     * Compares every URI of the summary with the baseline.
+     *
+     * @return the result of the build for the worst regression.
+     */
+    Result check(AbstractBuild<?, ?> build, PerformanceSummary summary, PrintStream logger)
+            throws InterruptedException {
+        return check(summary, getBaselineSummaries(build), logger);
+    }
+
+    /**
+     * Compares every URI of the summary with the given baseline summaries.
+     */
+    Result check(PerformanceSummary summary, List<PerformanceSummary> baselines,
+            PrintStream logger) throws InterruptedException {
+        if (baselines.isEmpty()) {
+            logger.println("Performance: no baseline build with a summary, skipping the regression gate");
+            return Result.SUCCESS;
+        }
+        final Map<String, Significance> significances = new HashMap<String, Significance>();
+        if (confidence > 0) {
+            final List<Significance> comparisons = compare(summary, baselines);
+            summary.setSignificances(comparisons);
+            for (final Significance s : comparisons) {
+                significances.put(s.getReportFileName() + '/' + s.getUri(), s);
+            }
+        }
+        Result result = Result.SUCCESS;
+        for (final ReportSummary report : summary.getReports()) {
+            for (final UriSummary uri : report.getUris()) {
+                final List<Double> percentiles = new ArrayList<Double>();
+                final List<Double> throughputs = new ArrayList<Double>();
+                for (final PerformanceSummary b : baselines) {
+                    final ReportSummary baselineReport = b.getReport(report.getReportFileName());
+                    final UriSummary baselineUri = baselineReport == null ? null
+                            : baselineReport.getUri(uri.getStaplerUri());
+                    if (baselineUri != null) {
+                        percentiles.add((double) baselineUri.getHistogram().getValueAtPercentile(percentile));
+                        if (baselineUri.getThroughput() > 0) {
+                            throughputs.add(baselineUri.getThroughput());
+                        }
+                    }
+                }
+                final Significance significance = significances.get(report.getReportFileName()
+                        + '/' + uri.getUri());
+                if (significance != null && significance.isSignificant()
+                        && unstableTolerance == 0 && failedTolerance == 0) {
+                    logger.println("Performance: " + uri.getUri() + " in " + report.getReportFileName()
+                            + " is significantly slower than the " + baseline + " baseline, effect size "
+                            + significance.getCliffsDeltaFormated() + ", p-value "
+                            + significance.getMannWhitneyPFormated() + " [" + Result.UNSTABLE + "]");
+                    if (Result.UNSTABLE.isWorseThan(result)) {
+                        result = Result.UNSTABLE;
+                    }
+                }
+                if (!percentiles.isEmpty() && (confidence == 0
+                        || significance != null && significance.isSignificant())) {
+                    final double regression = increase(median(percentiles),
+                            uri.getHistogram().getValueAtPercentile(percentile));
+                    result = worst(result, regression, report, uri, percentile + "% line", logger);
+                }
+                if (!throughputs.isEmpty() && uri.getThroughput() > 0) {
+                    final double regression = -increase(median(throughputs), uri.getThroughput());
+                    result = worst(result, regression, report, uri, "throughput", logger);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Runs the significance tests of the URIs which are in the baseline, in
+     * parallel as the bootstrap of many URIs takes a while.
+     */
+    private List<Significance> compare(PerformanceSummary summary,
+            List<PerformanceSummary> baselines) throws InterruptedException {
+        final List<Callable<Significance>> tasks = new ArrayList<Callable<Significance>>();
+        for (final ReportSummary report : summary.getReports()) {
+            for (final UriSummary uri : report.getUris()) {
+                final LatencyHistogram merged = new LatencyHistogram();
+                for (final PerformanceSummary b : baselines) {
+                    final ReportSummary baselineReport = b.getReport(report.getReportFileName());
+                    final UriSummary baselineUri = baselineReport == null ? null
+                            : baselineReport.getUri(uri.getStaplerUri());
+                    if (baselineUri != null) {
+                        merged.add(baselineUri.getHistogram());
+                    }
+                }
+                final LatencyHistogram current = uri.getHistogram();
+                if (merged.isEmpty() || current.isEmpty()) {
+                    continue;
+                }
+                final String reportFileName = report.getReportFileName();
+                tasks.add(new Callable<Significance>() {
+                    public Significance call() {
+                        // seeded by the URI for the same outcome on the same data
+                        return new Significance(reportFileName, uri.getUri(), merged, current,
+                                percentile, 1 - confidence / 100d,
+                                new Random(uri.getUri().hashCode()));
+                    }
+                });
+            }
+        }
+        final List<Significance> results = new ArrayList<Significance>();
+        if (tasks.isEmpty()) {
+            return results;
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(tasks.size(), Runtime.getRuntime().availableProcessors()),
+                new DaemonThreadFactory());
+        try {
+            for (final Future<Significance> future : executor.invokeAll(tasks)) {
+                try {
+                    results.add(future.get());
+                } catch (final ExecutionException e) {
+                    final Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    throw (Error) cause;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return results;
+    }
+
+    private Result worst(Result result, double regression, ReportSummary report,
+            UriSummary uri, String metric, PrintStream logger) {
+        Result r = Result.SUCCESS;
+        if (failedTolerance > 0 && regression > failedTolerance) {
+            r = Result.FAILURE;
+        } else if (unstableTolerance > 0 && regression > unstableTolerance) {
+            r = Result.UNSTABLE;
+        }
+        if (r != Result.SUCCESS) {
+            logger.println("Performance: " + metric + " of " + uri.getUri() + " in "
+                    + report.getReportFileName() + " regressed by "
+                    + new DecimalFormat("0.0").format(regression) + "% from the "
+                    + baseline + " baseline [" + r + "]");
+        }
+        return r.isWorseThan(result) ? r : result;
+    }
+
+    /**
+     * Change in percent from the baseline value, 0 when the baseline is 0.
+     */
+    static double increase(double baseline, double value) {
+        return baseline == 0 ? 0 : (value - baseline) * 100 / baseline;
+    }
+
+    static double median(List<Double> values) {
+        final List<Double> sorted = new ArrayList<Double>(values);
+        Collections.sort(sorted);
+        final int middle = sorted.size() / 2;
+        if (sorted.size() % 2 == 1) {
+            return sorted.get(middle);
+        }
+        return (sorted.get(middle - 1) + sorted.get(middle)) / 2;
+    }
+}
@@ -0,0 +1,282 @@
+package hudson.plugins.performance;
+
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Repeated runs of the same test within a build, the reports whose file name
+ * matches the run pattern of their {@link PerformanceReportParser},
+ * aggregated into one logical report.
+ *
+ * <p>
+ * Each statistic of a URI is the mean of its values over the runs, with the
+ * confidence interval at 95% of the mean from the Student t distribution and
+ * the deviation from run to run. The gates check the interval rather than
+ * the value of a single run: a condition fails only when the whole interval
+ * is beyond its limit.
+ */
+public class RepeatedRuns {
+
+    /**
+     * Quantiles at 97.5% of the Student t distribution by degrees of freedom,
+     * from 1 to 30, the normal one being used beyond.
+     */
+    private static final double[] STUDENT = { 12.706, 4.303, 3.182, 2.776, 2.571, 2.447,
+            2.365, 2.306, 2.262, 2.228, 2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110,
+            2.101, 2.093, 2.086, 2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048,
+            2.045, 2.042 };
+
+    private static final double NORMAL = 1.960;
+
+    private final String name;
+
+    private final List<PerformanceReport> runs = new ArrayList<PerformanceReport>();
+
+    RepeatedRuns(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Groups the reports which are runs of the same logical report, in the
+     * order of their first run. The other reports are left out.
+     */
+    static List<RepeatedRuns> group(Collection<PerformanceReport> reports) {
+        final Map<String, RepeatedRuns> groups = new LinkedHashMap<String, RepeatedRuns>();
+        for (final PerformanceReport r : reports) {
+            if (r.getRunGroup() == null) {
+                continue;
+            }
+            RepeatedRuns group = groups.get(r.getRunGroup());
+            if (group == null) {
+                group = new RepeatedRuns(r.getRunGroup());
+                groups.put(r.getRunGroup(), group);
+            }
+            group.runs.add(r);
+        }
+        for (final RepeatedRuns group : groups.values()) {
+            Collections.sort(group.runs);
+        }
+        return new ArrayList<RepeatedRuns>(groups.values());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<PerformanceReport> getRuns() {
+        return runs;
+    }
+
+    public int getRunCount() {
+        return runs.size();
+    }
+
+    public Interval getAverage() {
+        final double[] values = new double[runs.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = runs.get(i).getAverage();
+        }
+        return new Interval(values);
+    }
+
+    public Interval get90Line() {
+        final double[] values = new double[runs.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = runs.get(i).get90Line();
+        }
+        return new Interval(values);
+    }
+
+    public Interval getErrorPercent() {
+        final double[] values = new double[runs.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = runs.get(i).errorPercent();
+        }
+        return new Interval(values);
+    }
+
+    /**
+     * Whether any run has an Apdex threshold.
+     */
+    public boolean hasApdex() {
+        for (final PerformanceReport run : runs) {
+            if (run.hasApdex()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Apdex score over the runs which have a threshold.
+     */
+    public Interval getApdex() {
+        final List<Double> scores = new ArrayList<Double>();
+        for (final PerformanceReport run : runs) {
+            if (run.hasApdex()) {
+                scores.add(run.getApdex());
+            }
+        }
+        final double[] values = new double[scores.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = scores.get(i);
+        }
+        return new Interval(values);
+    }
+
+    /**
+     * URIs of any of the runs, in the order of the labels.
+     */
+    public List<UriRuns> getUris() {
+        final Map<String, UriRuns> uris = new LinkedHashMap<String, UriRuns>();
+        for (final PerformanceReport run : runs) {
+            for (final UriReport uriReport : run.getUriListOrdered()) {
+                UriRuns uri = uris.get(uriReport.getStaplerUri());
+                if (uri == null) {
+                    uri = new UriRuns(uriReport.getUri());
+                    uris.put(uriReport.getStaplerUri(), uri);
+                }
+                uri.runs.add(uriReport);
+            }
+        }
+        final List<UriRuns> sorted = new ArrayList<UriRuns>(uris.values());
+        Collections.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * A URI over the runs in which it was sampled.
+     */
+    public static class UriRuns implements Comparable<UriRuns> {
+
+        private final String uri;
+
+        private final List<UriReport> runs = new ArrayList<UriReport>();
+
+        UriRuns(String uri) {
+            this.uri = uri;
+        }
+
+        public String getUri() {
+            return uri;
+        }
+
+        public List<UriReport> getRuns() {
+            return runs;
+        }
+
+        public int getRunCount() {
+            return runs.size();
+        }
+
+        public Interval getAverage() {
+            final double[] values = new double[runs.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = runs.get(i).getAverage();
+            }
+            return new Interval(values);
+        }
+
+        public Interval get90Line() {
+            final double[] values = new double[runs.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = runs.get(i).get90Line();
+            }
+            return new Interval(values);
+        }
+
+        public Interval getErrorPercent() {
+            final double[] values = new double[runs.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = runs.get(i).errorPercent();
+            }
+            return new Interval(values);
+        }
+
+        public int compareTo(UriRuns o) {
+            return uri.compareTo(o.uri);
+        }
+    }
+
+    /**
+     * Mean of the values of the runs with its confidence interval, whose
+     * margin is 0 for a single run.
+     */
+    public static class Interval {
+
+        private final int count;
+
+        private final double mean;
+
+        private final double variance;
+
+        private final double margin;
+
+        Interval(double[] values) {
+            count = values.length;
+            double sum = 0;
+            for (final double value : values) {
+                sum += value;
+            }
+            mean = count == 0 ? 0 : sum / count;
+            double squares = 0;
+            for (final double value : values) {
+                squares += (value - mean) * (value - mean);
+            }
+            variance = count < 2 ? 0 : squares / (count - 1);
+            margin = count < 2 ? 0 : student(count - 1) * Math.sqrt(variance / count);
+        }
+
+        private static double student(int degrees) {
+            return degrees <= STUDENT.length ? STUDENT[degrees - 1] : NORMAL;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public double getMean() {
+            return mean;
+        }
+
+        /**
+         * Variance of the values from run to run.
+         */
+        public double getVariance() {
+            return variance;
+        }
+
+        public double getDeviation() {
+            return Math.sqrt(variance);
+        }
+
+        /**
+         * Half width of the confidence interval.
+         */
+        public double getMargin() {
+            return margin;
+        }
+
+        public double getLow() {
+            return mean - margin;
+        }
+
+        public double getHigh() {
+            return mean + margin;
+        }
+
+        public String getFormated() {
+            final DecimalFormat format = new DecimalFormat("#,##0.##");
+            return format.format(mean) + " \u00b1 " + format.format(margin);
+        }
+
+        public String getDeviationFormated() {
+            return new DecimalFormat("#,##0.##").format(getDeviation());
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package hudson.plugins.performance;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Saved aggregates of a single {@link PerformanceReport}.
+ *
+ * This object belongs under {@link PerformanceSummary}.
+ */
+public class ReportSummary {
+
+    private final String reportFileName;
+
+    private final Timeline timeline;
+
+    private final ConcurrencyProfile concurrencyProfile;
+
+    /**
+     * Response times of all the samples, see {@link LatencyHistogram#encode()}.
+     */
+    private final String histogram;
+
+    /**
+     * Response times corrected for the coordinated omission, see
+     * {@link LatencyHistogram#encode()}, null when they are not.
+     */
+    private final String correctedHistogram;
+
+    /**
+     * Apdex score of the URIs which have a threshold, null when none has or
+     * for the summaries saved without it.
+     */
+    private final Double apdex;
+
+    private final List<UriSummary> uris = new ArrayList<UriSummary>();
+
+    ReportSummary(PerformanceReport report) {
+        reportFileName = report.getReportFileName();
+        histogram = report.getHistogram().encode();
+        correctedHistogram = report.getCorrectedHistogram() == null ? null
+                : report.getCorrectedHistogram().encode();
+        apdex = report.hasApdex() ? report.getApdex() : null;
+        timeline = report.getTimeline();
+        // computes the percentiles of the buckets before they are saved
+        timeline.getBuckets();
+        concurrencyProfile = report.getConcurrencyProfile();
+        concurrencyProfile.getLevels();
+        for (final UriReport uriReport : report.getUriListOrdered()) {
+            uris.add(new UriSummary(uriReport));
+        }
+    }
+
+    public String getReportFileName() {
+        return reportFileName;
+    }
+
+    public Timeline getTimeline() {
+        return timeline;
+    }
+
+    /**
+     * Null for the summaries saved by older versions of the plugin.
+     */
+    public ConcurrencyProfile getConcurrencyProfile() {
+        return concurrencyProfile;
+    }
+
+    /**
+     * Number of active threads at which the system under test saturated, 0
+     * when it did not or when the samples have no number of threads.
+     */
+    public int getCapacity() {
+        return concurrencyProfile == null ? 0 : concurrencyProfile.getCapacity();
+    }
+
+    /**
+     * Null when the response times are not corrected for the coordinated
+     * omission.
+     */
+    public LatencyHistogram getCorrectedHistogram() {
+        return correctedHistogram == null ? null : LatencyHistogram.decode(correctedHistogram);
+    }
+
+    public boolean hasApdex() {
+        return apdex != null;
+    }
+
+    /**
+     * Apdex score from 0 to 1, 0 when no URI has a threshold.
+     */
+    public double getApdex() {
+        return apdex == null ? 0 : apdex;
+    }
+
+    public LatencyHistogram getHistogram() {
+        return LatencyHistogram.decode(histogram);
+    }
+
+    public List<UriSummary> getUris() {
+        return uris;
+    }
+
+    /**
+     * @param staplerUri
+     *            see {@link UriReport#getStaplerUri()}.
+     */
+    public UriSummary getUri(String staplerUri) {
+        for (final UriSummary u : uris) {
+            if (u.getStaplerUri().equals(staplerUri)) {
+                return u;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,82 @@
+package hudson.plugins.performance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Rules of the form <code>regex =&gt; value</code>, one per line, as
+ * configured for {@link LabelNormalizer}, {@link ApdexRules} and
+ * {@link SlaRules}. The value follows the last separator, so the regular
+ * expression may contain one. Empty lines and lines starting with
+ * <code>#</code> are ignored.
+ */
+class RuleLines {
+
+    static final String SEPARATOR = "=>";
+
+    private final String kind;
+
+    private final String expected;
+
+    private final List<String> rules = new ArrayList<String>();
+
+    private final List<Pattern> patterns = new ArrayList<Pattern>();
+
+    private final List<String> values = new ArrayList<String>();
+
+    /**
+     * @param kind
+     *            the rules in the error messages, such as
+     *            <code>an SLA rule</code>.
+     * @param expected
+     *            the value in the error messages, such as
+     *            <code>replacement</code>.
+     * @throws IllegalArgumentException
+     *             if a line has no separator or an invalid regex.
+     */
+    RuleLines(String text, String kind, String expected) {
+        this.kind = kind;
+        this.expected = expected;
+        if (text == null) {
+            return;
+        }
+        for (final String line : text.split("[\\r\\n]+")) {
+            final String rule = line.trim();
+            if (rule.length() == 0 || rule.startsWith("#")) {
+                continue;
+            }
+            final int separator = rule.lastIndexOf(SEPARATOR);
+            if (separator < 0) {
+                throw invalid(rule);
+            }
+            rules.add(rule);
+            patterns.add(Pattern.compile(rule.substring(0, separator).trim()));
+            values.add(rule.substring(separator + SEPARATOR.length()).trim());
+        }
+    }
+
+    int size() {
+        return rules.size();
+    }
+
+    Pattern getPattern(int index) {
+        return patterns.get(index);
+    }
+
+    String getValue(int index) {
+        return values.get(index);
+    }
+
+    /**
+     * Error for a rule whose value is not valid.
+     */
+    IllegalArgumentException invalid(int index) {
+        return invalid(rules.get(index));
+    }
+
+    private IllegalArgumentException invalid(String rule) {
+        return new IllegalArgumentException("Not " + kind + ": " + rule + ", expected regex "
+                + SEPARATOR + " " + expected);
+    }
+}
@@ -0,0 +1,164 @@
+package hudson.plugins.performance;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Selects the samples a parser keeps, from the label patterns, time window
+ * and response codes configured on the {@link PerformanceReportParser}. The
+ * filter is applied on the raw attributes of a sample, before any
+ * {@link HttpSample} is created for it.
+ */
+class SampleFilter {
+
+    private static final String[] TIME_FORMATS = { "yyyy-MM-dd HH:mm:ss", "yyyy-MM-dd HH:mm",
+            "yyyy-MM-dd" };
+
+    private final Pattern include;
+
+    private final Pattern exclude;
+
+    private final long from;
+
+    private final long to;
+
+    private final List<String> keptCodes = new ArrayList<String>();
+
+    private final List<String> droppedCodes = new ArrayList<String>();
+
+    private final boolean active;
+
+    SampleFilter(PerformanceReportParser parser) {
+        this(parser, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Narrows the time window configured on the parser to the given one.
+     */
+    SampleFilter(PerformanceReportParser parser, long windowStart, long windowEnd) {
+        include = isSet(parser.getIncludeLabels()) ? Pattern.compile(parser.getIncludeLabels())
+                : null;
+        exclude = isSet(parser.getExcludeLabels()) ? Pattern.compile(parser.getExcludeLabels())
+                : null;
+        from = Math.max(windowStart, isSet(parser.getWindowStart())
+                ? parseTime(parser.getWindowStart()) : Long.MIN_VALUE);
+        to = Math.min(windowEnd, isSet(parser.getWindowEnd())
+                ? parseTime(parser.getWindowEnd()) : Long.MAX_VALUE);
+        if (isSet(parser.getResponseCodes())) {
+            for (final String code : parser.getResponseCodes().trim().split("[,;\\s]+")) {
+                if (code.startsWith("!")) {
+                    droppedCodes.add(code.substring(1));
+                } else {
+                    keptCodes.add(code);
+                }
+            }
+        }
+        active = include != null || exclude != null || from != Long.MIN_VALUE
+                || to != Long.MAX_VALUE || !keptCodes.isEmpty() || !droppedCodes.isEmpty();
+    }
+
+    /**
+     * Whether the sample with the given label is kept. Used by the parsers
+     * whose samples have no time stamp nor response code.
+     */
+    boolean acceptLabel(String label) {
+        if (!active || label == null) {
+            return true;
+        }
+        return (include == null || include.matcher(label).find())
+                && (exclude == null || !exclude.matcher(label).find());
+    }
+
+    boolean accept(JtlAttributes attributes) {
+        if (!active) {
+            return true;
+        }
+        if (!acceptLabel(attributes.get("lb"))) {
+            return false;
+        }
+        if (from != Long.MIN_VALUE || to != Long.MAX_VALUE) {
+            final String ts = attributes.get("ts");
+            try {
+                final long timestamp = Long.parseLong(ts);
+                if (timestamp < from || timestamp > to) {
+                    return false;
+                }
+            } catch (final NumberFormatException e) {
+                return false;
+            }
+        }
+        return acceptResponseCode(attributes.get("rc"));
+    }
+
+    private boolean acceptResponseCode(String code) {
+        if (keptCodes.isEmpty() && droppedCodes.isEmpty()) {
+            return true;
+        }
+        final String rc = code == null ? "" : code;
+        for (final String dropped : droppedCodes) {
+            if (matchesCode(dropped, rc)) {
+                return false;
+            }
+        }
+        if (keptCodes.isEmpty()) {
+            return true;
+        }
+        for (final String kept : keptCodes) {
+            if (matchesCode(kept, rc)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Matches a response code against a pattern such as <code>404</code> or
+     * <code>5xx</code>, where <code>x</code> stands for any character.
+     */
+    static boolean matchesCode(String pattern, String code) {
+        if (pattern.length() != code.length()) {
+            return false;
+        }
+        for (int i = 0; i < pattern.length(); i++) {
+            final char p = pattern.charAt(i);
+            if (p != 'x' && p != 'X' && p != code.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses a bound of the time window, either in ms since the epoch or as a
+     * date in the time zone of the master.
+     *
+     * @throws IllegalArgumentException
+     *             if the value is in none of the supported formats.
+     */
+    static long parseTime(String value) {
+        final String trimmed = value.trim();
+        if (trimmed.matches("\\d+")) {
+            return Long.parseLong(trimmed);
+        }
+        for (final String format : TIME_FORMATS) {
+            final SimpleDateFormat dateFormat = new SimpleDateFormat(format);
+            dateFormat.setLenient(false);
+            try {
+                if (trimmed.length() == format.length()) {
+                    return dateFormat.parse(trimmed).getTime();
+                }
+            } catch (final ParseException e) {
+                // try the next format
+            }
+        }
+        throw new IllegalArgumentException("Not a time stamp: " + value
+                + ", expected ms since the epoch or yyyy-MM-dd HH:mm:ss");
+    }
+
+    private static boolean isSet(String value) {
+        return value != null && value.trim().length() > 0;
+    }
+}
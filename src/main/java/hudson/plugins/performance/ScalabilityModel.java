@@ -0,0 +1,304 @@
+package hudson.plugins.performance;
+
+import hudson.model.AbstractBuild;
+
+import java.text.DecimalFormat;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Universal Scalability Law fitted to the throughput measured at several
+ * numbers of active threads:
+ * <code>X(N) = &lambda;N / (1 + &sigma;(N - 1) + &kappa;N(N - 1))</code>,
+ * where &sigma; is the contention and &kappa; the coherency delay of the
+ * system under test.
+ *
+ * <p>
+ * The model is fitted by least squares on <code>N / X(N)</code>, which is a
+ * polynomial of <code>N</code>. When the coherency comes out negative,
+ * Amdahl's law, the model without coherency, is fitted instead.
+ */
+public class ScalabilityModel {
+
+    /**
+     * Number of previous builds searched for the levels of concurrency
+     * missing from a build.
+     */
+    static final int MAX_BUILDS = 20;
+
+    /**
+     * Distinct levels of concurrency needed for a fit.
+     */
+    static final int MIN_POINTS = 3;
+
+    private final double lambda;
+
+    private final double sigma;
+
+    private final double kappa;
+
+    /**
+     * Measured throughput by number of threads.
+     */
+    private final TreeMap<Double, Double> points;
+
+    private ScalabilityModel(double lambda, double sigma, double kappa,
+            TreeMap<Double, Double> points) {
+        this.lambda = lambda;
+        this.sigma = sigma;
+        this.kappa = kappa;
+        this.points = points;
+    }
+
+    /**
+     * Fits the model to the given throughput by number of threads, or
+     * returns null with less than {@link #MIN_POINTS} points or when the
+     * throughput does not fit it.
+     */
+    static ScalabilityModel fit(Map<Double, Double> throughputs) {
+        final TreeMap<Double, Double> points = new TreeMap<Double, Double>();
+        for (final Map.Entry<Double, Double> e : throughputs.entrySet()) {
+            if (e.getKey() > 0 && e.getValue() > 0) {
+                points.put(e.getKey(), e.getValue());
+            }
+        }
+        if (points.size() < MIN_POINTS) {
+            return null;
+        }
+        double[] c = leastSquares(points, 3);
+        if (c == null || c[2] < 0) {
+            c = leastSquares(points, 2);
+            if (c == null || c[1] < 0) {
+                c = leastSquares(points, 1);
+            }
+        }
+        if (c == null || c[0] <= 0) {
+            return null;
+        }
+        return new ScalabilityModel(1 / c[0], c.length > 1 ? c[1] / c[0] : 0,
+                c.length > 2 ? c[2] / c[0] : 0, points);
+    }
+
+    /**
+     * Coefficients of <code>N / X = c0 + c1(N - 1) + c2N(N - 1)</code> with
+     * the given number of terms, or null when they are undetermined.
+     */
+    private static double[] leastSquares(Map<Double, Double> points, int terms) {
+        final double[][] a = new double[terms][terms + 1];
+        for (final Map.Entry<Double, Double> e : points.entrySet()) {
+            final double n = e.getKey();
+            final double[] x = { 1, n - 1, n * (n - 1) };
+            final double y = n / e.getValue();
+            for (int i = 0; i < terms; i++) {
+                for (int j = 0; j < terms; j++) {
+                    a[i][j] += x[i] * x[j];
+                }
+                a[i][terms] += x[i] * y;
+            }
+        }
+        // Gaussian elimination with partial pivoting of the normal equations
+        for (int col = 0; col < terms; col++) {
+            int pivot = col;
+            for (int row = col + 1; row < terms; row++) {
+                if (Math.abs(a[row][col]) > Math.abs(a[pivot][col])) {
+                    pivot = row;
+                }
+            }
+            if (Math.abs(a[pivot][col]) < 1e-12) {
+                return null;
+            }
+            final double[] tmp = a[col];
+            a[col] = a[pivot];
+            a[pivot] = tmp;
+            for (int row = 0; row < terms; row++) {
+                if (row != col) {
+                    final double f = a[row][col] / a[col][col];
+                    for (int k = col; k <= terms; k++) {
+                        a[row][k] -= f * a[col][k];
+                    }
+                }
+            }
+        }
+        final double[] c = new double[terms];
+        for (int i = 0; i < terms; i++) {
+            c[i] = a[i][terms] / a[i][i];
+        }
+        return c;
+    }
+
+    /**
+     * Fits the model to the levels of concurrency of the reports of the
+     * build. Without enough of them, such as when each build runs a single
+     * load, the levels the build does not have are taken from the previous
+     * builds. Only the saved summaries are read, the builds without one are
+     * skipped. Null without enough levels, or if the build has no summary.
+     */
+    public static ScalabilityModel of(AbstractBuild<?, ?> build) {
+        final List<AbstractBuild<?, ?>> builds = new ArrayList<AbstractBuild<?, ?>>();
+        AbstractBuild<?, ?> current = build;
+        while (current != null && builds.size() <= MAX_BUILDS) {
+            builds.add(current);
+            current = current.getPreviousBuild();
+        }
+        return of(savedSummaries(builds));
+    }
+
+    /**
+     * Fits the model to the levels of concurrency of the first summary, the
+     * missing ones taken from the next summaries, those of the previous
+     * builds in order. The summaries are only read as far as needed.
+     *
+     * @param summaries
+     *            summaries of the build then of its previous builds, null
+     *            for the builds without one.
+     */
+    static ScalabilityModel of(List<PerformanceSummary> summaries) {
+        final PerformanceSummary own = summaries.isEmpty() ? null : summaries.get(0);
+        if (own == null) {
+            return null;
+        }
+        final Map<Double, Double> throughputs = throughputs(own);
+        for (int i = 1; throughputs.size() < MIN_POINTS && i < summaries.size()
+                && i <= MAX_BUILDS; i++) {
+            final PerformanceSummary summary = summaries.get(i);
+            if (summary != null) {
+                for (final Map.Entry<Double, Double> e : throughputs(summary).entrySet()) {
+                    if (!throughputs.containsKey(e.getKey())) {
+                        throughputs.put(e.getKey(), e.getValue());
+                    }
+                }
+            }
+        }
+        return fit(throughputs);
+    }
+
+    /**
+     * Saved summaries of the given builds, each one read on its first access
+     * only, through the cache of its {@link PerformanceBuildAction}.
+     */
+    static List<PerformanceSummary> savedSummaries(
+            final List<? extends AbstractBuild<?, ?>> builds) {
+        return new AbstractList<PerformanceSummary>() {
+
+            private final PerformanceSummary[] summaries = new PerformanceSummary[builds.size()];
+
+            private final boolean[] read = new boolean[builds.size()];
+
+            @Override
+            public PerformanceSummary get(int index) {
+                if (!read[index]) {
+                    final PerformanceBuildAction action = builds.get(index).getAction(
+                            PerformanceBuildAction.class);
+                    summaries[index] = action == null ? null : action.getSavedSummary();
+                    read[index] = true;
+                }
+                return summaries[index];
+            }
+
+            @Override
+            public int size() {
+                return builds.size();
+            }
+        };
+    }
+
+    /**
+     * Throughput by number of threads of all the reports of a summary.
+     */
+    static Map<Double, Double> throughputs(PerformanceSummary summary) {
+        final Map<Double, Double> throughputs = new TreeMap<Double, Double>();
+        for (final ReportSummary report : summary.getReports()) {
+            final ConcurrencyProfile profile = report.getConcurrencyProfile();
+            if (profile == null) {
+                continue;
+            }
+            for (final ConcurrencyProfile.Level level : profile.getLevels()) {
+                final Double load = profile.getLoad(level);
+                final Double previous = throughputs.get(load);
+                throughputs.put(load, previous == null ? level.getThroughput()
+                        : Math.max(previous, level.getThroughput()));
+            }
+        }
+        return throughputs;
+    }
+
+    /**
+     * Throughput at full efficiency of a single thread.
+     */
+    public double getLambda() {
+        return lambda;
+    }
+
+    /**
+     * Contention, the fraction of the work which is serialized.
+     */
+    public double getContention() {
+        return sigma;
+    }
+
+    /**
+     * Coherency delay, the cost of keeping the shared data consistent, which
+     * makes the throughput fall beyond the peak.
+     */
+    public double getCoherency() {
+        return kappa;
+    }
+
+    /**
+     * Whether the model has no coherency term, in which case the throughput
+     * tends to its peak without ever falling.
+     */
+    public boolean isAmdahl() {
+        return kappa == 0;
+    }
+
+    public double getThroughput(double threads) {
+        return lambda * threads / (1 + sigma * (threads - 1) + kappa * threads * (threads - 1));
+    }
+
+    /**
+     * Number of threads giving the highest throughput, 0 when the throughput
+     * never falls.
+     */
+    public double getPeakConcurrency() {
+        return kappa == 0 ? 0 : Math.sqrt((1 - sigma) / kappa);
+    }
+
+    /**
+     * Highest throughput predicted, its limit when it never falls, 0 when it
+     * scales without limit.
+     */
+    public double getPeakThroughput() {
+        if (kappa > 0) {
+            return getThroughput(Math.max(1, getPeakConcurrency()));
+        }
+        return sigma == 0 ? 0 : lambda / sigma;
+    }
+
+    public String getContentionFormated() {
+        return new DecimalFormat("0.######").format(sigma);
+    }
+
+    public String getCoherencyFormated() {
+        return new DecimalFormat("0.########").format(kappa);
+    }
+
+    public String getPeakConcurrencyFormated() {
+        return new DecimalFormat("0").format(getPeakConcurrency());
+    }
+
+    public String getPeakThroughputFormated() {
+        return new DecimalFormat("0.0").format(getPeakThroughput());
+    }
+
+    /**
+     * Measured throughput by number of threads the model is fitted to.
+     */
+    public Map<Double, Double> getPoints() {
+        return Collections.unmodifiableMap(points);
+    }
+}
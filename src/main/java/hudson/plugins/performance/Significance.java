@@ -0,0 +1,275 @@
+package hudson.plugins.performance;
+
+import java.text.DecimalFormat;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Whether the response times of a URI are significantly slower than in the
+ * baseline, from the histograms saved with the builds, so that the noise
+ * between two runs does not pass for a regression.
+ *
+ * <p>
+ * The Mann-Whitney U test and the Kolmogorov-Smirnov test run on the buckets
+ * of the histograms, the values of a bucket being ties. The confidence
+ * interval of the difference of the percentile is bootstrapped: the
+ * percentile of a resample of <code>n</code> values is the order statistic
+ * of rank <code>r</code>, whose quantile in the histogram follows a
+ * <code>Beta(r, n - r + 1)</code> distribution, so each replicate costs a
+ * lookup in the histogram instead of <code>n</code> draws.
+ */
+public class Significance {
+
+    static final int REPLICATES = 2000;
+
+    private final String reportFileName;
+
+    private final String uri;
+
+    private final int percentile;
+
+    private final long baselineValue;
+
+    private final long value;
+
+    private final double differenceLow;
+
+    private final double differenceHigh;
+
+    private final double cliffsDelta;
+
+    private final double mannWhitneyP;
+
+    private final double ksDistance;
+
+    private final double ksP;
+
+    private final boolean significant;
+
+    Significance(String reportFileName, String uri, LatencyHistogram baseline,
+            LatencyHistogram current, int percentile, double alpha, Random random) {
+        this.reportFileName = reportFileName;
+        this.uri = uri;
+        this.percentile = percentile;
+        baselineValue = baseline.getValueAtPercentile(percentile);
+        value = current.getValueAtPercentile(percentile);
+
+        final double n1 = baseline.getTotalCount();
+        final double n2 = current.getTotalCount();
+        final int buckets = Math.max(baseline.getBucketCount(), current.getBucketCount());
+        double u = 0;
+        double ties = 0;
+        double below1 = 0;
+        double below2 = 0;
+        double distance = 0;
+        for (int i = 0; i < buckets; i++) {
+            final double a = baseline.getCountAt(i);
+            final double b = current.getCountAt(i);
+            u += b * (below1 + a / 2);
+            ties += (a + b) * (a + b) * (a + b) - (a + b);
+            below1 += a;
+            below2 += b;
+            distance = Math.max(distance, Math.abs(below1 / n1 - below2 / n2));
+        }
+        cliffsDelta = 2 * u / (n1 * n2) - 1;
+        final double n = n1 + n2;
+        final double sigma = Math.sqrt(n1 * n2 / 12 * ((n + 1) - ties / (n * (n - 1))));
+        // one sided, the current response times being greater
+        mannWhitneyP = sigma == 0 ? 1 : 1 - normal((u - n1 * n2 / 2 - 0.5) / sigma);
+        ksDistance = distance;
+        ksP = kolmogorov(distance, n1 * n2 / n);
+
+        final double[] differences = new double[REPLICATES];
+        final Resampler resampler1 = new Resampler(baseline, percentile);
+        final Resampler resampler2 = new Resampler(current, percentile);
+        for (int i = 0; i < REPLICATES; i++) {
+            differences[i] = resampler2.next(random) - resampler1.next(random);
+        }
+        Arrays.sort(differences);
+        differenceLow = differences[(int) (REPLICATES * alpha / 2)];
+        differenceHigh = differences[(int) Math.min(REPLICATES - 1, REPLICATES * (1 - alpha / 2))];
+        significant = mannWhitneyP < alpha && differenceLow > 0;
+    }
+
+    /**
+     * Standard normal cumulative distribution, from the complementary error
+     * function of Numerical Recipes, accurate to 1.2e-7.
+     */
+    static double normal(double z) {
+        final double x = Math.abs(z) / Math.sqrt(2);
+        final double t = 1 / (1 + x / 2);
+        final double erfc = t * Math.exp(-x * x - 1.26551223 + t * (1.00002368 + t * (0.37409196
+                + t * (0.09678418 + t * (-0.18628806 + t * (0.27886807 + t * (-1.13520398
+                + t * (1.48851587 + t * (-0.82215223 + t * 0.17087277)))))))));
+        return z >= 0 ? 1 - erfc / 2 : erfc / 2;
+    }
+
+    /**
+     * Asymptotic p-value of the Kolmogorov-Smirnov distance for the given
+     * effective number of values.
+     */
+    static double kolmogorov(double distance, double n) {
+        final double lambda = (Math.sqrt(n) + 0.12 + 0.11 / Math.sqrt(n)) * distance;
+        if (lambda < 0.2) {
+            return 1;
+        }
+        double sum = 0;
+        for (int j = 1; j <= 100; j++) {
+            final double term = Math.exp(-2 * j * j * lambda * lambda);
+            sum += (j % 2 == 1 ? term : -term);
+            if (term < 1e-10) {
+                break;
+            }
+        }
+        return Math.max(0, Math.min(1, 2 * sum));
+    }
+
+    /**
+     * Draws the percentile of resamples of a histogram.
+     */
+    private static final class Resampler {
+
+        private final long[] cumulated;
+
+        private final long[] values;
+
+        private final long total;
+
+        private final long rank;
+
+        Resampler(LatencyHistogram histogram, int percentile) {
+            cumulated = new long[histogram.getBucketCount()];
+            values = new long[histogram.getBucketCount()];
+            long sum = 0;
+            for (int i = 0; i < cumulated.length; i++) {
+                sum += histogram.getCountAt(i);
+                cumulated[i] = sum;
+                values[i] = Math.max(histogram.getMin(),
+                        Math.min(histogram.getMax(), LatencyHistogram.upperBound(i)));
+            }
+            total = sum;
+            rank = Math.min(total - 1, (long) (total * (percentile / 100d))) + 1;
+        }
+
+        long next(Random random) {
+            if (total == 0) {
+                return 0;
+            }
+            final double x = gamma(rank, random);
+            final double y = gamma(total - rank + 1, random);
+            final long target = Math.max(1, (long) Math.ceil(x / (x + y) * total));
+            // first bucket whose cumulated count reaches the target
+            int low = 0;
+            int high = cumulated.length - 1;
+            while (low < high) {
+                final int middle = (low + high) >>> 1;
+                if (cumulated[middle] >= target) {
+                    high = middle;
+                } else {
+                    low = middle + 1;
+                }
+            }
+            return values[low];
+        }
+    }
+
+    /**
+     * Gamma distributed value of the given shape, at least 1, by the method
+     * of Marsaglia and Tsang.
+     */
+    static double gamma(double shape, Random random) {
+        final double d = shape - 1d / 3;
+        final double c = 1 / Math.sqrt(9 * d);
+        while (true) {
+            double x;
+            double v;
+            do {
+                x = random.nextGaussian();
+                v = 1 + c * x;
+            } while (v <= 0);
+            v = v * v * v;
+            final double u = random.nextDouble();
+            if (Math.log(u) < 0.5 * x * x + d - d * v + d * Math.log(v)) {
+                return d * v;
+            }
+        }
+    }
+
+    public String getReportFileName() {
+        return reportFileName;
+    }
+
+    public String getUri() {
+        return uri;
+    }
+
+    public int getPercentile() {
+        return percentile;
+    }
+
+    public long getBaselineValue() {
+        return baselineValue;
+    }
+
+    public long getValue() {
+        return value;
+    }
+
+    /**
+     * Bounds of the confidence interval of the difference of the percentile
+     * with the baseline, in ms.
+     */
+    public double getDifferenceLow() {
+        return differenceLow;
+    }
+
+    public double getDifferenceHigh() {
+        return differenceHigh;
+    }
+
+    /**
+     * Effect size, from -1 when every response time is faster than in the
+     * baseline to 1 when every one is slower.
+     */
+    public double getCliffsDelta() {
+        return cliffsDelta;
+    }
+
+    public double getMannWhitneyP() {
+        return mannWhitneyP;
+    }
+
+    public double getKsDistance() {
+        return ksDistance;
+    }
+
+    public double getKsP() {
+        return ksP;
+    }
+
+    /**
+     * Whether the response times are significantly slower than in the
+     * baseline: the Mann-Whitney test rejects the equality and the whole
+     * confidence interval of the difference of the percentile is above 0.
+     */
+    public boolean isSignificant() {
+        return significant;
+    }
+
+    public String getDifferenceFormated() {
+        final DecimalFormat format = new DecimalFormat("+0;-0");
+        return format.format(differenceLow) + " .. " + format.format(differenceHigh);
+    }
+
+    public String getCliffsDeltaFormated() {
+        return new DecimalFormat("+0.00;-0.00").format(cliffsDelta);
+    }
+
+    public String getMannWhitneyPFormated() {
+        return new DecimalFormat("0.0000").format(mannWhitneyP);
+    }
+
+    public String getKsPFormated() {
+        return new DecimalFormat("0.0000").format(ksP);
+    }
+}
@@ -0,0 +1,73 @@
+package hudson.plugins.performance;
+
+import java.text.DecimalFormat;
+
+/**
+ * Outcome of a condition of the {@link SlaRules} for a URI, saved with the
+ * summary of the build.
+ */
+public class SlaResult {
+
+    private final String reportFileName;
+
+    private final String uri;
+
+    private final String condition;
+
+    private final double value;
+
+    /**
+     * Half width of the confidence interval of the value over
+     * {@link RepeatedRuns}, 0 for a single run.
+     */
+    private final double margin;
+
+    private final boolean passed;
+
+    SlaResult(String reportFileName, String uri, String condition, double value,
+            boolean passed) {
+        this(reportFileName, uri, condition, value, 0, passed);
+    }
+
+    SlaResult(String reportFileName, String uri, String condition, double value,
+            double margin, boolean passed) {
+        this.reportFileName = reportFileName;
+        this.uri = uri;
+        this.condition = condition;
+        this.value = value;
+        this.margin = margin;
+        this.passed = passed;
+    }
+
+    public String getReportFileName() {
+        return reportFileName;
+    }
+
+    public String getUri() {
+        return uri;
+    }
+
+    public String getCondition() {
+        return condition;
+    }
+
+    public double getValue() {
+        return value;
+    }
+
+    public double getMargin() {
+        return margin;
+    }
+
+    public String getValueFormated() {
+        final DecimalFormat format = new DecimalFormat("#,##0.##");
+        if (margin > 0) {
+            return format.format(value) + " \u00b1 " + format.format(margin);
+        }
+        return format.format(value);
+    }
+
+    public boolean isPassed() {
+        return passed;
+    }
+}
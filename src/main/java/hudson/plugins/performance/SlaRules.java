@@ -0,0 +1,170 @@
+package hudson.plugins.performance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Service level agreements of the URIs configured on the
+ * {@link PerformancePublisher}, such as a 99th percentile under 300 ms for
+ * the login and a 95th percentile under 800 ms for the search.
+ *
+ * <p>
+ * A rule is a line of the form <code>regex =&gt; condition, condition</code>,
+ * such as <code>.*login.* =&gt; p99 &lt; 300, errors &lt; 1%</code>. The
+ * conditions are <code>pNN &lt; ms</code> for any percentile,
+ * <code>avg &lt; ms</code>, <code>errors &lt; percent%</code>,
+ * <code>throughput &gt; samples/s</code> and <code>apdex &gt; score</code>,
+ * the Apdex of a URI without threshold being 0, and the robust statistics
+ * <code>trimmed &lt; ms</code>, <code>mad &lt; ms</code>,
+ * <code>stddev &lt; ms</code> and <code>outliers &lt; percent%</code>. Each URI is checked against the
+ * first rule whose regex matches its whole label. Empty lines and lines
+ * starting with <code>#</code> are ignored.
+ *
+ * <p>
+ * The URIs of {@link RepeatedRuns} are checked once for all the runs, on the
+ * confidence interval of the mean of the values of the runs: a condition is
+ * met unless the whole interval is beyond the limit.
+ */
+class SlaRules {
+
+    private static final Pattern CONDITION = Pattern.compile(
+            "(p\\d+(?:\\.\\d+)?|avg|errors|throughput|apdex|trimmed|mad|stddev|outliers)\\s*([<>])\\s*(\\d+(?:\\.\\d+)?)\\s*%?");
+
+    private final List<Pattern> patterns = new ArrayList<Pattern>();
+
+    private final List<List<Condition>> conditions = new ArrayList<List<Condition>>();
+
+    /**
+     * @throws IllegalArgumentException
+     *             if a rule is not valid.
+     */
+    SlaRules(String rules) {
+        final RuleLines lines = new RuleLines(rules, "an SLA rule", "condition, condition");
+        for (int i = 0; i < lines.size(); i++) {
+            final List<Condition> ruleConditions = new ArrayList<Condition>();
+            for (final String text : lines.getValue(i).split(",")) {
+                ruleConditions.add(new Condition(text.trim()));
+            }
+            patterns.add(lines.getPattern(i));
+            conditions.add(ruleConditions);
+        }
+    }
+
+    boolean isEmpty() {
+        return patterns.isEmpty();
+    }
+
+    /**
+     * Checks every URI of the report against the first rule which matches
+     * it, one result by condition.
+     */
+    List<SlaResult> evaluate(PerformanceReport report) {
+        final List<SlaResult> results = new ArrayList<SlaResult>();
+        for (final UriReport uri : report.getUriListOrdered()) {
+            for (int i = 0; i < patterns.size(); i++) {
+                if (patterns.get(i).matcher(uri.getUri()).matches()) {
+                    for (final Condition c : conditions.get(i)) {
+                        final double value = c.measure(uri);
+                        results.add(new SlaResult(report.getReportFileName(), uri.getUri(),
+                                c.text, value, c.isMet(value)));
+                    }
+                    break;
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Checks every URI of the repeated runs against the first rule which
+     * matches it, on the confidence interval of the values of the runs.
+     */
+    List<SlaResult> evaluate(RepeatedRuns runs) {
+        final List<SlaResult> results = new ArrayList<SlaResult>();
+        for (final RepeatedRuns.UriRuns uri : runs.getUris()) {
+            for (int i = 0; i < patterns.size(); i++) {
+                if (patterns.get(i).matcher(uri.getUri()).matches()) {
+                    for (final Condition c : conditions.get(i)) {
+                        final double[] values = new double[uri.getRunCount()];
+                        for (int j = 0; j < values.length; j++) {
+                            values[j] = c.measure(uri.getRuns().get(j));
+                        }
+                        final RepeatedRuns.Interval interval = new RepeatedRuns.Interval(values);
+                        final boolean met = c.isMet(c.lessThan ? interval.getLow() : interval.getHigh());
+                        results.add(new SlaResult(runs.getName(), uri.getUri(), c.text,
+                                interval.getMean(), interval.getMargin(), met));
+                    }
+                    break;
+                }
+            }
+        }
+        return results;
+    }
+
+    private static final class Condition {
+
+        private final String text;
+
+        private final String metric;
+
+        private final boolean lessThan;
+
+        private final double limit;
+
+        Condition(String text) {
+            final Matcher m = CONDITION.matcher(text);
+            if (!m.matches()) {
+                throw new IllegalArgumentException("Not an SLA condition: " + text
+                        + ", expected pNN < ms, avg < ms, errors < percent%, throughput > samples/s"
+                        + ", apdex > score, trimmed < ms, mad < ms, stddev < ms or outliers < percent%");
+            }
+            this.text = text;
+            metric = m.group(1);
+            lessThan = m.group(2).equals("<");
+            limit = Double.parseDouble(m.group(3));
+            if ((metric.equals("throughput") || metric.equals("apdex")) == lessThan) {
+                throw new IllegalArgumentException("Not an SLA condition: " + text
+                        + ", only the throughput and the Apdex have a minimum");
+            }
+            if (metric.startsWith("p") && percentile() >= 100) {
+                throw new IllegalArgumentException("Not an SLA condition: " + text
+                        + ", the percentile must be under 100");
+            }
+        }
+
+        private double percentile() {
+            return Double.parseDouble(metric.substring(1));
+        }
+
+        double measure(UriReport uri) {
+            if (metric.equals("avg")) {
+                return uri.getAverage();
+            } else if (metric.equals("errors")) {
+                return uri.errorPercent();
+            } else if (metric.equals("throughput")) {
+                return uri.getThroughput();
+            } else if (metric.equals("apdex")) {
+                return uri.getApdex();
+            } else if (metric.equals("trimmed")) {
+                return uri.getTrimmedMean();
+            } else if (metric.equals("mad")) {
+                return uri.getMedianAbsoluteDeviation();
+            } else if (metric.equals("stddev")) {
+                return uri.getStandardDeviation();
+            } else if (metric.equals("outliers")) {
+                return uri.getOutlierPercent();
+            }
+            final double p = percentile();
+            if (p == Math.floor(p)) {
+                return uri.getPercentileLine((int) p);
+            }
+            return uri.getHistogram().getValueAtPercentile(p);
+        }
+
+        boolean isMet(double value) {
+            return lessThan ? value < limit : value > limit;
+        }
+    }
+}
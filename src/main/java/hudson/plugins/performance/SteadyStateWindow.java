@@ -0,0 +1,134 @@
+package hudson.plugins.performance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Finds the part of a load test over which the statistics are computed, from
+ * a first pass over the time stamps and durations of its samples.
+ *
+ * <p>
+ * The window starts with the fixed warm-up and cool-down trimming configured
+ * on the parser. With the steady state detection, it is then narrowed with
+ * the MSER-5 truncation heuristic: the series of mean response times over
+ * batches of {@link #BATCH_SECONDS} seconds is truncated at the point which
+ * minimizes the standard error of the mean of the remaining batches, looking
+ * at most at the first half of the series. The same heuristic applied to the
+ * reversed series trims the ramp-down.
+ */
+class SteadyStateWindow {
+
+    static final int BATCH_SECONDS = 5;
+
+    /**
+     * Count and sum of the durations of the samples, by second of their time
+     * stamp.
+     */
+    private final TreeMap<Long, long[]> seconds = new TreeMap<Long, long[]>();
+
+    private long first = Long.MAX_VALUE;
+
+    private long last = Long.MIN_VALUE;
+
+    void add(long timestamp, long duration) {
+        first = Math.min(first, timestamp);
+        last = Math.max(last, timestamp);
+        final Long second = timestamp / 1000;
+        long[] values = seconds.get(second);
+        if (values == null) {
+            values = new long[2];
+            seconds.put(second, values);
+        }
+        values[0]++;
+        values[1] += duration;
+    }
+
+    boolean isEmpty() {
+        return seconds.isEmpty();
+    }
+
+    long getFirst() {
+        return first;
+    }
+
+    long getLast() {
+        return last;
+    }
+
+    /**
+     * Returns the first and last time stamps, in ms, of the samples to keep.
+     */
+    long[] window(int warmUpSec, int coolDownSec, boolean detectSteadyState) {
+        long from = first + warmUpSec * 1000L;
+        long to = last - coolDownSec * 1000L;
+        if (detectSteadyState && from <= to) {
+            final List<long[]> batches = batches(from, to);
+            final int n = batches.size();
+            if (n >= 4) {
+                final double[] means = new double[n];
+                for (int i = 0; i < n; i++) {
+                    means[i] = (double) batches.get(i)[2] / batches.get(i)[1];
+                }
+                // the end is cut knowing the start, then the start again
+                // without the ramp-down, which otherwise dominates the errors
+                int start = truncation(means, 0, n, false);
+                final int end = n - 1 - truncation(means, start, n, true);
+                start = truncation(means, 0, end + 1, false);
+                from = Math.max(from, batches.get(start)[0] * 1000);
+                to = Math.min(to, (batches.get(end)[0] + BATCH_SECONDS) * 1000 - 1);
+            }
+        }
+        return new long[] { from, to };
+    }
+
+    /**
+     * Non empty batches between the two time stamps, as start second, count
+     * and sum of durations.
+     */
+    private List<long[]> batches(long from, long to) {
+        final List<long[]> batches = new ArrayList<long[]>();
+        long[] batch = null;
+        for (final Map.Entry<Long, long[]> e : seconds.subMap(from / 1000, to / 1000 + 1)
+                .entrySet()) {
+            final long start = e.getKey() - (e.getKey() - from / 1000) % BATCH_SECONDS;
+            if (batch == null || batch[0] != start) {
+                batch = new long[] { start, 0, 0 };
+                batches.add(batch);
+            }
+            batch[1] += e.getValue()[0];
+            batch[2] += e.getValue()[1];
+        }
+        return batches;
+    }
+
+    /**
+     * Number of batches to drop from the start, or from the end when
+     * reversed, of <code>means[from..to)</code>, minimizing
+     * <code>sum((y - mean)^2) / (n - d)^2</code> over the remaining batches.
+     */
+    static int truncation(double[] means, int from, int to, boolean reversed) {
+        final int n = to - from;
+        final double[] sums = new double[n + 1];
+        final double[] squares = new double[n + 1];
+        // suffix sums of the series as seen from the truncated side
+        for (int i = n - 1; i >= 0; i--) {
+            final double y = means[reversed ? to - 1 - i : from + i];
+            sums[i] = sums[i + 1] + y;
+            squares[i] = squares[i + 1] + y * y;
+        }
+        int best = 0;
+        double bestValue = Double.MAX_VALUE;
+        for (int d = 0; d <= n / 2; d++) {
+            final int remaining = n - d;
+            final double deviations = squares[d] - sums[d] * sums[d] / remaining;
+            final double value = deviations / ((double) remaining * remaining);
+            if (value < bestValue) {
+                best = d;
+                bestValue = value;
+            }
+        }
+        return best;
+    }
+}
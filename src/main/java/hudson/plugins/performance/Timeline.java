@@ -0,0 +1,320 @@
+package hudson.plugins.performance;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Requests, errors and response times of a report or of a URI over time, in
+ * buckets of {@link #getIntervalSec()} seconds of sample time stamps.
+ *
+ * <p>
+ * The buckets are filled while the report is parsed, each with a mergeable
+ * histogram of its response times. To bound the memory and the size of the
+ * saved summary, the interval doubles, merging the buckets pairwise, whenever
+ * there would be more than the maximum number of them.
+ *
+ * <p>
+ * Samples are written when they end, so they come nearly in time order. Once
+ * samples {@link #SEAL_DELAY_MS} newer than a bucket are added, the bucket is
+ * sealed: its percentiles are computed and its histogram is replaced with
+ * its compact encoded form, see {@link LatencyHistogram#encode()}. Only the
+ * last buckets hold a histogram array, so that a report with many URIs, each
+ * with its own timeline, does not hold hundreds of them per URI, while the
+ * buckets merged after they are sealed, as in the long soak tests, keep
+ * percentiles as precise as the histograms.
+ */
+public class Timeline {
+
+    static final int MAX_BUCKETS = 600;
+
+    static final long SEAL_DELAY_MS = 120000;
+
+    private int intervalSec;
+
+    private transient int maxBuckets;
+
+    /**
+     * Buckets in time order, as saved in the summary of the build.
+     */
+    private List<Bucket> buckets = new ArrayList<Bucket>();
+
+    /**
+     * Buckets keyed by their start time while samples are added. Samples
+     * cannot be added to a timeline loaded from a summary.
+     */
+    private transient TreeMap<Long, Bucket> open;
+
+    /**
+     * Start time before which the buckets are all sealed.
+     */
+    private transient long sealedBefore = Long.MIN_VALUE;
+
+    /**
+     * @param intervalSec
+     *            initial width of the buckets, at least 1 second.
+     */
+    public Timeline(int intervalSec) {
+        this(intervalSec, MAX_BUCKETS);
+    }
+
+    /**
+     * @param intervalSec
+     *            initial width of the buckets, at least 1 second.
+     * @param maxBuckets
+     *            number of buckets beyond which the interval doubles.
+     */
+    public Timeline(int intervalSec, int maxBuckets) {
+        this.intervalSec = Math.max(1, intervalSec);
+        this.maxBuckets = Math.max(2, maxBuckets);
+    }
+
+    void add(HttpSample sample) {
+        if (sample.getDate() == null) {
+            return;
+        }
+        if (open == null) {
+            open = new TreeMap<Long, Bucket>();
+        }
+        final long timestamp = sample.getDate().getTime();
+        final long start = timestamp - mod(timestamp, intervalSec * 1000L);
+        Bucket bucket = open.get(start);
+        if (bucket == null) {
+            bucket = new Bucket(start);
+            open.put(start, bucket);
+            if (open.size() > maxBuckets) {
+                coarsen();
+                add(sample);
+                return;
+            }
+            seal(start - SEAL_DELAY_MS - intervalSec * 1000L);
+        }
+        bucket.add(sample);
+        buckets = null;
+    }
+
+    /**
+     * Seals the buckets which end before the given time.
+     */
+    private void seal(long before) {
+        if (before <= sealedBefore) {
+            return;
+        }
+        for (final Bucket bucket : open.subMap(sealedBefore, before).values()) {
+            bucket.seal();
+        }
+        sealedBefore = before;
+    }
+
+    /**
+     * Doubles the interval, merging the buckets which fall into the same
+     * wider one.
+     */
+    private void coarsen() {
+        intervalSec *= 2;
+        final TreeMap<Long, Bucket> merged = new TreeMap<Long, Bucket>();
+        for (final Map.Entry<Long, Bucket> e : open.entrySet()) {
+            if (e.getValue().count == 0) {
+                continue;
+            }
+            final long start = e.getKey() - mod(e.getKey(), intervalSec * 1000L);
+            final Bucket bucket = merged.get(start);
+            if (bucket == null) {
+                e.getValue().start = start;
+                merged.put(start, e.getValue());
+            } else {
+                bucket.add(e.getValue());
+            }
+        }
+        open = merged;
+        sealedBefore = Long.MIN_VALUE;
+        buckets = null;
+    }
+
+    private static long mod(long value, long divisor) {
+        final long m = value % divisor;
+        return m < 0 ? m + divisor : m;
+    }
+
+    public int getIntervalSec() {
+        return intervalSec;
+    }
+
+    public List<Bucket> getBuckets() {
+        if (buckets == null) {
+            buckets = new ArrayList<Bucket>(open.values());
+            for (final Bucket b : buckets) {
+                b.seal();
+                b.bands = Heatmap.encode(b.getHistogram());
+            }
+        }
+        return buckets;
+    }
+
+    public boolean isEmpty() {
+        return getBuckets().isEmpty();
+    }
+
+    /**
+     * Change in percent of the 95th percentile from the first bucket to the
+     * last one, such as the slow creep of the response times of a soak test
+     * which leaks memory. 0 with less than two buckets.
+     */
+    public double getLatencyDrift() {
+        final List<Bucket> all = getBuckets();
+        if (all.size() < 2) {
+            return 0;
+        }
+        final long first = all.get(0).line95;
+        final long last = all.get(all.size() - 1).line95;
+        return first == 0 ? 0 : (last - first) * 100d / first;
+    }
+
+    /**
+     * Samples of one interval of the timeline.
+     */
+    public static class Bucket {
+
+        private long start;
+
+        private int count;
+
+        private int errors;
+
+        private long totalDuration;
+
+        /**
+         * Percentiles computed when the bucket is sealed.
+         */
+        private long median;
+
+        private long line95;
+
+        private long line99;
+
+        /**
+         * Counts of the response times by band, see
+         * {@link Heatmap#encode(LatencyHistogram)}.
+         */
+        private String bands;
+
+        /**
+         * Response times until the bucket is sealed, null afterwards.
+         */
+        private transient LatencyHistogram histogram = new LatencyHistogram();
+
+        /**
+         * Encoded response times once the bucket is sealed.
+         */
+        private transient String sealedHistogram;
+
+        private transient long min = Long.MAX_VALUE;
+
+        private transient long max = Long.MIN_VALUE;
+
+        Bucket(long start) {
+            this.start = start;
+        }
+
+        void add(HttpSample sample) {
+            count++;
+            if (!sample.isSuccessful()) {
+                errors++;
+            }
+            final long duration = sample.getDuration();
+            totalDuration += duration;
+            min = Math.min(min, duration);
+            max = Math.max(max, duration);
+            if (histogram != null) {
+                histogram.record(duration);
+            } else {
+                // a late sample, rare enough to decode the histogram again
+                final LatencyHistogram sealed = getHistogram();
+                sealed.record(duration);
+                seal(sealed);
+            }
+        }
+
+        void add(Bucket other) {
+            count += other.count;
+            errors += other.errors;
+            totalDuration += other.totalDuration;
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+            if (histogram != null) {
+                histogram.add(other.getHistogram());
+            } else {
+                final LatencyHistogram merged = getHistogram();
+                merged.add(other.getHistogram());
+                seal(merged);
+            }
+        }
+
+        /**
+         * Response times of the bucket, a decoded copy once it is sealed.
+         */
+        LatencyHistogram getHistogram() {
+            return histogram != null ? histogram : LatencyHistogram.decode(sealedHistogram,
+                    min, max);
+        }
+
+        /**
+         * Computes the percentiles and encodes the histogram.
+         */
+        void seal() {
+            if (histogram != null) {
+                seal(histogram);
+                histogram = null;
+            }
+        }
+
+        private void seal(LatencyHistogram values) {
+            median = values.getValueAtPercentile(50);
+            line95 = values.getValueAtPercentile(95);
+            line99 = values.getValueAtPercentile(99);
+            sealedHistogram = values.encode();
+        }
+
+        boolean isSealed() {
+            return histogram == null;
+        }
+
+        public Date getStart() {
+            return new Date(start);
+        }
+
+        public long getStartTime() {
+            return start;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public int getErrors() {
+            return errors;
+        }
+
+        public long getAverage() {
+            return count == 0 ? 0 : totalDuration / count;
+        }
+
+        public long getMedian() {
+            return median;
+        }
+
+        public long get95Line() {
+            return line95;
+        }
+
+        public long get99Line() {
+            return line99;
+        }
+
+        String getBands() {
+            return bands;
+        }
+    }
+}
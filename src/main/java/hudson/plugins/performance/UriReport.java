@@ -2,12 +2,21 @@ package hudson.plugins.performance;
 
 import hudson.model.ModelObject;
 import hudson.model.AbstractBuild;
+import hudson.util.ChartUtil;
 
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
+import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
 
 /**
  * A report about a particular tested URI.
@@ -20,10 +29,118 @@ public class UriReport extends AbstractReport implements ModelObject,
     public final static String END_PERFORMANCE_PARAMETER = ".endperformanceparameter";
 
     /**
-     * Individual HTTP invocations to this URI and how they went.
+     * Default width in seconds of the windows of {@link #getTimeline()}.
+     */
+    static final int DEFAULT_WINDOW_SEC = 60;
+
+    /**
+     * Number of windows beyond which their width doubles, 8 hours of one
+     * minute windows need 2 minute ones.
+     */
+    static final int MAX_WINDOWS = 240;
+
+    /**
+     * Percentage of the fastest and of the slowest samples left out of the
+     * trimmed mean.
+     */
+    static final double TRIM_PERCENT = 10;
+
+    /**
+     * Modified z-score above which a sample is an outlier.
+     */
+    static final double OUTLIER_THRESHOLD = 3.5;
+
+    /**
+     * Number of previous builds offered as a baseline for the distribution.
+     */
+    private static final int MAX_BASELINE_BUILDS = 20;
+
+    /**
+     * Individual HTTP invocations to this URI and how they went. When
+     * {@link #sampleLimit} is set, a uniform random subset of them.
      */
     private final List<HttpSample> httpSampleList = new ArrayList<HttpSample>();
 
+    /**
+     * Maximum number of samples kept in {@link #httpSampleList}, 0 means all
+     * of them. The statistics below are kept over every sample either way.
+     */
+    private final int sampleLimit;
+
+    /**
+     * Seeded from the URI, so that parsing a report again keeps the same
+     * samples.
+     */
+    private Random reservoirRandom;
+
+    private int count;
+
+    private int errors;
+
+    private long totalDuration;
+
+    private long min = Long.MAX_VALUE;
+
+    private long max = Long.MIN_VALUE;
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    /**
+     * Running mean of the response times and sum of their squared
+     * deviations, updated with each sample by the method of Welford.
+     */
+    private double durationMean;
+
+    private double durationSquares;
+
+    /**
+     * Expected interval in ms between two requests of a thread, 0 when the
+     * response times are not corrected for the coordinated omission.
+     */
+    private long expectedInterval;
+
+    /**
+     * Response times corrected for the coordinated omission, null when they
+     * are not.
+     */
+    private LatencyHistogram correctedHistogram;
+
+    /**
+     * Aggregates of the JMeter latency, connect time, bytes and active
+     * threads, over the samples which have them.
+     */
+    private int latencyCount;
+
+    private long totalLatency;
+
+    private int connectCount;
+
+    private long totalConnectTime;
+
+    private long totalBytes;
+
+    private long totalSentBytes;
+
+    private int maxActiveThreads;
+
+    /**
+     * Apdex threshold in ms, 0 for none, and the number of satisfied and
+     * tolerating samples, see {@link ApdexRules}.
+     */
+    private long apdexThreshold;
+
+    private int apdexSatisfied;
+
+    private int apdexTolerating;
+
+    private long firstStart = Long.MAX_VALUE;
+
+    private long lastEnd = Long.MIN_VALUE;
+
+    private final Set<String> httpCodes = new LinkedHashSet<String>();
+
+    private final Timeline timeline;
+
     /**
      * The parent object to which this object belongs.
      */
@@ -40,13 +157,425 @@ public class UriReport extends AbstractReport implements ModelObject,
     private String uri;
 
     UriReport(PerformanceReport performanceReport, String staplerUri, String uri) {
+        this(performanceReport, staplerUri, uri, 0);
+    }
+
+    UriReport(PerformanceReport performanceReport, String staplerUri, String uri,
+            int sampleLimit) {
+        this(performanceReport, staplerUri, uri, sampleLimit, 0);
+    }
+
+    /**
+     * @param windowSec
+     *            width in seconds of the percentile windows, 0 for
+     *            {@link #DEFAULT_WINDOW_SEC}.
+     */
+    UriReport(PerformanceReport performanceReport, String staplerUri, String uri,
+            int sampleLimit, int windowSec) {
         this.performanceReport = performanceReport;
         this.staplerUri = staplerUri;
         this.uri = uri;
+        this.sampleLimit = sampleLimit;
+        timeline = new Timeline(windowSec > 0 ? windowSec : DEFAULT_WINDOW_SEC, MAX_WINDOWS);
     }
 
     public void addHttpSample(HttpSample httpSample) {
-        httpSampleList.add(httpSample);
+        count++;
+        if (!httpSample.isSuccessful()) {
+            errors++;
+        }
+        final long duration = httpSample.getDuration();
+        totalDuration += duration;
+        min = Math.min(min, duration);
+        max = Math.max(max, duration);
+        histogram.record(duration);
+        final double delta = duration - durationMean;
+        durationMean += delta / count;
+        durationSquares += delta * (duration - durationMean);
+        if (correctedHistogram != null) {
+            correctedHistogram.recordWithExpectedInterval(duration, expectedInterval);
+        }
+        httpCodes.add(httpSample.getHttpCode());
+        timeline.add(httpSample);
+        if (httpSample.getLatency() >= 0) {
+            latencyCount++;
+            totalLatency += httpSample.getLatency();
+        }
+        if (httpSample.getConnectTime() >= 0) {
+            connectCount++;
+            totalConnectTime += httpSample.getConnectTime();
+        }
+        totalBytes += httpSample.getBytes();
+        totalSentBytes += httpSample.getSentBytes();
+        maxActiveThreads = Math.max(maxActiveThreads, httpSample.getActiveThreads());
+        if (apdexThreshold > 0 && httpSample.isSuccessful()) {
+            if (duration <= apdexThreshold) {
+                apdexSatisfied++;
+            } else if (duration <= 4 * apdexThreshold) {
+                apdexTolerating++;
+            }
+        }
+        if (httpSample.getDate() != null) {
+            firstStart = Math.min(firstStart, httpSample.getDate().getTime());
+            lastEnd = Math.max(lastEnd, httpSample.getDate().getTime() + duration);
+        }
+
+        if (sampleLimit <= 0 || httpSampleList.size() < sampleLimit) {
+            httpSampleList.add(httpSample);
+        } else {
+            // reservoir sampling: the n-th sample replaces a kept one with
+            // probability limit / n
+            if (reservoirRandom == null) {
+                reservoirRandom = new Random(uri.hashCode());
+            }
+            final int slot = reservoirRandom.nextInt(count);
+            if (slot < sampleLimit) {
+                httpSampleList.set(slot, httpSample);
+            }
+        }
+    }
+
+    /**
+     * Whether {@link #getHttpSampleList()} only holds a subset of the
+     * samples.
+     */
+    public boolean isSampled() {
+        return httpSampleList.size() < count;
+    }
+
+    /**
+     * Response times of every sample of this URI.
+     */
+    public LatencyHistogram getHistogram() {
+        return histogram;
+    }
+
+    /**
+     * Response time percentiles of this URI over tumbling windows of time.
+     */
+    public Timeline getTimeline() {
+        return timeline;
+    }
+
+    /**
+     * Aggregates of this URI saved with the build, or null if there are none.
+     */
+    public UriSummary getSummary() {
+        final PerformanceSummary summary = performanceReport.getBuildAction().getSummary();
+        if (summary == null) {
+            return null;
+        }
+        final ReportSummary report = summary.getReport(performanceReport.getReportFileName());
+        return report == null ? null : report.getUri(staplerUri);
+    }
+
+    /**
+     * Percentiles saved with the build for this URI, or null if there are
+     * too few windows to draw them.
+     */
+    public Timeline getPercentileTimeline() {
+        final UriSummary summary = getSummary();
+        if (summary == null || summary.getTimeline().getBuckets().size() < 2) {
+            return null;
+        }
+        return summary.getTimeline();
+    }
+
+    public void doHeatmapGraph(StaplerRequest request, StaplerResponse response)
+            throws IOException {
+        final Timeline percentiles = getPercentileTimeline();
+        if (percentiles == null) {
+            response.sendError(StaplerResponse.SC_NOT_FOUND);
+            return;
+        }
+        ChartUtil.generateGraph(request, response,
+                PerformanceProjectAction.createHeatmapChart(new Heatmap(percentiles)), 600, 300);
+    }
+
+    /**
+     * Previous builds with performance reports, most recent first, whose
+     * distribution can be drawn with the one of this URI.
+     */
+    public List<AbstractBuild<?, ?>> getBaselineBuilds() {
+        final List<AbstractBuild<?, ?>> builds = new ArrayList<AbstractBuild<?, ?>>();
+        AbstractBuild<?, ?> build = getBuild().getPreviousBuild();
+        while (build != null && builds.size() < MAX_BASELINE_BUILDS) {
+            if (build.getAction(PerformanceBuildAction.class) != null) {
+                builds.add(build);
+            }
+            build = build.getPreviousBuild();
+        }
+        return builds;
+    }
+
+    /**
+     * Saved aggregates of this URI in the build with the given number, or
+     * null if that build has none.
+     */
+    UriSummary getBaselineSummary(String buildNumber) {
+        if (buildNumber == null || !buildNumber.matches("\\d+")) {
+            return null;
+        }
+        final AbstractBuild<?, ?> build = getBuild().getProject().getBuildByNumber(
+                Integer.parseInt(buildNumber));
+        if (build == null) {
+            return null;
+        }
+        final PerformanceBuildAction action = build.getAction(PerformanceBuildAction.class);
+        if (action == null || action.getSummary() == null) {
+            return null;
+        }
+        final ReportSummary report = action.getSummary().getReport(
+                performanceReport.getReportFileName());
+        return report == null ? null : report.getUri(staplerUri);
+    }
+
+    /**
+     * Draws the distribution of the response times of this URI, or their
+     * cumulative distribution with the <code>cumulative</code> parameter,
+     * with the one of the build given by the <code>baseline</code> parameter.
+     */
+    public void doDistributionGraph(StaplerRequest request, StaplerResponse response)
+            throws IOException {
+        final UriSummary summary = getSummary();
+        if (summary == null) {
+            response.sendError(StaplerResponse.SC_NOT_FOUND);
+            return;
+        }
+        final List<LatencyHistogram> histograms = new ArrayList<LatencyHistogram>();
+        final List<String> labels = new ArrayList<String>();
+        histograms.add(summary.getHistogram());
+        labels.add("#" + getBuild().getNumber());
+        final String baseline = request.getParameter("baseline");
+        final UriSummary baselineSummary = getBaselineSummary(baseline);
+        if (baselineSummary != null) {
+            histograms.add(baselineSummary.getHistogram());
+            labels.add("#" + baseline);
+        }
+        final boolean cumulative = Boolean.parseBoolean(request.getParameter("cumulative"));
+        ChartUtil.generateGraph(request, response,
+                PerformanceProjectAction.createDistributionChart(histograms, labels, cumulative),
+                600, 300);
+    }
+
+    /**
+     * Signed {@link Timeline#getLatencyDrift()} of the saved percentiles.
+     */
+    public String getLatencyDriftFormated() {
+        final Timeline percentiles = getPercentileTimeline();
+        if (percentiles == null) {
+            return "";
+        }
+        return new DecimalFormat("+0.0;-0.0").format(percentiles.getLatencyDrift());
+    }
+
+    public void doPercentileGraph(StaplerRequest request, StaplerResponse response)
+            throws IOException {
+        final Timeline percentiles = getPercentileTimeline();
+        if (percentiles == null) {
+            response.sendError(StaplerResponse.SC_NOT_FOUND);
+            return;
+        }
+        ChartUtil.generateGraph(request, response,
+                PerformanceProjectAction.createPercentilesChart(percentiles), 600, 225);
+    }
+
+    /**
+     * Whether the samples have any of the JMeter latency, connect time, bytes
+     * and active threads attributes.
+     */
+    public boolean hasNetworkStatistics() {
+        return latencyCount > 0 || connectCount > 0 || totalBytes > 0 || maxActiveThreads > 0;
+    }
+
+    /**
+     * Average time to the first byte of the response in ms.
+     */
+    public long getAverageLatency() {
+        return latencyCount == 0 ? 0 : totalLatency / latencyCount;
+    }
+
+    public long getAverageConnectTime() {
+        return connectCount == 0 ? 0 : totalConnectTime / connectCount;
+    }
+
+    /**
+     * Average time spent by the server, the latency without the connect
+     * time.
+     */
+    public long getAverageServerTime() {
+        return Math.max(0, getAverageLatency() - getAverageConnectTime());
+    }
+
+    /**
+     * Average time spent receiving the response after its first byte.
+     */
+    public long getAverageTransferTime() {
+        return latencyCount == 0 ? 0 : Math.max(0, getAverage() - getAverageLatency());
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public long getTotalSentBytes() {
+        return totalSentBytes;
+    }
+
+    /**
+     * Bytes received per second, from the start of the first sample to the
+     * end of the last one.
+     */
+    public long getBytesPerSecond() {
+        if (lastEnd <= firstStart) {
+            return 0;
+        }
+        return totalBytes * 1000 / (lastEnd - firstStart);
+    }
+
+    /**
+     * Samples per second, from the start of the first sample to the end of
+     * the last one, 0 without time stamps.
+     */
+    public double getThroughput() {
+        if (lastEnd <= firstStart) {
+            return 0;
+        }
+        return size() * 1000d / (lastEnd - firstStart);
+    }
+
+    public int getMaxActiveThreads() {
+        return maxActiveThreads;
+    }
+
+    public long getStandardDeviation() {
+        return Math.round(getVariance() > 0 ? Math.sqrt(getVariance()) : 0);
+    }
+
+    double getVariance() {
+        return count < 2 ? 0 : durationSquares / (count - 1);
+    }
+
+    double getDurationMean() {
+        return durationMean;
+    }
+
+    double getDurationSquares() {
+        return durationSquares;
+    }
+
+    /**
+     * Mean of the response times without the fastest and the slowest
+     * {@link #TRIM_PERCENT} percent.
+     */
+    public long getTrimmedMean() {
+        return Math.round(histogram.getTrimmedMean(TRIM_PERCENT));
+    }
+
+    public long getMedianAbsoluteDeviation() {
+        return Math.round(histogram.getMedianAbsoluteDeviation());
+    }
+
+    /**
+     * Number of samples whose response time is an outlier, which still count
+     * in the errors and in every other statistic.
+     */
+    public long getOutliers() {
+        return histogram.countOutliers(OUTLIER_THRESHOLD);
+    }
+
+    public double getOutlierPercent() {
+        return count == 0 ? 0 : getOutliers() * 100d / count;
+    }
+
+    /**
+     * Whether the report shows the robust statistics.
+     */
+    public boolean isRobustStatistics() {
+        return performanceReport != null && performanceReport.isRobustStatistics();
+    }
+
+    public long getTrimmedMeanDiff() {
+        if (lastBuildUriReport == null) {
+            return 0;
+        }
+        return getTrimmedMean() - lastBuildUriReport.getTrimmedMean();
+    }
+
+    /**
+     * Corrects the response times for the coordinated omission, before the
+     * first sample is added, see
+     * {@link LatencyHistogram#recordWithExpectedInterval(long, long)}.
+     */
+    void setExpectedInterval(long expectedInterval) {
+        this.expectedInterval = expectedInterval;
+        correctedHistogram = expectedInterval > 0 ? new LatencyHistogram() : null;
+    }
+
+    public long getExpectedInterval() {
+        return expectedInterval;
+    }
+
+    /**
+     * Response times corrected for the coordinated omission, null when they
+     * are not.
+     */
+    public LatencyHistogram getCorrectedHistogram() {
+        return correctedHistogram;
+    }
+
+    /**
+     * Sets the Apdex threshold in ms, before the first sample is added.
+     */
+    void setApdexThreshold(long apdexThreshold) {
+        this.apdexThreshold = apdexThreshold;
+    }
+
+    public boolean hasApdex() {
+        return apdexThreshold > 0;
+    }
+
+    public long getApdexThreshold() {
+        return apdexThreshold;
+    }
+
+    /**
+     * Apdex score from 0 to 1, 0 without threshold.
+     */
+    public double getApdex() {
+        return hasApdex() ? ApdexRules.score(apdexSatisfied, apdexTolerating, count) : 0;
+    }
+
+    public String getApdexFormated() {
+        return formatApdex(getApdex());
+    }
+
+    static String formatApdex(double apdex) {
+        return new DecimalFormat("0.00").format(apdex);
+    }
+
+    int getApdexSatisfied() {
+        return apdexSatisfied;
+    }
+
+    int getApdexTolerating() {
+        return apdexTolerating;
+    }
+
+    int getLatencyCount() {
+        return latencyCount;
+    }
+
+    int getConnectCount() {
+        return connectCount;
+    }
+
+    long getFirstStart() {
+        return firstStart;
+    }
+
+    long getLastEnd() {
+        return lastEnd;
     }
 
     public int compareTo(UriReport uriReport) {
@@ -58,13 +587,7 @@ public class UriReport extends AbstractReport implements ModelObject,
 
     @Override
     public int countErrors() {
-        int nbError = 0;
-        for (final HttpSample currentSample : httpSampleList) {
-            if (!currentSample.isSuccessful()) {
-                nbError++;
-            }
-        }
-        return nbError;
+        return errors;
     }
 
     @Override
@@ -74,25 +597,23 @@ public class UriReport extends AbstractReport implements ModelObject,
 
     @Override
     public long getAverage() {
-        long average = 0;
-        for (final HttpSample currentSample : httpSampleList) {
-            average += currentSample.getDuration();
-        }
-        return average / size();
+        return totalDuration / size();
     }
 
     @Override
     public long get90Line() {
-        long result = 0;
-        Collections.sort(httpSampleList);
-        if (httpSampleList.size() > 0) {
-            result = httpSampleList.get((int) (httpSampleList.size() * .9)).getDuration();
-        }
-        return result;
+        return getPercentileLine(90);
     }
 
+    /**
+     * Exact when every sample is kept, otherwise read from the histogram of
+     * all the samples.
+     */
     @Override
     public long getPercentileLine(int percentile) {
+        if (isSampled()) {
+            return histogram.getValueAtPercentile(percentile);
+        }
         long result = 0;
         Collections.sort(httpSampleList);
         if (httpSampleList.size() > 0) {
@@ -105,9 +626,9 @@ public class UriReport extends AbstractReport implements ModelObject,
     public String getHttpCode() {
         String result = "";
 
-        for (final HttpSample currentSample : httpSampleList) {
-            if (!result.matches(".*" + currentSample.getHttpCode() + ".*")) {
-                result += (result.length() > 1) ? "," + currentSample.getHttpCode() : currentSample.getHttpCode();
+        for (final String httpCode : httpCodes) {
+            if (!result.matches(".*" + httpCode + ".*")) {
+                result += (result.length() > 1) ? "," + httpCode : httpCode;
             }
         }
 
@@ -116,12 +637,7 @@ public class UriReport extends AbstractReport implements ModelObject,
 
     @Override
     public long getMedian() {
-        long result = 0;
-        Collections.sort(httpSampleList);
-        if (httpSampleList.size() > 0) {
-            result = httpSampleList.get((int) (httpSampleList.size() * .5)).getDuration();
-        }
-        return result;
+        return getPercentileLine(50);
     }
 
     public AbstractBuild<?, ?> getBuild() {
@@ -142,19 +658,11 @@ public class UriReport extends AbstractReport implements ModelObject,
 
     @Override
     public long getMax() {
-        long max = Long.MIN_VALUE;
-        for (final HttpSample currentSample : httpSampleList) {
-            max = Math.max(max, currentSample.getDuration());
-        }
         return max;
     }
 
     @Override
     public long getMin() {
-        long min = Long.MAX_VALUE;
-        for (final HttpSample currentSample : httpSampleList) {
-            min = Math.min(min, currentSample.getDuration());
-        }
         return min;
     }
 
@@ -183,7 +691,7 @@ public class UriReport extends AbstractReport implements ModelObject,
 
     @Override
     public int size() {
-        return httpSampleList.size();
+        return count;
     }
 
     public String encodeUriReport() throws UnsupportedEncodingException {
@@ -0,0 +1,99 @@
+package hudson.plugins.performance;
+
+/**
+ * Saved aggregates of a single {@link UriReport}.
+ *
+ * This object belongs under {@link ReportSummary}.
+ */
+public class UriSummary {
+
+    private final String staplerUri;
+
+    private final String uri;
+
+    private final Timeline timeline;
+
+    /**
+     * Response times of all the samples, see {@link LatencyHistogram#encode()}.
+     */
+    private final String histogram;
+
+    /**
+     * Response times corrected for the coordinated omission, see
+     * {@link LatencyHistogram#encode()}, null when they are not.
+     */
+    private final String correctedHistogram;
+
+    /**
+     * Samples per second, 0 for the summaries saved without it.
+     */
+    private final double throughput;
+
+    /**
+     * Apdex score, null without threshold or for the summaries saved without
+     * it.
+     */
+    private final Double apdex;
+
+    private final long apdexThreshold;
+
+    UriSummary(UriReport report) {
+        staplerUri = report.getStaplerUri();
+        uri = report.getUri();
+        histogram = report.getHistogram().encode();
+        correctedHistogram = report.getCorrectedHistogram() == null ? null
+                : report.getCorrectedHistogram().encode();
+        throughput = report.getThroughput();
+        apdex = report.hasApdex() ? report.getApdex() : null;
+        apdexThreshold = report.getApdexThreshold();
+        timeline = report.getTimeline();
+        // computes the percentiles of the windows before they are saved
+        timeline.getBuckets();
+    }
+
+    public String getStaplerUri() {
+        return staplerUri;
+    }
+
+    public String getUri() {
+        return uri;
+    }
+
+    /**
+     * Response time percentiles over tumbling windows of time.
+     */
+    public Timeline getTimeline() {
+        return timeline;
+    }
+
+    public LatencyHistogram getHistogram() {
+        return LatencyHistogram.decode(histogram);
+    }
+
+    /**
+     * Null when the response times are not corrected for the coordinated
+     * omission.
+     */
+    public LatencyHistogram getCorrectedHistogram() {
+        return correctedHistogram == null ? null : LatencyHistogram.decode(correctedHistogram);
+    }
+
+    public double getThroughput() {
+        return throughput;
+    }
+
+    public boolean hasApdex() {
+        return apdex != null;
+    }
+
+    /**
+     * Apdex score from 0 to 1, 0 without threshold.
+     */
+    public double getApdex() {
+        return apdex == null ? 0 : apdex;
+    }
+
+    public long getApdexThreshold() {
+        return apdexThreshold;
+    }
+}
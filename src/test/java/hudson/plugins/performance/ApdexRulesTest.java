@@ -0,0 +1,67 @@
+package hudson.plugins.performance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import hudson.util.StreamTaskListener;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+
+import org.junit.Test;
+
+public class ApdexRulesTest {
+
+    private static PerformanceReport parse(int thresholdMs, String rules) throws IOException {
+        final JMeterParser parser = new JMeterParser("");
+        parser.setApdexThresholdMs(thresholdMs);
+        parser.setApdexRules(rules);
+        return parser.parse(null,
+                Collections.singleton(new File("src/test/resources/JMeterResults.jtl")),
+                new StreamTaskListener(System.out)).iterator().next();
+    }
+
+    @Test
+    public void testThreshold() {
+        final ApdexRules rules = new ApdexRules(500, "# searches\n/search.* => 2000\n/s.* => 100");
+        assertEquals(2000, rules.getThreshold("/search/books"));
+        assertEquals(100, rules.getThreshold("/status"));
+        assertEquals(500, rules.getThreshold("/home"));
+        assertTrue(new ApdexRules(0, null).isEmpty());
+        assertEquals(0, new ApdexRules(0, "/s.* => 100").getThreshold("/home"));
+    }
+
+    @Test
+    public void testScore() {
+        assertEquals(0.75, ApdexRules.score(60, 30, 100), 1e-9);
+        assertEquals(0, ApdexRules.score(0, 0, 0), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRule() {
+        new ApdexRules(0, "/search.* => 2s");
+    }
+
+    @Test
+    public void testReport() throws IOException {
+        final PerformanceReport report = parse(500, null);
+        assertTrue(report.hasApdex());
+        // 2 of the 4 home pages tolerating, the other ones frustrated
+        assertEquals(0.25, report.getUriReportMap().get("Home").getApdex(), 1e-9);
+        // 3 of the 4 workgroup pages satisfied, one tolerating
+        assertEquals(0.875, report.getUriReportMap().get("Workgroup").getApdex(), 1e-9);
+        assertEquals(0.5625, report.getApdex(), 1e-9);
+        assertEquals("0.56", report.getApdexFormated());
+    }
+
+    @Test
+    public void testRules() throws IOException {
+        final PerformanceReport report = parse(0, "Home => 4000");
+        assertEquals(4000, report.getUriReportMap().get("Home").getApdexThreshold());
+        assertEquals(0.75, report.getUriReportMap().get("Home").getApdex(), 1e-9);
+        assertFalse(report.getUriReportMap().get("Workgroup").hasApdex());
+        assertEquals(0.75, report.getApdex(), 1e-9);
+        assertFalse(parse(0, null).hasApdex());
+    }
+}
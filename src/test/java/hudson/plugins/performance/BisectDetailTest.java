@@ -0,0 +1,66 @@
+package hudson.plugins.performance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class BisectDetailTest {
+
+    /**
+     * Values over 1000 indices crossing at a given index, with gaps.
+     */
+    private static class Values implements BisectDetail.Probe {
+
+        private final int first;
+
+        private final Set<Integer> gaps = new HashSet<Integer>();
+
+        private int probes;
+
+        Values(int first) {
+            this.first = first;
+        }
+
+        public Boolean crossed(int index) {
+            probes++;
+            if (gaps.contains(index)) {
+                return null;
+            }
+            return index >= first;
+        }
+    }
+
+    @Test
+    public void testBisect() {
+        final Values values = new Values(637);
+        assertEquals(637, BisectDetail.bisect(1000, values));
+        assertTrue(values.probes <= 11);
+    }
+
+    @Test
+    public void testFirstAndLast() {
+        assertEquals(0, BisectDetail.bisect(1000, new Values(0)));
+        assertEquals(999, BisectDetail.bisect(1000, new Values(999)));
+    }
+
+    @Test
+    public void testNotCrossed() {
+        assertEquals(-1, BisectDetail.bisect(1000, new Values(1000)));
+        assertEquals(-1, BisectDetail.bisect(0, new Values(0)));
+    }
+
+    @Test
+    public void testGaps() {
+        final Values values = new Values(500);
+        for (int i = 450; i < 500; i++) {
+            values.gaps.add(i);
+        }
+        values.gaps.add(999);
+        // the first build with a value over the threshold
+        assertEquals(500, BisectDetail.bisect(1000, values));
+    }
+}
@@ -0,0 +1,75 @@
+package hudson.plugins.performance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ChangePointsTest {
+
+    private static List<ChangePoints.ChangePoint> run(ChangePoints changes, int first,
+            int last, double mean, double deviation, Random random) {
+        final List<ChangePoints.ChangePoint> found = new ArrayList<ChangePoints.ChangePoint>();
+        for (int build = first; build <= last; build++) {
+            changes.add(found, build, "report.jtl", "Home", mean + random.nextGaussian() * deviation);
+        }
+        return found;
+    }
+
+    @Test
+    public void testStable() {
+        final ChangePoints changes = new ChangePoints();
+        assertTrue(run(changes, 1, 200, 300, 15, new Random(1)).isEmpty());
+        assertTrue(changes.getChangePoints().isEmpty());
+    }
+
+    @Test
+    public void testSlower() {
+        final ChangePoints changes = new ChangePoints();
+        final Random random = new Random(1);
+        assertTrue(run(changes, 1, 40, 300, 15, random).isEmpty());
+        final List<ChangePoints.ChangePoint> found = run(changes, 41, 60, 360, 15, random);
+        assertEquals(1, found.size());
+        final ChangePoints.ChangePoint c = found.get(0);
+        assertEquals(41, c.getBuild());
+        assertTrue(c.getDetectedBuild() < 45);
+        assertTrue(c.isSlower());
+        assertEquals(300, c.getBefore(), 10);
+        assertEquals(360, c.getAfter(), 20);
+        assertEquals("report.jtl", c.getReportFileName());
+        assertEquals("Home", c.getUri());
+        assertEquals(c, changes.getChangePoints("report.jtl", true).get(41));
+        assertTrue(changes.getChangePoints("report.jtl", false).isEmpty());
+    }
+
+    @Test
+    public void testDrift() {
+        final ChangePoints changes = new ChangePoints();
+        final Random random = new Random(2);
+        final List<ChangePoints.ChangePoint> found = new ArrayList<ChangePoints.ChangePoint>();
+        for (int build = 1; build <= 100; build++) {
+            // 1 ms slower at each build from the 30th one
+            final double mean = 300 + Math.max(0, build - 30);
+            changes.add(found, build, "report.jtl", null, mean + random.nextGaussian() * 10);
+        }
+        assertFalse(found.isEmpty());
+        assertTrue(found.get(0).isSlower());
+        assertTrue(found.get(0).getBuild() >= 30);
+    }
+
+    @Test
+    public void testFaster() {
+        final ChangePoints changes = new ChangePoints();
+        final Random random = new Random(3);
+        run(changes, 1, 30, 500, 20, random);
+        final List<ChangePoints.ChangePoint> found = run(changes, 31, 50, 300, 20, random);
+        assertEquals(1, found.size());
+        assertFalse(found.get(0).isSlower());
+        assertEquals(31, found.get(0).getBuild());
+    }
+}
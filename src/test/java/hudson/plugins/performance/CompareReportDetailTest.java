@@ -0,0 +1,135 @@
+package hudson.plugins.performance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import hudson.model.AbstractBuild;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+
+import org.easymock.classextension.EasyMock;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CompareReportDetailTest {
+
+    /**
+     * Number of builds of the project, the last one included.
+     */
+    private static final int BUILDS = 14;
+
+    private FreeStyleProject project;
+
+    private FreeStyleBuild[] builds;
+
+    private static PerformanceSummary summary(String fileName, String uri) {
+        final PerformanceReport report = new PerformanceReport();
+        report.setReportFileName(fileName);
+        for (int i = 0; i < 10; i++) {
+            final HttpSample sample = new HttpSample();
+            sample.setUri(uri);
+            sample.setDuration(100 + i);
+            sample.setDate(new Date(i * 1000));
+            sample.setSuccessful(true);
+            report.addSample(sample);
+        }
+        return PerformanceSummary.of(Collections.singleton(report));
+    }
+
+    private static File tempDir() throws IOException {
+        final File dir = File.createTempFile("build", "");
+        dir.delete();
+        dir.mkdirs();
+        dir.deleteOnExit();
+        return dir;
+    }
+
+    /**
+     * Builds 1 to 14 with a summary of r.jtl, except build 5 which has no
+     * summary, build 6 which did not publish any report and build 14 which
+     * has no summary either. Build 2 sampled another URI.
+     */
+    @Before
+    public void setUp() throws IOException {
+        project = EasyMock.createMock(FreeStyleProject.class);
+        builds = new FreeStyleBuild[BUILDS + 1];
+        for (int number = 1; number <= BUILDS; number++) {
+            final File rootDir = tempDir();
+            final FreeStyleBuild build = EasyMock.createMock(FreeStyleBuild.class);
+            EasyMock.expect(build.getRootDir()).andReturn(rootDir).anyTimes();
+            EasyMock.expect(build.getNumber()).andReturn(number).anyTimes();
+            EasyMock.expect(build.getPreviousBuild()).andReturn(builds[number - 1]).anyTimes();
+            EasyMock.expect(build.getAction(PerformanceBuildAction.class)).andReturn(
+                    number == 6 ? null : new PerformanceBuildAction(build, System.out, null))
+                    .anyTimes();
+            EasyMock.replay(build);
+            if (number != 5 && number != 6 && number != BUILDS) {
+                summary("r.jtl", number == 2 ? "Search" : "Home").save(build);
+            }
+            builds[number] = build;
+            EasyMock.expect(project.getBuildByNumber(number)).andReturn(build).anyTimes();
+        }
+        EasyMock.expect(project.getBuildByNumber(EasyMock.anyInt())).andReturn(null).anyTimes();
+        EasyMock.expect(project.getLastBuild()).andReturn(builds[BUILDS]).anyTimes();
+        EasyMock.replay(project);
+    }
+
+    @Test
+    public void testBuildList() {
+        final CompareReportDetail detail = new CompareReportDetail(project, "r.jtl", null,
+                " 3, 1;x 5  99\t6 ");
+        assertEquals(Arrays.<AbstractBuild<?, ?>> asList(builds[3], builds[1]), detail
+                .getBuilds());
+        assertEquals("3, 1", detail.getBuildNumbers());
+        assertEquals(Arrays.asList("x", "5", "99", "6"), detail.getMissingBuilds());
+        assertNull(detail.getUri());
+    }
+
+    @Test
+    public void testMaxBuilds() {
+        final CompareReportDetail detail = new CompareReportDetail(project, "r.jtl", "",
+                "1 2 3 4 7 8 9 10 11 12 13 5");
+        assertEquals(CompareReportDetail.MAX_BUILDS, detail.getBuilds().size());
+        assertEquals("1, 2, 3, 4, 7, 8, 9, 10, 11, 12", detail.getBuildNumbers());
+        // the list stops at the cap, the later builds are not even looked up
+        assertTrue(detail.getMissingBuilds().isEmpty());
+    }
+
+    @Test
+    public void testLastTwoBuilds() {
+        final CompareReportDetail detail = new CompareReportDetail(project, "r.jtl", null, null);
+        assertEquals("13, 12", detail.getBuildNumbers());
+        assertTrue(detail.getMissingBuilds().isEmpty());
+        // a blank list is no list
+        assertEquals("13, 12", new CompareReportDetail(project, "r.jtl", null, "  ")
+                .getBuildNumbers());
+    }
+
+    @Test
+    public void testMissingReport() {
+        final CompareReportDetail detail = new CompareReportDetail(project, "other.jtl", null,
+                "1, 3");
+        assertTrue(detail.getBuilds().isEmpty());
+        assertEquals(Arrays.asList("1", "3"), detail.getMissingBuilds());
+    }
+
+    @Test
+    public void testUris() {
+        final CompareReportDetail detail = new CompareReportDetail(project, "r.jtl", "Home",
+                "1, 2");
+        assertEquals(Arrays.asList("Home", "Search"), Arrays.asList(detail.getUris().values()
+                .toArray()));
+        assertNotNull(detail.getHistogram(builds[1]));
+        // build 2 did not sample the compared URI
+        assertNull(detail.getHistogram(builds[2]));
+        assertEquals(10, new CompareReportDetail(project, "r.jtl", null, "2").getHistogram(
+                builds[2]).getTotalCount());
+    }
+}
@@ -0,0 +1,114 @@
+package hudson.plugins.performance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ConcurrencyProfileTest {
+
+    private static HttpSample sample(long timestamp, long duration, int activeThreads) {
+        final HttpSample sample = new HttpSample();
+        sample.setDate(new Date(timestamp));
+        sample.setDuration(duration);
+        sample.setSuccessful(true);
+        sample.setActiveThreads(activeThreads);
+        return sample;
+    }
+
+    @Test
+    public void testLevels() {
+        final ConcurrencyProfile profile = new ConcurrencyProfile();
+        // 10 s at 10 threads then 10 s at 20 threads, each thread sending a
+        // request every 100 ms
+        for (int i = 0; i < 1000; i++) {
+            profile.add(sample(i * 10L, 100, 10));
+        }
+        for (int i = 0; i < 2000; i++) {
+            profile.add(sample(10000L + i * 5L, 200, 20));
+        }
+        profile.add(sample(30000L, 100, 0));
+        final List<ConcurrencyProfile.Level> levels = profile.getLevels();
+        assertEquals(2, levels.size());
+        assertEquals(10, levels.get(0).getUsers());
+        assertEquals(1000, levels.get(0).getCount());
+        assertEquals(100, levels.get(0).getMedian());
+        assertEquals(100, levels.get(0).getThroughput(), 1);
+        assertEquals(20, levels.get(1).getUsers());
+        assertEquals(200, levels.get(1).getAverage());
+        assertEquals(200, levels.get(1).getThroughput(), 5);
+    }
+
+    /**
+     * Adds 10 s of samples of the given number of threads, each thread
+     * sending its next request when the previous one ends.
+     */
+    private static void addLevel(ConcurrencyProfile profile, long start, int users, long duration) {
+        final int count = (int) (10000 * users / duration);
+        for (int i = 0; i < count; i++) {
+            profile.add(sample(start + i * 10000L / count, duration, users));
+        }
+    }
+
+    @Test
+    public void testKnee() {
+        final ConcurrencyProfile profile = new ConcurrencyProfile();
+        // scales linearly up to 30 threads, then the response times grow
+        // with the threads and the throughput stays at 300 samples/s
+        addLevel(profile, 0, 10, 100);
+        addLevel(profile, 10000, 20, 100);
+        addLevel(profile, 20000, 30, 100);
+        addLevel(profile, 30000, 40, 133);
+        addLevel(profile, 40000, 50, 167);
+        assertEquals(30, profile.getCapacity());
+        assertEquals(30, profile.getKnee().getUsers());
+    }
+
+    @Test
+    public void testRampDown() {
+        final ConcurrencyProfile profile = new ConcurrencyProfile();
+        // ramps up to 30 threads then down again, the lower levels are
+        // visited twice
+        addLevel(profile, 0, 10, 100);
+        addLevel(profile, 10000, 20, 100);
+        addLevel(profile, 20000, 30, 100);
+        addLevel(profile, 30000, 20, 100);
+        addLevel(profile, 40000, 10, 100);
+        final List<ConcurrencyProfile.Level> levels = profile.getLevels();
+        assertEquals(3, levels.size());
+        assertEquals(2000, levels.get(0).getCount());
+        assertEquals(100, levels.get(0).getThroughput(), 2);
+        assertEquals(200, levels.get(1).getThroughput(), 4);
+        assertEquals(300, levels.get(2).getThroughput(), 6);
+        assertEquals(0, profile.getCapacity());
+    }
+
+    @Test
+    public void testNoKnee() {
+        final ConcurrencyProfile profile = new ConcurrencyProfile();
+        addLevel(profile, 0, 10, 100);
+        addLevel(profile, 10000, 20, 100);
+        addLevel(profile, 20000, 30, 105);
+        assertEquals(0, profile.getCapacity());
+    }
+
+    @Test
+    public void testCoarsening() {
+        final ConcurrencyProfile profile = new ConcurrencyProfile(10);
+        for (int users = 1; users < 40; users++) {
+            profile.add(sample(users * 1000L, 100, users));
+        }
+        assertEquals(4, profile.getWidth());
+        final List<ConcurrencyProfile.Level> levels = profile.getLevels();
+        assertTrue(levels.size() <= 10);
+        int count = 0;
+        for (final ConcurrencyProfile.Level level : levels) {
+            assertEquals(0, level.getUsers() % 4);
+            count += level.getCount();
+        }
+        assertEquals(39, count);
+    }
+}
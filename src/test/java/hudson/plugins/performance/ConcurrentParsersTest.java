@@ -0,0 +1,79 @@
+package hudson.plugins.performance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class ConcurrentParsersTest {
+
+    @Test
+    public void testReportDirectoryNames() {
+        assertEquals(Arrays.asList("JMeter", "JUnit", "JMeter-2", "JMeter-3"),
+                PerformanceReportMap.getReportDirectoryNames(Arrays.asList("JMeter", "JUnit",
+                        "JMeter", "JMeter")));
+        assertEquals(Collections.emptyList(),
+                PerformanceReportMap.getReportDirectoryNames(Collections.<String> emptyList()));
+    }
+
+    @Test
+    public void testRunConcurrently() throws Exception {
+        // each run waits for all the others, which only ends if they run at once
+        final CountDownLatch started = new CountDownLatch(3);
+        final List<Boolean> done = Collections.synchronizedList(new ArrayList<Boolean>());
+        final List<Callable<Void>> runs = new ArrayList<Callable<Void>>();
+        for (int i = 0; i < 3; i++) {
+            runs.add(new Callable<Void>() {
+                public Void call() throws Exception {
+                    started.countDown();
+                    done.add(started.await(10, TimeUnit.SECONDS));
+                    return null;
+                }
+            });
+        }
+        PerformancePublisher.runConcurrently(runs);
+        assertEquals(Arrays.asList(true, true, true), done);
+    }
+
+    @Test
+    public void testRunConcurrentlyFailure() throws Exception {
+        final List<Callable<Void>> runs = new ArrayList<Callable<Void>>();
+        runs.add(new Callable<Void>() {
+            public Void call() {
+                return null;
+            }
+        });
+        runs.add(new Callable<Void>() {
+            public Void call() throws IOException {
+                throw new IOException("unreadable");
+            }
+        });
+        try {
+            PerformancePublisher.runConcurrently(runs);
+            fail();
+        } catch (final IOException e) {
+            assertEquals("unreadable", e.getMessage());
+        }
+
+        // a single run is called on the current thread
+        final Thread current = Thread.currentThread();
+        final List<Boolean> same = new ArrayList<Boolean>();
+        PerformancePublisher.runConcurrently(Collections.singletonList(new Callable<Void>() {
+            public Void call() {
+                same.add(Thread.currentThread() == current);
+                return null;
+            }
+        }));
+        assertTrue(same.get(0));
+    }
+}
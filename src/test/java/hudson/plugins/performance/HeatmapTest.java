@@ -0,0 +1,52 @@
+package hudson.plugins.performance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+
+import org.junit.Test;
+
+public class HeatmapTest {
+
+    @Test
+    public void testBands() {
+        for (long value = 0; value < 100000; value++) {
+            final int band = Heatmap.bandOf(value);
+            assertTrue(Heatmap.lowerBound(band) <= value);
+            assertTrue(Heatmap.lowerBound(band + 1) > value);
+        }
+        for (int band = 8; band < 60; band++) {
+            assertEquals(band, Heatmap.bandOf(Heatmap.lowerBound(band)));
+        }
+    }
+
+    @Test
+    public void testBimodal() {
+        final Timeline timeline = new Timeline(10);
+        for (int i = 0; i < 1000; i++) {
+            final HttpSample sample = new HttpSample();
+            sample.setDate(new Date(i * 100L));
+            // cache hits around 10 ms and misses around 800 ms
+            sample.setDuration(i % 4 == 0 ? 800 + i % 7 : 10 + i % 3);
+            sample.setSuccessful(true);
+            timeline.add(sample);
+        }
+        final Heatmap heatmap = new Heatmap(timeline);
+        assertEquals(10, heatmap.getColumnCount());
+        assertEquals(Heatmap.bandOf(10), heatmap.getMinBand());
+        assertEquals(Heatmap.bandOf(806), heatmap.getMaxBand());
+        long total = 0;
+        long between = 0;
+        for (int column = 0; column < heatmap.getColumnCount(); column++) {
+            for (int band = heatmap.getMinBand(); band <= heatmap.getMaxBand(); band++) {
+                total += heatmap.getCount(column, band);
+                if (band > Heatmap.bandOf(12) && band < Heatmap.bandOf(800)) {
+                    between += heatmap.getCount(column, band);
+                }
+            }
+        }
+        assertEquals(1000, total);
+        assertEquals(0, between);
+    }
+}
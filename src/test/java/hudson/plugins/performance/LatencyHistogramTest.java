@@ -0,0 +1,96 @@
+package hudson.plugins.performance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBuckets() {
+        for (long value = 0; value < 1000000; value = value * 3 / 2 + 1) {
+            final int index = LatencyHistogram.indexOf(value);
+            assertTrue(LatencyHistogram.lowerBound(index) <= value);
+            assertTrue(LatencyHistogram.upperBound(index) >= value);
+        }
+        // exact below twice the number of sub-buckets
+        for (int value = 0; value < 2 * LatencyHistogram.SUB_BUCKETS; value++) {
+            assertEquals(value, LatencyHistogram.lowerBound(LatencyHistogram.indexOf(value)));
+        }
+    }
+
+    @Test
+    public void testPercentileError() {
+        final Random random = new Random(42);
+        final long[] values = new long[10000];
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < values.length; i++) {
+            // long tailed, from a few ms to a few seconds
+            values[i] = (long) Math.exp(random.nextDouble() * 9);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        for (final double percentile : new double[] { 10, 50, 90, 95, 99, 99.9 }) {
+            final long exact = values[(int) (values.length * percentile / 100)];
+            final long value = histogram.getValueAtPercentile(percentile);
+            assertTrue(percentile + ": " + value + " for " + exact, value >= exact);
+            assertTrue(percentile + ": " + value + " for " + exact,
+                    value - exact <= exact / LatencyHistogram.SUB_BUCKETS);
+        }
+        assertEquals(values[0], histogram.getValueAtPercentile(0));
+        assertEquals(values[values.length - 1], histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testAdd() {
+        final LatencyHistogram all = new LatencyHistogram();
+        final LatencyHistogram fast = new LatencyHistogram();
+        final LatencyHistogram slow = new LatencyHistogram();
+        for (int i = 0; i < 100; i++) {
+            fast.record(10 + i % 5);
+            slow.record(2000 + i * 10);
+            all.record(10 + i % 5);
+            all.record(2000 + i * 10);
+        }
+        fast.add(slow);
+        assertEquals(200, fast.getTotalCount());
+        assertEquals(10, fast.getMin());
+        assertEquals(2990, fast.getMax());
+        for (final double percentile : new double[] { 25, 50, 75, 99 }) {
+            assertEquals(all.getValueAtPercentile(percentile),
+                    fast.getValueAtPercentile(percentile));
+        }
+        // adding an empty histogram changes nothing
+        fast.add(new LatencyHistogram());
+        assertEquals(200, fast.getTotalCount());
+        assertEquals(10, fast.getMin());
+    }
+
+    @Test
+    public void testEncodeDecode() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(0);
+        histogram.record(15, 3);
+        histogram.record(1234);
+        histogram.record(987654);
+        final LatencyHistogram decoded = LatencyHistogram.decode(histogram.encode());
+        assertEquals(histogram.getTotalCount(), decoded.getTotalCount());
+        // the extremes are only known to the precision of their buckets
+        assertEquals(histogram.getMin(), decoded.getMin());
+        assertEquals(LatencyHistogram.upperBound(LatencyHistogram.indexOf(987654)),
+                decoded.getMax());
+        assertEquals(histogram.getBucketCount(), decoded.getBucketCount());
+        for (int i = 0; i < histogram.getBucketCount(); i++) {
+            assertEquals(histogram.getCountAt(i), decoded.getCountAt(i));
+        }
+        assertEquals(histogram.encode(), decoded.encode());
+
+        final LatencyHistogram empty = LatencyHistogram.decode(new LatencyHistogram().encode());
+        assertTrue(empty.isEmpty());
+        assertEquals(0, empty.getValueAtPercentile(50));
+    }
+}
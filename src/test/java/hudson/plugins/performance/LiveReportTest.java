@@ -0,0 +1,177 @@
+package hudson.plugins.performance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import hudson.util.StreamTaskListener;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+public class LiveReportTest {
+
+    @Test
+    public void testTailedReportMatchesParsedReport() throws IOException {
+        final File file = new File("src/test/resources/JMeterResultsMultiLevel.jtl");
+        final PerformanceReport parsed = new JMeterParser("").parse(null,
+                Collections.singleton(file), new StreamTaskListener(System.out))
+                .iterator().next();
+
+        final LiveReport live = new LiveReport(file.getName(), new JMeterParser(""));
+        final String content = read(file);
+        // feed the file the way it is tailed: complete lines, a few at a time
+        int offset = 0;
+        while (offset < content.length()) {
+            int end = content.indexOf('\n', Math.min(content.length(), offset + 300));
+            end = end < 0 ? content.length() : end + 1;
+            live.consume(content.substring(offset, end), end);
+            offset = end;
+        }
+
+        final PerformanceReport tailed = live.getReport();
+        assertEquals(parsed.getUriReportMap().keySet(), tailed.getUriReportMap().keySet());
+        for (final String uri : parsed.getUriReportMap().keySet()) {
+            assertEquals(parsed.getUriReportMap().get(uri).getHttpSampleList().size(),
+                    tailed.getUriReportMap().get(uri).getHttpSampleList().size());
+        }
+        assertEquals(parsed.size(), live.getSamples());
+    }
+
+    @Test
+    public void testSlidingWindow() {
+        final LiveReport live = new LiveReport("live.csv", new JMeterParser(""));
+        final StringBuilder lines = new StringBuilder("timeStamp,elapsed,label,success\n");
+        for (int second = 0; second < 2 * LiveReport.WINDOW_SECONDS; second++) {
+            lines.append(second * 1000L).append(',').append(second < LiveReport.WINDOW_SECONDS
+                    ? 1000 : 100).append(",page,").append(second % 10 != 0).append('\n');
+        }
+        live.consume(lines.toString(), lines.length());
+
+        assertEquals(2 * LiveReport.WINDOW_SECONDS, live.getSamples());
+        assertEquals(1.0, live.getThroughput(), 0.001);
+        assertEquals(10.0, live.getErrorPercent(), 0.001);
+        assertEquals(100, live.getPercentile(99));
+    }
+
+    @Test
+    public void testReadChunk() throws IOException {
+        final File file = File.createTempFile("live", ".csv");
+        try {
+            write(file, "a\nb\nc");
+            PerformanceLiveWrapper.Chunk chunk = new PerformanceLiveWrapper.ReadChunk(0, false,
+                    false).invoke(file, null);
+            // the incomplete last line is left for the next read
+            assertEquals("a\nb\n", new String(chunk.data, "UTF-8"));
+            assertEquals(4, chunk.nextOffset);
+            assertTrue(chunk.more);
+            chunk = new PerformanceLiveWrapper.ReadChunk(4, false, true).invoke(file, null);
+            assertEquals("c", new String(chunk.data, "UTF-8"));
+            assertFalse(chunk.restarted);
+
+            // a truncated file is read again from its start
+            write(file, "d\n");
+            chunk = new PerformanceLiveWrapper.ReadChunk(5, false, false).invoke(file, null);
+            assertTrue(chunk.restarted);
+            assertEquals("d\n", new String(chunk.data, "UTF-8"));
+            assertEquals(2, chunk.nextOffset);
+
+            // a line longer than a chunk is skipped
+            final StringBuilder content = new StringBuilder();
+            while (content.length() <= PerformanceLiveWrapper.MAX_CHUNK_BYTES) {
+                content.append("0123456789");
+            }
+            content.append("\ne\n");
+            write(file, content.toString());
+            final StringBuilder read = new StringBuilder();
+            long offset = 0;
+            boolean skipping = false;
+            do {
+                chunk = new PerformanceLiveWrapper.ReadChunk(offset, skipping, false).invoke(
+                        file, null);
+                read.append(new String(chunk.data, "UTF-8"));
+                offset = chunk.nextOffset;
+                skipping = chunk.skippingLine;
+            } while (chunk.more);
+            assertEquals("e\n", read.toString());
+            assertEquals(content.length(), offset);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testTakeCompletedReport() {
+        final PerformanceLiveAction action = new PerformanceLiveAction(null, 10);
+        final JMeterParser parser = new JMeterParser("");
+        action.getLiveReport("a/results.jtl", "results.jtl", parser).complete();
+        action.getLiveReport("b/results.jtl", "results.jtl", parser).complete();
+        action.getLiveReport("other.jtl", "other.jtl", parser).complete();
+        action.getLiveReport("second.jtl", "second.jtl", parser).complete();
+        // not read up to its end
+        action.getLiveReport("unread.jtl", "unread.jtl", parser);
+        assertEquals(5, action.getLiveReports().size());
+        action.complete();
+        assertEquals(4, action.getLiveReports().size());
+
+        // two files of the same name cannot be told apart, both are released
+        assertNull(action.takeCompletedReport("results.jtl", parser));
+        assertEquals(2, action.getLiveReports().size());
+        assertEquals("other.jtl", action.takeCompletedReport("other.jtl", parser)
+                .getReportFileName());
+        // another parser has other settings, it parses the file again
+        assertNull(action.takeCompletedReport("second.jtl", new JMeterParser("")));
+        assertTrue(action.getLiveReports().isEmpty());
+    }
+
+    @Test
+    public void testRelease() {
+        final PerformanceLiveAction action = new PerformanceLiveAction(null, 10);
+        action.getLiveReport("results.jtl", "results.jtl", new JMeterParser("")).complete();
+        action.release();
+        assertTrue(action.getLiveReports().isEmpty());
+        assertNull(action.takeCompletedReport("results.jtl", new JMeterParser("")));
+    }
+
+    @Test
+    public void testCrLf() {
+        final LiveReport live = new LiveReport("live.csv", new JMeterParser(""));
+        final String lines = "timeStamp,elapsed,label,success,Connect\r\n"
+                + "1000,200,page,true,15\r\n2000,300,page,true,20\r\n";
+        live.consume(lines, lines.length());
+        final List<HttpSample> samples = live.getReport().getUriReportMap().get("page")
+                .getHttpSampleList();
+        assertEquals(2, samples.size());
+        assertEquals(15, samples.get(0).getConnectTime());
+        assertEquals(20, samples.get(1).getConnectTime());
+    }
+
+    private static void write(File file, String content) throws IOException {
+        final FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+
+    private static String read(File file) throws IOException {
+        final FileInputStream in = new FileInputStream(file);
+        try {
+            final byte[] bytes = new byte[(int) file.length()];
+            int read = 0;
+            while (read < bytes.length) {
+                read += in.read(bytes, read, bytes.length - read);
+            }
+            return new String(bytes, "UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+}
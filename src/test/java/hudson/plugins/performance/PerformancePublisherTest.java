@@ -1,9 +1,17 @@
 package hudson.plugins.performance;
 
 import static java.util.Arrays.asList;
+import hudson.Launcher;
+import hudson.model.AbstractBuild;
+import hudson.model.BuildListener;
+import hudson.model.FreeStyleBuild;
 import hudson.model.FreeStyleProject;
 
+import java.io.File;
+import java.io.IOException;
+
 import org.jvnet.hudson.test.HudsonTestCase;
+import org.jvnet.hudson.test.TestBuilder;
 
 /**
  * @author Kohsuke Kawaguchi
@@ -29,6 +37,33 @@ public class PerformancePublisherTest extends HudsonTestCase {
                 .get(0).getClass());
     }
 
+    public void testParsersOfTheSameType() throws Exception {
+        final FreeStyleProject p = createFreeStyleProject();
+        p.getBuildersList().add(new TestBuilder() {
+            @Override
+            public boolean perform(AbstractBuild<?, ?> build, Launcher launcher,
+                    BuildListener listener) throws InterruptedException, IOException {
+                build.getWorkspace().child("a/test.jtl").copyFrom(
+                        getClass().getResource("/JMeterResults.jtl"));
+                build.getWorkspace().child("b/test.jtl").copyFrom(
+                        getClass().getResource("/JMeterResultsMultiThread.jtl"));
+                return true;
+            }
+        });
+        p.getPublishersList().add(new PerformancePublisher(100, 100, 100000, false,
+                asList(new JMeterParser("a/*.jtl"), new JMeterParser("b/*.jtl"))));
+
+        final FreeStyleBuild b = p.scheduleBuild2(0).get();
+        // the parsers run concurrently, each one copies into its own directory
+        assertTrue(new File(b.getRootDir(), "performance-reports/JMeter/test.jtl").exists());
+        assertTrue(new File(b.getRootDir(), "performance-reports/JMeter-2/test.jtl").exists());
+
+        // and their console output is replayed in order, before the gates
+        final String log = b.getLog();
+        assertTrue(log.indexOf("'a/*.jtl'") < log.indexOf("'b/*.jtl'"));
+        assertTrue(log.indexOf("'b/*.jtl'") < log.indexOf("Performance: File test.jtl"));
+    }
+
     // public void testBuild() throws Exception {
     // final FreeStyleProject p = createFreeStyleProject();
     // p.getBuildersList().add(new TestBuilder() {
@@ -0,0 +1,141 @@
+package hudson.plugins.performance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.List;
+
+import net.sf.json.JSONObject;
+
+import org.junit.Test;
+import org.kohsuke.stapler.StaplerRequest;
+
+public class PerformanceReportParserDescriptorTest {
+
+    /**
+     * Request binding the form of a parser through its
+     * {@link org.kohsuke.stapler.DataBoundConstructor} only, like Stapler.
+     */
+    private static StaplerRequest request() {
+        return (StaplerRequest) Proxy.newProxyInstance(StaplerRequest.class.getClassLoader(),
+                new Class<?>[] { StaplerRequest.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args)
+                            throws Throwable {
+                        if (!method.getName().equals("bindJSON")) {
+                            throw new UnsupportedOperationException(method.getName());
+                        }
+                        final JSONObject form = (JSONObject) args[1];
+                        return ((Class<?>) args[0]).getConstructor(String.class).newInstance(
+                                form.getString("glob"));
+                    }
+                });
+    }
+
+    /**
+     * Form submitted by the configuration page of the parser.
+     */
+    private static JSONObject form(PerformanceReportParser parser) {
+        final JSONObject form = new JSONObject();
+        form.put("kind", JMeterParser.DescriptorImpl.class.getName());
+        form.put("stapler-class", JMeterParser.class.getName());
+        form.put("glob", parser.glob);
+        form.put("parseTimeoutSec", String.valueOf(parser.getParseTimeoutSec()));
+        form.put("maxSamples", String.valueOf(parser.getMaxSamples()));
+        form.put("maxMemoryMb", String.valueOf(parser.getMaxMemoryMb()));
+        form.put("includeLabels", parser.getIncludeLabels());
+        form.put("excludeLabels", parser.getExcludeLabels());
+        form.put("windowStart", parser.getWindowStart());
+        form.put("windowEnd", parser.getWindowEnd());
+        form.put("responseCodes", parser.getResponseCodes());
+        form.put("samplesPerUri", String.valueOf(parser.getSamplesPerUri()));
+        form.put("warmUpSec", String.valueOf(parser.getWarmUpSec()));
+        form.put("coolDownSec", String.valueOf(parser.getCoolDownSec()));
+        form.put("detectSteadyState", parser.isDetectSteadyState());
+        form.put("labelRules", parser.getLabelRules());
+        form.put("maxUris", String.valueOf(parser.getMaxUris()));
+        form.put("timelineIntervalSec", String.valueOf(parser.getTimelineIntervalSec()));
+        form.put("percentileWindowSec", String.valueOf(parser.getPercentileWindowSec()));
+        form.put("apdexThresholdMs", String.valueOf(parser.getApdexThresholdMs()));
+        form.put("apdexRules", parser.getApdexRules());
+        form.put("expectedIntervalMs", String.valueOf(parser.getExpectedIntervalMs()));
+        form.put("robustStatistics", parser.isRobustStatistics());
+        form.put("runPattern", parser.getRunPattern());
+        return form;
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        final JMeterParser parser = new JMeterParser("**/*.jtl");
+        parser.setParseTimeoutSec(60);
+        parser.setMaxSamples(100000);
+        parser.setMaxMemoryMb(64);
+        parser.setIncludeLabels("Home|Search");
+        parser.setExcludeLabels(".*static.*");
+        parser.setWindowStart("2010-12-01 10:00:00");
+        parser.setWindowEnd("2010-12-01 11:00:00");
+        parser.setResponseCodes("200,302");
+        parser.setSamplesPerUri(500);
+        parser.setWarmUpSec(30);
+        parser.setCoolDownSec(10);
+        parser.setDetectSteadyState(true);
+        parser.setLabelRules("/item/\\d+ => /item/{id}");
+        parser.setMaxUris(50);
+        parser.setTimelineIntervalSec(5);
+        parser.setPercentileWindowSec(30);
+        parser.setApdexThresholdMs(500);
+        parser.setApdexRules("/search.* => 2000");
+        parser.setExpectedIntervalMs(100);
+        parser.setRobustStatistics(true);
+        parser.setRunPattern("(.*)-run\\d+\\.jtl");
+
+        final JSONObject publisherForm = new JSONObject();
+        publisherForm.put("parsers", form(parser));
+        final List<PerformanceReportParser> parsers = PerformancePublisher.DescriptorImpl
+                .bindParsers(request(), publisherForm,
+                        Arrays.asList(new JUnitParser.DescriptorImpl(), new JMeterParser.DescriptorImpl()));
+        assertEquals(1, parsers.size());
+        assertTrue(parsers.get(0) instanceof JMeterParser);
+        final PerformanceReportParser bound = parsers.get(0);
+        assertEquals("**/*.jtl", bound.glob);
+        assertEquals(60, bound.getParseTimeoutSec());
+        assertEquals(100000, bound.getMaxSamples());
+        assertEquals(64, bound.getMaxMemoryMb());
+        assertEquals("Home|Search", bound.getIncludeLabels());
+        assertEquals(".*static.*", bound.getExcludeLabels());
+        assertEquals("2010-12-01 10:00:00", bound.getWindowStart());
+        assertEquals("2010-12-01 11:00:00", bound.getWindowEnd());
+        assertEquals("200,302", bound.getResponseCodes());
+        assertEquals(500, bound.getSamplesPerUri());
+        assertEquals(30, bound.getWarmUpSec());
+        assertEquals(10, bound.getCoolDownSec());
+        assertTrue(bound.isDetectSteadyState());
+        assertEquals("/item/\\d+ => /item/{id}", bound.getLabelRules());
+        assertEquals(50, bound.getMaxUris());
+        assertEquals(5, bound.getTimelineIntervalSec());
+        assertEquals(30, bound.getPercentileWindowSec());
+        assertEquals(500, bound.getApdexThresholdMs());
+        assertEquals("/search.* => 2000", bound.getApdexRules());
+        assertEquals(100, bound.getExpectedIntervalMs());
+        assertTrue(bound.isRobustStatistics());
+        assertEquals("(.*)-run\\d+\\.jtl", bound.getRunPattern());
+    }
+
+    @Test
+    public void testDefaults() throws Exception {
+        final JSONObject form = new JSONObject();
+        form.put("kind", JMeterParser.DescriptorImpl.class.getName());
+        form.put("glob", "**/*.jtl");
+        final JSONObject publisherForm = new JSONObject();
+        publisherForm.put("parsers", form);
+        final PerformanceReportParser bound = PerformancePublisher.DescriptorImpl.bindParsers(
+                request(), publisherForm, Arrays.asList(new JMeterParser.DescriptorImpl())).get(0);
+        assertEquals(0, bound.getParseTimeoutSec());
+        assertEquals(0, bound.getSamplesPerUri());
+        assertEquals(null, bound.getIncludeLabels());
+        assertEquals(null, bound.getRunPattern());
+    }
+}
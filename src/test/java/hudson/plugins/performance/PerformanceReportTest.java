@@ -3,11 +3,15 @@ package hudson.plugins.performance;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import hudson.util.StreamTaskListener;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.PrintStream;
 import java.util.Collections;
 import java.util.Date;
@@ -96,6 +100,29 @@ public class PerformanceReportTest {
         assertTrue(secondHttpSample.isSuccessful());
     }
 
+    @Test
+    public void testExtendedAttributes() throws IOException {
+        final PerformanceReport performanceReport = parseOneJMeter(new File(
+                "src/test/resources/JMeterResults.jtl"));
+        final UriReport home = performanceReport.getUriReportMap().get("Home");
+        final HttpSample sample = home.getHttpSampleList().get(0);
+        assertEquals(9770, sample.getLatency());
+        assertEquals(-1, sample.getConnectTime());
+        assertEquals(771065, sample.getBytes());
+        assertEquals("Sesiones de usuario 1-2", sample.getThreadName());
+        assertNull(sample.getHostname());
+        assertTrue(performanceReport.hasNetworkStatistics());
+        assertEquals(2 * 771065L + 2 * 771149L, home.getTotalBytes());
+        assertTrue(home.getAverageLatency() > 0);
+        assertTrue(home.getAverageLatency() < home.getAverage());
+        assertEquals(0, home.getAverageConnectTime());
+
+        // the strings are shared between the samples, not copied
+        final HttpSample next = home.getHttpSampleList().get(1);
+        assertSame(sample.getUri(), next.getUri());
+        assertSame(sample.getHttpCode(), next.getHttpCode());
+    }
+
     private PerformanceReport parseOneJMeter(File f) throws IOException {
         return new JMeterParser("").parse(null, Collections.singleton(f),
                 new StreamTaskListener(System.out)).iterator().next();
@@ -126,6 +153,141 @@ public class PerformanceReportTest {
         }
     }
 
+    @Test
+    public void testPerformanceReportTruncatedByMaxSamples() throws IOException {
+        final JMeterParser parser = new JMeterParser("");
+        parser.setMaxSamples(3);
+        final PerformanceReport performanceReport = parser.parse(null,
+                Collections.singleton(new File(
+                        "src/test/resources/JMeterResultsMultiThread.jtl")),
+                new StreamTaskListener(System.out)).iterator().next();
+
+        assertTrue(performanceReport.isTruncated());
+        final UriReport report = performanceReport.getUriReportMap().get(
+                "WebService(SOAP) Request");
+        assertEquals(3, report.getHttpSampleList().size());
+    }
+
+    @Test
+    public void testPerformanceReportTrimmedAndTruncated() throws IOException {
+        final JMeterParser parser = new JMeterParser("");
+        parser.setWarmUpSec(1);
+        parser.setMaxSamples(3);
+        final PerformanceReport performanceReport = parser.parse(null,
+                Collections.singleton(new File(
+                        "src/test/resources/JMeterResultsMultiThread.jtl")),
+                new StreamTaskListener(System.out)).iterator().next();
+
+        assertTrue(performanceReport.isTruncated());
+        assertTrue(performanceReport.size() <= 3);
+    }
+
+    private static int samplesWithin(PerformanceReportParser parser) {
+        final ParseGuard guard = new ParseGuard(parser);
+        int samples = 0;
+        try {
+            while (true) {
+                guard.checkpoint();
+                samples++;
+            }
+        } catch (ParseLimitException e) {
+            return samples;
+        }
+    }
+
+    @Test
+    public void testMemoryBudget() {
+        final JMeterParser parser = new JMeterParser("");
+        parser.setMaxMemoryMb(1);
+        assertEquals(1024 * 1024 / ParseGuard.ESTIMATED_SAMPLE_BYTES, samplesWithin(parser));
+        // a reservoir keeps the budget, with the smaller footprint of the
+        // samples which are not kept
+        parser.setSamplesPerUri(100);
+        assertEquals(1024 * 1024 / ParseGuard.ESTIMATED_RESERVOIR_SAMPLE_BYTES,
+                samplesWithin(parser));
+    }
+
+    @Test
+    public void testPerformanceReportCsv() throws IOException {
+        final PerformanceReport performanceReport = parseOneJMeter(new File(
+                "src/test/resources/JMeterResults.csv"));
+        final Map<String, UriReport> uriReportMap = performanceReport
+                .getUriReportMap();
+        assertEquals(3, uriReportMap.size());
+        final HttpSample firstHttpSample = uriReportMap.get("Home")
+                .getHttpSampleList().get(0);
+        assertEquals(14720, firstHttpSample.getDuration());
+        assertEquals(new Date(1296846793179L), firstHttpSample.getDate());
+        assertTrue(firstHttpSample.isSuccessful());
+        final HttpSample failedHttpSample = uriReportMap.get("Search, advanced")
+                .getHttpSampleList().get(0);
+        assertEquals("500", failedHttpSample.getHttpCode());
+        assertFalse(failedHttpSample.isSuccessful());
+    }
+
+    @Test
+    public void testPerformanceReportFiltered() throws IOException {
+        final JMeterParser parser = new JMeterParser("");
+        parser.setExcludeLabels("^Work");
+        parser.setWindowStart("1296846793179");
+        PerformanceReport performanceReport = parser.parse(null,
+                Collections.singleton(new File("src/test/resources/JMeterResults.jtl")),
+                new StreamTaskListener(System.out)).iterator().next();
+        assertEquals(Collections.singleton("Home"), performanceReport.getUriReportMap()
+                .keySet());
+
+        parser.setExcludeLabels(null);
+        parser.setResponseCodes("!500");
+        performanceReport = parser.parse(null,
+                Collections.singleton(new File("src/test/resources/JMeterResults.csv")),
+                new StreamTaskListener(System.out)).iterator().next();
+        assertEquals(2, performanceReport.getUriReportMap().size());
+        assertNull(performanceReport.getUriReportMap().get("Search, advanced"));
+    }
+
+    @Test
+    public void testPerformanceReportLabelRules() throws IOException {
+        final JMeterParser parser = new JMeterParser("");
+        parser.setLabelRules("# collapse the pages\n^(Home|Workgroup)$ => page");
+        PerformanceReport performanceReport = parser.parse(null,
+                Collections.singleton(new File("src/test/resources/JMeterResults.jtl")),
+                new StreamTaskListener(System.out)).iterator().next();
+        assertEquals(Collections.singleton("page"), performanceReport.getUriReportMap()
+                .keySet());
+
+        parser.setLabelRules(null);
+        parser.setMaxUris(1);
+        performanceReport = parser.parse(null,
+                Collections.singleton(new File("src/test/resources/JMeterResults.csv")),
+                new StreamTaskListener(System.out)).iterator().next();
+        assertEquals(2, performanceReport.getUriReportMap().size());
+        assertTrue(performanceReport.isUriLimitReached());
+        assertEquals(2, performanceReport.getUriReportMap().get(PerformanceReport.OTHER_URI)
+                .getHttpSampleList().size());
+    }
+
+    private static void assertInterrupted(PerformanceReportParser parser, String file)
+            throws IOException {
+        Thread.currentThread().interrupt();
+        try {
+            parser.parse(null, Collections.singleton(new File(file)),
+                    new StreamTaskListener(System.out));
+            fail("the parse of " + file + " was not interrupted");
+        } catch (final InterruptedIOException e) {
+            // expected, whatever the number of samples
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    public void testParseInterrupted() throws IOException {
+        assertInterrupted(new JMeterParser(""), "src/test/resources/JMeterResults.csv");
+        assertInterrupted(new JUnitParser(""), "src/test/resources/TEST-JUnitResults.xml");
+        assertInterrupted(new JmeterSummarizerParser(""), "src/test/resources/summary.csv");
+        assertInterrupted(new JMeterAggregateParser(""), "src/test/resources/aggregateReport.csv");
+    }
+
     @Test
     public void testPerformanceReportJUnit() throws IOException {
         final PerformanceReport performanceReport = parseOneJUnit(new File(
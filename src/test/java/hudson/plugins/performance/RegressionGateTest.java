@@ -0,0 +1,197 @@
+package hudson.plugins.performance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.Result;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.easymock.classextension.EasyMock;
+import org.junit.Test;
+
+public class RegressionGateTest {
+
+    @Test
+    public void testDefaults() {
+        final RegressionGate gate = new RegressionGate("unknown", -1, 0, 100, -5, 30);
+        assertEquals(RegressionGate.LAST_SUCCESSFUL, gate.getBaseline());
+        assertEquals(0, gate.getPinnedBuild());
+        assertEquals(1, gate.getMedianBuilds());
+        assertEquals(99, gate.getPercentile());
+        assertEquals(0, gate.getUnstableTolerance());
+        assertEquals(30, gate.getFailedTolerance());
+    }
+
+    /**
+     * Summary of a report of 100 samples of the same URI.
+     */
+    private static PerformanceSummary summary(String fileName, long duration, long intervalMs) {
+        final PerformanceReport report = new PerformanceReport();
+        report.setReportFileName(fileName);
+        for (int i = 0; i < 100; i++) {
+            final HttpSample sample = new HttpSample();
+            sample.setUri("Home");
+            sample.setDuration(duration);
+            sample.setDate(new Date(i * intervalMs));
+            sample.setSuccessful(true);
+            report.addSample(sample);
+        }
+        return PerformanceSummary.of(Collections.singleton(report));
+    }
+
+    private static Result check(RegressionGate gate, PerformanceSummary summary,
+            PerformanceSummary... baselines) throws InterruptedException {
+        return gate.check(summary, Arrays.asList(baselines), new PrintStream(
+                new ByteArrayOutputStream()));
+    }
+
+    @Test
+    public void testNoBaseline() throws InterruptedException {
+        final ByteArrayOutputStream log = new ByteArrayOutputStream();
+        final RegressionGate gate = new RegressionGate(RegressionGate.LAST_SUCCESSFUL, 0, 1, 90,
+                1, 1);
+        assertEquals(Result.SUCCESS, gate.check(summary("r.jtl", 1000, 1000),
+                new ArrayList<PerformanceSummary>(), new PrintStream(log)));
+        assertTrue(log.toString().contains("no baseline"));
+    }
+
+    @Test
+    public void testPercentileRegression() throws InterruptedException {
+        final RegressionGate gate = new RegressionGate(RegressionGate.LAST_SUCCESSFUL, 0, 1, 90,
+                10, 30);
+        final PerformanceSummary baseline = summary("r.jtl", 100, 1000);
+        assertEquals(Result.SUCCESS, check(gate, summary("r.jtl", 105, 1000), baseline));
+        assertEquals(Result.UNSTABLE, check(gate, summary("r.jtl", 120, 1000), baseline));
+        assertEquals(Result.FAILURE, check(gate, summary("r.jtl", 140, 1000), baseline));
+        // faster is never a regression
+        assertEquals(Result.SUCCESS, check(gate, summary("r.jtl", 50, 1000), baseline));
+        // nor a report which is not in the baseline
+        assertEquals(Result.SUCCESS, check(gate, summary("other.jtl", 140, 1000), baseline));
+
+        // without an unstable tolerance, only the failure one applies
+        final RegressionGate failOnly = new RegressionGate(RegressionGate.LAST_SUCCESSFUL, 0, 1,
+                90, 0, 30);
+        assertEquals(Result.SUCCESS, check(failOnly, summary("r.jtl", 120, 1000), baseline));
+        assertEquals(Result.FAILURE, check(failOnly, summary("r.jtl", 140, 1000), baseline));
+    }
+
+    @Test
+    public void testThroughputRegression() throws InterruptedException {
+        final RegressionGate gate = new RegressionGate(RegressionGate.LAST_SUCCESSFUL, 0, 1, 90,
+                10, 40);
+        final PerformanceSummary baseline = summary("r.jtl", 100, 100);
+        // the same response times at three quarters of the throughput
+        assertEquals(Result.UNSTABLE, check(gate, summary("r.jtl", 100, 133), baseline));
+        assertEquals(Result.FAILURE, check(gate, summary("r.jtl", 100, 200), baseline));
+        // a higher throughput is not a regression
+        assertEquals(Result.SUCCESS, check(gate, summary("r.jtl", 100, 50), baseline));
+    }
+
+    @Test
+    public void testMedianOfBaselines() throws InterruptedException {
+        final RegressionGate gate = new RegressionGate(RegressionGate.MEDIAN, 0, 3, 90, 10, 30);
+        final PerformanceSummary current = summary("r.jtl", 125, 1000);
+        // 125 ms is 13.6% over the median of 110 ms, not over the slowest
+        assertEquals(Result.UNSTABLE, check(gate, current, summary("r.jtl", 100, 1000),
+                summary("r.jtl", 200, 1000), summary("r.jtl", 110, 1000)));
+        assertEquals(Result.SUCCESS, check(gate, current, summary("r.jtl", 120, 1000),
+                summary("r.jtl", 200, 1000), summary("r.jtl", 100, 1000)));
+    }
+
+    private static File tempDir() throws IOException {
+        final File dir = File.createTempFile("build", "");
+        dir.delete();
+        dir.mkdirs();
+        dir.deleteOnExit();
+        return dir;
+    }
+
+    /**
+     * Build whose root directory holds the given summary, if any, still to be
+     * replayed.
+     */
+    private static FreeStyleBuild build(PerformanceSummary summary) throws IOException {
+        final File rootDir = tempDir();
+        if (summary != null) {
+            final FreeStyleBuild saved = EasyMock.createMock(FreeStyleBuild.class);
+            EasyMock.expect(saved.getRootDir()).andReturn(rootDir).anyTimes();
+            EasyMock.replay(saved);
+            summary.save(saved);
+        }
+        final FreeStyleBuild build = EasyMock.createMock(FreeStyleBuild.class);
+        EasyMock.expect(build.getRootDir()).andReturn(rootDir).anyTimes();
+        return build;
+    }
+
+    @Test
+    public void testBaselineSummaries() throws IOException {
+        final PerformanceSummary first = summary("first.jtl", 100, 1000);
+        final PerformanceSummary third = summary("third.jtl", 100, 1000);
+        final FreeStyleBuild b1 = build(first);
+        final FreeStyleBuild b2 = build(null);
+        final FreeStyleBuild b3 = build(third);
+        final FreeStyleBuild current = EasyMock.createMock(FreeStyleBuild.class);
+        final FreeStyleProject project = EasyMock.createMock(FreeStyleProject.class);
+
+        EasyMock.expect(current.getProject()).andReturn(project).anyTimes();
+        EasyMock.expect(project.getBuildByNumber(1)).andReturn(b1).anyTimes();
+        EasyMock.expect(project.getBuildByNumber(2)).andReturn(b2).anyTimes();
+        // b2 failed, it has no summary
+        EasyMock.expect(current.getPreviousBuild()).andReturn(b3).anyTimes();
+        EasyMock.expect(current.getPreviousSuccessfulBuild()).andReturn(b3).anyTimes();
+        EasyMock.expect(b3.getPreviousBuild()).andReturn(b2).anyTimes();
+        EasyMock.expect(b3.getPreviousSuccessfulBuild()).andReturn(b1).anyTimes();
+        EasyMock.expect(b2.getPreviousBuild()).andReturn(b1).anyTimes();
+        EasyMock.expect(b1.getPreviousBuild()).andReturn(null).anyTimes();
+        EasyMock.expect(b1.getPreviousSuccessfulBuild()).andReturn(null).anyTimes();
+        EasyMock.replay(current, project, b1, b2, b3);
+
+        List<PerformanceSummary> baselines = new RegressionGate(RegressionGate.LAST_SUCCESSFUL,
+                0, 1, 90, 10, 30).getBaselineSummaries(current);
+        assertEquals(1, baselines.size());
+        assertEquals("third.jtl", baselines.get(0).getReports().get(0).getReportFileName());
+
+        baselines = new RegressionGate(RegressionGate.PINNED, 1, 1, 90, 10, 30)
+                .getBaselineSummaries(current);
+        assertEquals(1, baselines.size());
+        assertEquals("first.jtl", baselines.get(0).getReports().get(0).getReportFileName());
+
+        // a pinned build without a summary gives no baseline
+        assertTrue(new RegressionGate(RegressionGate.PINNED, 2, 1, 90, 10, 30)
+                .getBaselineSummaries(current).isEmpty());
+
+        // the median baseline skips the builds without a summary
+        baselines = new RegressionGate(RegressionGate.MEDIAN, 0, 5, 90, 10, 30)
+                .getBaselineSummaries(current);
+        assertEquals(2, baselines.size());
+        assertEquals("third.jtl", baselines.get(0).getReports().get(0).getReportFileName());
+        assertEquals("first.jtl", baselines.get(1).getReports().get(0).getReportFileName());
+
+        // no previous build, no baseline
+        assertTrue(new RegressionGate(RegressionGate.LAST_SUCCESSFUL, 0, 1, 90, 10, 30)
+                .getBaselineSummaries(b1).isEmpty());
+    }
+
+    @Test
+    public void testMedian() {
+        assertEquals(200, RegressionGate.median(Arrays.asList(300d, 100d, 200d)), 0);
+        assertEquals(150, RegressionGate.median(Arrays.asList(300d, 100d, 200d, 50d)), 0);
+    }
+
+    @Test
+    public void testIncrease() {
+        assertEquals(30, RegressionGate.increase(100, 130), 0.0001);
+        assertEquals(-25, RegressionGate.increase(200, 150), 0.0001);
+        assertEquals(0, RegressionGate.increase(0, 150), 0);
+    }
+}
@@ -0,0 +1,151 @@
+package hudson.plugins.performance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import hudson.util.StreamTaskListener;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+
+public class RepeatedRunsTest {
+
+    @Test
+    public void testInterval() {
+        final RepeatedRuns.Interval interval = new RepeatedRuns.Interval(new double[] { 100, 110,
+                90, 105, 95 });
+        assertEquals(5, interval.getCount());
+        assertEquals(100, interval.getMean(), 0.001);
+        assertEquals(62.5, interval.getVariance(), 0.001);
+        // t(4) = 2.776
+        assertEquals(2.776 * Math.sqrt(62.5 / 5), interval.getMargin(), 0.001);
+        assertEquals(interval.getMean() - interval.getMargin(), interval.getLow(), 0.001);
+        assertEquals(0, new RepeatedRuns.Interval(new double[] { 300 }).getMargin(), 0.001);
+    }
+
+    @Test
+    public void testRunGroup() {
+        final JMeterParser parser = new JMeterParser("");
+        assertNull(parser.getRunGroup("checkout-run1.jtl"));
+        parser.setRunPattern("(.*)-run\\d+\\.jtl");
+        assertEquals("checkout", parser.getRunGroup("checkout-run1.jtl"));
+        assertEquals("checkout", parser.getRunGroup("checkout-run12.jtl"));
+        assertNull(parser.getRunGroup("checkout.jtl"));
+        parser.setRunPattern("run\\d+\\.jtl");
+        assertEquals("run\\d+\\.jtl", parser.getRunGroup("run2.jtl"));
+    }
+
+    @Test
+    public void testGroup() throws IOException {
+        final JMeterParser parser = new JMeterParser("");
+        parser.setRunPattern("(JMeter)Results(MultiLevel)?\\.jtl");
+        final Collection<PerformanceReport> reports = parser.parse(null, Arrays.asList(
+                new File("src/test/resources/JMeterResults.jtl"),
+                new File("src/test/resources/JMeterResultsMultiLevel.jtl"),
+                new File("src/test/resources/JMeterResultsMultiThread.jtl")),
+                new StreamTaskListener(System.out));
+        final List<RepeatedRuns> groups = RepeatedRuns.group(reports);
+        assertEquals(1, groups.size());
+        final RepeatedRuns runs = groups.get(0);
+        assertEquals("JMeter", runs.getName());
+        assertEquals(2, runs.getRunCount());
+        assertTrue(runs.get90Line().getMargin() > 0);
+
+        assertEquals(2, runs.getUris().get(0).getRunCount());
+    }
+
+    private static PerformanceReport run(String fileName, long duration) {
+        final PerformanceReport report = new PerformanceReport();
+        report.setReportFileName(fileName);
+        report.setRunGroup("checkout");
+        final Date date = new Date();
+        for (int i = 0; i < 20; i++) {
+            final HttpSample sample = new HttpSample();
+            sample.setUri("Home");
+            sample.setDuration(duration);
+            sample.setDate(date);
+            sample.setSuccessful(true);
+            report.addSample(sample);
+        }
+        return report;
+    }
+
+    /**
+     * A run of 20 samples with an Apdex threshold of 100 ms, of which the
+     * first ones fail and the last ones are tolerated.
+     */
+    private static PerformanceReport run(String fileName, int errors, int tolerated) {
+        final PerformanceReport report = new PerformanceReport();
+        report.setReportFileName(fileName);
+        report.setRunGroup("checkout");
+        report.setApdexRules(new ApdexRules(100, null));
+        final Date date = new Date();
+        for (int i = 0; i < 20; i++) {
+            final HttpSample sample = new HttpSample();
+            sample.setUri("Home");
+            sample.setDuration(i < 20 - tolerated ? 50 : 250);
+            sample.setDate(date);
+            sample.setSuccessful(i >= errors);
+            report.addSample(sample);
+        }
+        return report;
+    }
+
+    @Test
+    public void testGates() {
+        final List<PerformanceReport> reports = new ArrayList<PerformanceReport>();
+        reports.add(run("checkout-run1.jtl", 2, 0));
+        reports.add(run("checkout-run2.jtl", 4, 20));
+        reports.add(run("checkout-run3.jtl", 6, 10));
+        final RepeatedRuns runs = RepeatedRuns.group(reports).get(0);
+
+        // the error percentage of a report needs its build, the one of its
+        // single URI is the same
+        final RepeatedRuns.Interval errors = runs.getUris().get(0).getErrorPercent();
+        assertEquals(20, errors.getMean(), 0.001);
+        // a 5% threshold is not crossed by the whole interval, only by the runs
+        assertTrue(errors.getLow() < 5);
+        assertEquals(10, reports.get(0).getUriListOrdered().get(0).errorPercent(), 0.001);
+
+        assertTrue(runs.hasApdex());
+        final RepeatedRuns.Interval apdex = runs.getApdex();
+        assertEquals(3, apdex.getCount());
+        // the failed samples are frustrated
+        assertEquals((0.9 + 0.4 + 0.45) / 3, apdex.getMean(), 0.001);
+        // nor is an Apdex threshold of 0.9, which the second run is below
+        assertTrue(apdex.getHigh() > 0.9);
+        assertEquals(0.4, reports.get(1).getApdex(), 0.001);
+
+        assertFalse(RepeatedRuns.group(Arrays.asList(run("checkout-run1.jtl", 100))).get(0)
+                .hasApdex());
+    }
+
+    @Test
+    public void testSla() {
+        final List<PerformanceReport> reports = new ArrayList<PerformanceReport>();
+        reports.add(run("checkout-run1.jtl", 100));
+        reports.add(run("checkout-run2.jtl", 110));
+        reports.add(run("checkout-run3.jtl", 105));
+        final RepeatedRuns runs = RepeatedRuns.group(reports).get(0);
+        final RepeatedRuns.Interval line = runs.getUris().get(0).get90Line();
+        assertEquals(105, line.getMean(), 2);
+        assertTrue(line.getLow() < 95 && line.getHigh() > 115);
+
+        // the condition fails only when the whole interval is over the limit
+        final List<SlaResult> results = new SlaRules("Home => p90 < 100, p90 < 80").evaluate(runs);
+        assertEquals(2, results.size());
+        assertTrue(results.get(0).isPassed());
+        assertEquals(line.getMean(), results.get(0).getValue(), 0.001);
+        assertEquals(line.getMargin(), results.get(0).getMargin(), 0.001);
+        assertEquals("checkout", results.get(0).getReportFileName());
+        assertFalse(results.get(1).isPassed());
+    }
+}
@@ -0,0 +1,35 @@
+package hudson.plugins.performance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+public class RuleLinesTest {
+
+    @Test
+    public void testParse() {
+        final RuleLines lines = new RuleLines(
+                " # comment => ignored\r\n\r\n/a => /b \n  x=>y=>z\n", "a rule", "value");
+        assertEquals(2, lines.size());
+        assertEquals("/a", lines.getPattern(0).pattern());
+        assertEquals("/b", lines.getValue(0));
+        // the value follows the last separator
+        assertEquals("x=>y", lines.getPattern(1).pattern());
+        assertEquals("z", lines.getValue(1));
+        assertEquals(0, new RuleLines(null, "a rule", "value").size());
+    }
+
+    @Test
+    public void testInvalid() {
+        try {
+            new RuleLines("/a => /b\n/c", "an SLA rule", "condition");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Not an SLA rule: /c, expected regex => condition", e.getMessage());
+        }
+        final RuleLines lines = new RuleLines("/a => 2s", "an Apdex rule", "threshold in ms");
+        assertEquals("Not an Apdex rule: /a => 2s, expected regex => threshold in ms", lines
+                .invalid(0).getMessage());
+    }
+}
@@ -0,0 +1,104 @@
+package hudson.plugins.performance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+public class ScalabilityModelTest {
+
+    private static double usl(double lambda, double sigma, double kappa, double n) {
+        return lambda * n / (1 + sigma * (n - 1) + kappa * n * (n - 1));
+    }
+
+    @Test
+    public void testUniversalScalabilityLaw() {
+        final Map<Double, Double> throughputs = new TreeMap<Double, Double>();
+        for (final double n : new double[] { 10, 50, 100, 200 }) {
+            throughputs.put(n, usl(20, 0.05, 0.0002, n));
+        }
+        final ScalabilityModel model = ScalabilityModel.fit(throughputs);
+        assertEquals(20, model.getLambda(), 0.01);
+        assertEquals(0.05, model.getContention(), 0.0001);
+        assertEquals(0.0002, model.getCoherency(), 0.000001);
+        assertEquals(Math.sqrt(0.95 / 0.0002), model.getPeakConcurrency(), 0.1);
+        assertEquals(usl(20, 0.05, 0.0002, model.getPeakConcurrency()),
+                model.getPeakThroughput(), 0.01);
+    }
+
+    @Test
+    public void testAmdahl() {
+        final Map<Double, Double> throughputs = new TreeMap<Double, Double>();
+        for (final double n : new double[] { 1, 2, 4, 8, 16 }) {
+            throughputs.put(n, usl(100, 0.1, 0, n) * (n == 16 ? 1.02 : 1));
+        }
+        final ScalabilityModel model = ScalabilityModel.fit(throughputs);
+        assertTrue(model.isAmdahl());
+        assertEquals(0, model.getPeakConcurrency(), 0);
+        assertEquals(0.1, model.getContention(), 0.01);
+        assertEquals(1000, model.getPeakThroughput(), 100);
+    }
+
+    @Test
+    public void testNotEnoughPoints() {
+        final Map<Double, Double> throughputs = new TreeMap<Double, Double>();
+        throughputs.put(10d, 100d);
+        throughputs.put(20d, 190d);
+        assertNull(ScalabilityModel.fit(throughputs));
+    }
+
+    /**
+     * Summary of a run of 10 s at the given number of threads, each one
+     * sending a request every 100 ms.
+     */
+    private static PerformanceSummary summary(int users) {
+        final PerformanceReport report = new PerformanceReport();
+        report.setReportFileName("r.jtl");
+        for (int i = 0; i < 100 * users; i++) {
+            final HttpSample sample = new HttpSample();
+            sample.setUri("Home");
+            sample.setDuration(100);
+            sample.setDate(new Date(i * 100L / users));
+            sample.setSuccessful(true);
+            sample.setActiveThreads(users);
+            report.addSample(sample);
+        }
+        return PerformanceSummary.of(Collections.singleton(report));
+    }
+
+    @Test
+    public void testPreviousBuilds() {
+        final List<PerformanceSummary> summaries = Arrays.asList(summary(30), null,
+                summary(20), summary(10), summary(40));
+        final int[] reads = new int[1];
+        final List<PerformanceSummary> counted = new AbstractList<PerformanceSummary>() {
+            @Override
+            public PerformanceSummary get(int index) {
+                reads[0]++;
+                return summaries.get(index);
+            }
+
+            @Override
+            public int size() {
+                return summaries.size();
+            }
+        };
+        final ScalabilityModel model = ScalabilityModel.of(counted);
+        assertEquals(10, model.getLambda(), 1);
+        // the last build is not needed
+        assertEquals(4, reads[0]);
+
+        // no model without a summary of the build itself
+        assertNull(ScalabilityModel.of(summaries.subList(1, summaries.size())));
+        assertNull(ScalabilityModel.of(Collections.<PerformanceSummary> emptyList()));
+    }
+}
@@ -0,0 +1,62 @@
+package hudson.plugins.performance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class SignificanceTest {
+
+    private static LatencyHistogram histogram(Random random, int count, double mean, double deviation) {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < count; i++) {
+            histogram.record(Math.max(1, Math.round(mean + random.nextGaussian() * deviation)));
+        }
+        return histogram;
+    }
+
+    @Test
+    public void testNormal() {
+        assertEquals(0.5, Significance.normal(0), 1e-6);
+        assertEquals(0.975, Significance.normal(1.96), 1e-3);
+        assertEquals(0.025, Significance.normal(-1.96), 1e-3);
+    }
+
+    @Test
+    public void testSameDistribution() {
+        final Random random = new Random(1);
+        final Significance s = new Significance("report", "uri", histogram(random, 2000, 200, 40),
+                histogram(random, 2000, 200, 40), 90, 0.05, new Random(2));
+        assertFalse(s.isSignificant());
+        assertTrue(s.getMannWhitneyP() > 0.05);
+        assertTrue(s.getKsP() > 0.05);
+        assertTrue(Math.abs(s.getCliffsDelta()) < 0.1);
+        assertTrue(s.getDifferenceLow() <= 0);
+        assertTrue(s.getDifferenceHigh() >= 0);
+    }
+
+    @Test
+    public void testSlower() {
+        final Random random = new Random(1);
+        final Significance s = new Significance("report", "uri", histogram(random, 2000, 200, 40),
+                histogram(random, 2000, 260, 40), 90, 0.05, new Random(2));
+        assertTrue(s.isSignificant());
+        assertTrue(s.getMannWhitneyP() < 0.001);
+        assertTrue(s.getKsP() < 0.001);
+        assertTrue(s.getCliffsDelta() > 0.5);
+        assertTrue(s.getDifferenceLow() > 30);
+        assertTrue(s.getDifferenceHigh() < 90);
+    }
+
+    @Test
+    public void testFaster() {
+        final Random random = new Random(1);
+        final Significance s = new Significance("report", "uri", histogram(random, 2000, 260, 40),
+                histogram(random, 2000, 200, 40), 90, 0.05, new Random(2));
+        assertFalse(s.isSignificant());
+        assertTrue(s.getCliffsDelta() < -0.5);
+    }
+}
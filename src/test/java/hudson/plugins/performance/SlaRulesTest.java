@@ -0,0 +1,80 @@
+package hudson.plugins.performance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import hudson.util.StreamTaskListener;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+public class SlaRulesTest {
+
+    private static PerformanceReport parse() throws IOException {
+        return new JMeterParser("").parse(null,
+                Collections.singleton(new File("src/test/resources/JMeterResults.jtl")),
+                new StreamTaskListener(System.out)).iterator().next();
+    }
+
+    @Test
+    public void testEvaluate() throws IOException {
+        final SlaRules rules = new SlaRules("# home page\n"
+                + "Home => p99 < 20000, avg < 1000\n"
+                + "H.* => errors < 1%\n"
+                + ".* => p95.5 < 2000, errors < 1%");
+        final List<SlaResult> results = rules.evaluate(parse());
+        assertEquals(4, results.size());
+        assertEquals("Home", results.get(0).getUri());
+        assertEquals("p99 < 20000", results.get(0).getCondition());
+        assertTrue(results.get(0).isPassed());
+        assertEquals("avg < 1000", results.get(1).getCondition());
+        assertFalse(results.get(1).isPassed());
+        // only the first matching rule applies
+        assertEquals("Workgroup", results.get(2).getUri());
+        assertEquals("p95.5 < 2000", results.get(2).getCondition());
+        assertTrue(results.get(2).isPassed());
+        assertTrue(results.get(3).isPassed());
+    }
+
+    @Test
+    public void testThroughput() throws IOException {
+        final List<SlaResult> results = new SlaRules(".* => throughput > 1000").evaluate(parse());
+        assertEquals(2, results.size());
+        assertFalse(results.get(0).isPassed());
+        assertTrue(results.get(0).getValue() > 0);
+    }
+
+    @Test
+    public void testApdex() throws IOException {
+        // the URIs have no Apdex threshold
+        final List<SlaResult> results = new SlaRules("Home => apdex > 0.5").evaluate(parse());
+        assertEquals(1, results.size());
+        assertFalse(results.get(0).isPassed());
+    }
+
+    @Test
+    public void testRobustStatistics() throws IOException {
+        final List<SlaResult> results = new SlaRules(
+                "Home => trimmed < 100000, mad < 100000, stddev < 1, outliers < 100%")
+                .evaluate(parse());
+        assertEquals(4, results.size());
+        assertTrue(results.get(0).isPassed());
+        assertTrue(results.get(1).isPassed());
+        assertFalse(results.get(2).isPassed());
+        assertTrue(results.get(3).isPassed());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMaximumThroughput() {
+        new SlaRules(".* => throughput < 10");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownCondition() {
+        new SlaRules(".* => p99 <= 300");
+    }
+}
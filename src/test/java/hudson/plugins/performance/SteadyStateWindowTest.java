@@ -0,0 +1,34 @@
+package hudson.plugins.performance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class SteadyStateWindowTest {
+
+    @Test
+    public void testFixedTrimming() {
+        final SteadyStateWindow window = new SteadyStateWindow();
+        for (int second = 0; second <= 100; second++) {
+            window.add(second * 1000L, 100);
+        }
+        final long[] bounds = window.window(10, 20, false);
+        assertEquals(10000, bounds[0]);
+        assertEquals(80000, bounds[1]);
+    }
+
+    @Test
+    public void testSteadyStateDetection() {
+        final SteadyStateWindow window = new SteadyStateWindow();
+        for (int second = 0; second < 300; second++) {
+            // slow warm-up for 30 s, then stable around 100 ms, then a slow ramp-down
+            final long duration = second < 30 ? 1000 - second * 30 : second >= 280 ? 400
+                    : 100 + second % 3;
+            window.add(second * 1000L, duration);
+        }
+        final long[] bounds = window.window(0, 0, true);
+        assertTrue(bounds[0] >= 30000 && bounds[0] <= 35000);
+        assertTrue(bounds[1] >= 275000 && bounds[1] < 280000);
+    }
+}
@@ -0,0 +1,128 @@
+package hudson.plugins.performance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TimelineTest {
+
+    private static HttpSample sample(long timestamp, long duration, boolean successful) {
+        final HttpSample sample = new HttpSample();
+        sample.setDate(new Date(timestamp));
+        sample.setDuration(duration);
+        sample.setSuccessful(successful);
+        return sample;
+    }
+
+    @Test
+    public void testBuckets() {
+        final Timeline timeline = new Timeline(10);
+        for (int i = 0; i < 100; i++) {
+            timeline.add(sample(1000000L + i * 200, i % 10 == 0 ? 1000 : 100, i % 10 != 0));
+        }
+        final List<Timeline.Bucket> buckets = timeline.getBuckets();
+        assertEquals(10, timeline.getIntervalSec());
+        assertEquals(2, buckets.size());
+        assertEquals(1000000L, buckets.get(0).getStartTime());
+        assertEquals(1010000L, buckets.get(1).getStartTime());
+        assertEquals(50, buckets.get(1).getCount());
+        assertEquals(5, buckets.get(1).getErrors());
+        assertEquals(190, buckets.get(1).getAverage());
+        assertEquals(1000, buckets.get(1).get95Line());
+    }
+
+    @Test
+    public void testLatencyDrift() {
+        final Timeline timeline = new Timeline(60);
+        for (int minute = 0; minute < 10; minute++) {
+            for (int i = 0; i < 100; i++) {
+                // the response times creep up by 10 ms a minute
+                timeline.add(sample(minute * 60000L + i * 500, 100 + minute * 10 + i % 20, true));
+            }
+        }
+        final List<Timeline.Bucket> buckets = timeline.getBuckets();
+        assertEquals(10, buckets.size());
+        assertTrue(buckets.get(0).getMedian() < buckets.get(0).get95Line());
+        assertTrue(buckets.get(0).get95Line() <= buckets.get(0).get99Line());
+        assertEquals(119, buckets.get(0).get95Line());
+        assertEquals(209, buckets.get(9).get95Line());
+        assertEquals(75.6, timeline.getLatencyDrift(), 0.1);
+    }
+
+    @Test
+    public void testSealing() {
+        final Timeline timeline = new Timeline(60);
+        for (int minute = 0; minute < 10; minute++) {
+            for (int i = 0; i < 100; i++) {
+                timeline.add(sample(minute * 60000L + i * 500, 100 + i % 20, true));
+            }
+        }
+        // a late sample of a sealed bucket is still counted
+        timeline.add(sample(1000, 5000, false));
+        final Timeline.Bucket first = timeline.getBuckets().get(0);
+        assertEquals(101, first.getCount());
+        assertEquals(1, first.getErrors());
+        assertEquals(119, first.get95Line());
+
+        final Timeline coarse = new Timeline(1, 20);
+        for (int second = 0; second < 300; second++) {
+            coarse.add(sample(second * 1000L, 100, true));
+        }
+        // the buckets are merged after they are sealed
+        assertEquals(16, coarse.getIntervalSec());
+        for (final Timeline.Bucket bucket : coarse.getBuckets()) {
+            assertTrue(bucket.isSealed());
+            assertEquals(100, bucket.getMedian());
+            assertEquals(100, bucket.get99Line());
+        }
+    }
+
+    @Test
+    public void testSoak() {
+        final Timeline timeline = new Timeline(UriReport.DEFAULT_WINDOW_SEC,
+                UriReport.MAX_WINDOWS);
+        // 8 hours of response times creeping up every 2 minutes, 100 samples
+        // a minute spread evenly from 1% to 100% of the current base
+        final int minutes = 8 * 60;
+        for (int minute = 0; minute < minutes; minute++) {
+            final long base = 1000 + minute / 2 * 3;
+            for (int i = 1; i <= 100; i++) {
+                timeline.add(sample(minute * 60000L + i * 500, base * i / 100, true));
+            }
+        }
+        assertEquals(2 * UriReport.DEFAULT_WINDOW_SEC, timeline.getIntervalSec());
+        final List<Timeline.Bucket> buckets = timeline.getBuckets();
+        assertEquals(minutes / 2, buckets.size());
+        for (int window = 0; window < buckets.size(); window++) {
+            final Timeline.Bucket bucket = buckets.get(window);
+            assertTrue(bucket.isSealed());
+            // within the precision of the histograms, not of the heatmap bands
+            final long base = 1000 + window * 3;
+            assertEquals(base * 0.96, bucket.get95Line(), base * 0.035);
+        }
+        final double drift = (1000 + (buckets.size() - 1) * 3) * 100d / 1000 - 100;
+        assertEquals(drift, timeline.getLatencyDrift(), 5);
+    }
+
+    @Test
+    public void testCoarsening() {
+        final Timeline timeline = new Timeline(1);
+        final int seconds = Timeline.MAX_BUCKETS * 3;
+        for (int second = 0; second < seconds; second++) {
+            timeline.add(sample(second * 1000L, 100, true));
+        }
+        assertEquals(4, timeline.getIntervalSec());
+        final List<Timeline.Bucket> buckets = timeline.getBuckets();
+        assertTrue(buckets.size() <= Timeline.MAX_BUCKETS);
+        int count = 0;
+        for (final Timeline.Bucket bucket : buckets) {
+            assertEquals(0, bucket.getStartTime() % 4000);
+            count += bucket.getCount();
+        }
+        assertEquals(seconds, count);
+    }
+}
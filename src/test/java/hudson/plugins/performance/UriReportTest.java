@@ -1,6 +1,7 @@
 package hudson.plugins.performance;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Date;
@@ -56,6 +57,94 @@ public class UriReportTest {
 //		assertEquals(MIN, uriReport.getMin());
 //	}
 
+	@Test
+	public void testSampleLimit() {
+		final UriReport sampled = new UriReport(null, "page", "page", 10);
+		final Date date = new Date();
+		for (int i = 1; i <= 1000; i++) {
+			final HttpSample sample = new HttpSample();
+			sample.setDuration(i);
+			sample.setDate(date);
+			sample.setSuccessful(i % 4 != 0);
+			sampled.addHttpSample(sample);
+		}
+		assertEquals(10, sampled.getHttpSampleList().size());
+		assertTrue(sampled.isSampled());
+		assertEquals(1000, sampled.size());
+		assertEquals(250, sampled.countErrors());
+		assertEquals(500, sampled.getAverage());
+		assertEquals(1, sampled.getMin());
+		assertEquals(1000, sampled.getMax());
+		assertEquals(901, sampled.get90Line(), 901 * 0.04);
+	}
+
+	@Test
+	public void testSavedHistogram() {
+		final UriReport report = new UriReport(null, "page", "page");
+		final Date date = new Date();
+		for (int i = 0; i < 5000; i++) {
+			final HttpSample sample = new HttpSample();
+			sample.setDuration(i % 2 == 0 ? 20 + i % 50 : 3000 + i % 700);
+			sample.setDate(date);
+			sample.setSuccessful(true);
+			report.addHttpSample(sample);
+		}
+		final LatencyHistogram saved = new UriSummary(report).getHistogram();
+		assertEquals(5000, saved.getTotalCount());
+		for (int percentile = 10; percentile < 100; percentile += 10) {
+			assertEquals(report.getHistogram().getValueAtPercentile(percentile),
+					saved.getValueAtPercentile(percentile));
+		}
+	}
+
+	@Test
+	public void testCoordinatedOmission() {
+		final UriReport report = new UriReport(null, "page", "page");
+		report.setExpectedInterval(10);
+		final Date date = new Date();
+		for (int i = 0; i < 100; i++) {
+			final HttpSample sample = new HttpSample();
+			// a single stall of one second
+			sample.setDuration(i == 50 ? 1000 : 5);
+			sample.setDate(date);
+			sample.setSuccessful(true);
+			report.addHttpSample(sample);
+		}
+		assertEquals(5, report.getHistogram().getValueAtPercentile(90));
+		// the 99 requests delayed by the stall
+		final LatencyHistogram corrected = report.getCorrectedHistogram();
+		assertEquals(199, corrected.getTotalCount());
+		assertTrue(corrected.getValueAtPercentile(90) > 700);
+		assertEquals(1000, corrected.getMax());
+		assertEquals(199, new UriSummary(report).getCorrectedHistogram().getTotalCount());
+		assertNull(uriReport.getCorrectedHistogram());
+		assertNull(new UriSummary(uriReport).getCorrectedHistogram());
+	}
+
+	@Test
+	public void testRobustStatistics() {
+		final UriReport report = new UriReport(null, "page", "page");
+		final Date date = new Date();
+		for (int i = 0; i < 100; i++) {
+			final HttpSample sample = new HttpSample();
+			// two timeouts among response times from 95 to 104 ms
+			final boolean timeout = i == 20 || i == 70;
+			sample.setDuration(timeout ? 5000 : 95 + i % 10);
+			sample.setDate(date);
+			sample.setSuccessful(!timeout);
+			report.addHttpSample(sample);
+		}
+		assertEquals(197, report.getAverage());
+		assertEquals(100, report.getTrimmedMean(), 1);
+		assertEquals(3, report.getMedianAbsoluteDeviation(), 1);
+		assertEquals(690, report.getStandardDeviation(), 5);
+		assertEquals(2, report.getOutliers());
+		assertEquals(2, report.getOutlierPercent(), 0.001);
+		// the outliers still count as errors
+		assertEquals(2, report.countErrors());
+		assertEquals(0, new UriReport(null, "page", "page").getOutliers());
+	}
+
 	@Test
 	public void testIsFailed() {
 		assertTrue(uriReport.isFailed());